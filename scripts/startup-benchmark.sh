@@ -0,0 +1,42 @@
+#!/usr/bin/env sh
+# Measures time from JVM launch to the first successful POST /checkout/create.
+#
+# Usage: scripts/startup-benchmark.sh [runs] -- <java command that starts the service>
+#   scripts/startup-benchmark.sh 5 -- java -jar target/payment-service-0.0.1-SNAPSHOT.jar
+#   scripts/startup-benchmark.sh 5 -- java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar app.jar
+#
+# Point the service at a Stripe stand-in (e.g. stripe-mock on :12111) so checkouts succeed without Stripe:
+#   STRIPE_API_API_BASE=http://localhost:12111 STRIPE_API_SECRET_KEY=sk_test_123 scripts/startup-benchmark.sh ...
+
+RUNS=${1:-3}
+shift
+[ "$1" = "--" ] && shift
+
+URL=${URL:-http://localhost:8085/api/v1/internal/payments/checkout/create}
+BODY='{"bookingId": 1, "userId": 1, "amount": 100.0}'
+
+now_ms() {
+    date +%s%3N
+}
+
+i=1
+while [ "$i" -le "$RUNS" ]; do
+    start=$(now_ms)
+    "$@" > "startup-run-$i.log" 2>&1 &
+    pid=$!
+
+    until curl -sf -o /dev/null -X POST "$URL" \
+            -H 'Content-Type: application/json' \
+            -H 'X-User-Id: 1' -H 'X-User-Roles: SERVICE_ACCOUNT' \
+            -d "$BODY"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "run $i: service exited before serving a checkout, see startup-run-$i.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+
+    echo "run $i: first successful /checkout/create after $(( $(now_ms) - start )) ms"
+    kill "$pid" && wait "$pid" 2>/dev/null
+    i=$((i + 1))
+done
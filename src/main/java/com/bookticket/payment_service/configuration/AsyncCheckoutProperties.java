@@ -0,0 +1,24 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.async-checkout")
+@Getter
+@Setter
+public class AsyncCheckoutProperties {
+    private boolean enabled = false;
+    private int threads = 16;                                   // Sessions created concurrently in the background
+    private int queueCapacity = 500;                            // Accepted checkouts waiting; beyond that they run inline
+    private List<String> callbackHosts = new ArrayList<>();     // Hosts callback URLs may point to; empty allows none
+    private Duration callbackTimeout = Duration.ofSeconds(5);
+    private int callbackAttempts = 3;
+    private Duration callbackRetryDelay = Duration.ofSeconds(2);
+}
@@ -0,0 +1,44 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.concurrency-limit")
+@Getter
+@Setter
+public class ConcurrencyLimitProperties {
+    private boolean enabled = true;
+    private long retryAfterSeconds = 1;         // Retry-After sent with a shed (503) response
+    private double smoothing = 0.2;             // Weight of a new limit estimate against the current limit
+    private double tolerance = 1.5;             // Latency may grow to this multiple of the baseline before the limit shrinks
+    private double backoffRatio = 0.9;          // Multiplicative decrease after a failed (5xx) request
+
+    // Keyed by endpoint: create, verify, status
+    private Map<String, EndpointLimit> endpoints = new LinkedHashMap<>(Map.of(
+            "create", new EndpointLimit(20, 4, 100),
+            "verify", new EndpointLimit(40, 4, 200),
+            "status", new EndpointLimit(100, 10, 400)));
+
+    @Getter
+    @Setter
+    public static class EndpointLimit {
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+
+        public EndpointLimit() {
+        }
+
+        public EndpointLimit(int initialLimit, int minLimit, int maxLimit) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+    }
+}
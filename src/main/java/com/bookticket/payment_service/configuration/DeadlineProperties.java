@@ -0,0 +1,17 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.deadlines")
+@Getter
+@Setter
+public class DeadlineProperties {
+    private boolean enabled = true;                             // Honour X-Request-Deadline
+    private Duration minStripeBudget = Duration.ofMillis(100);  // A Stripe call is not started with less time left
+}
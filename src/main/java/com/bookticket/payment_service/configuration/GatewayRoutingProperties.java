@@ -0,0 +1,18 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.routing")
+@Getter
+@Setter
+public class GatewayRoutingProperties {
+    private double smoothingFactor = 0.2;       // EWMA weight of the newest latency / outcome sample
+    private double errorRateThreshold = 0.5;    // A gateway above this smoothed error rate is degraded
+    private int minSamples = 5;                 // Samples needed before a gateway can be marked degraded
+    private long probeIntervalSeconds = 30;     // How often one request is let through to a degraded gateway
+    private double errorPenalty = 4.0;          // Score = latency * (1 + errorPenalty * errorRate)
+}
@@ -0,0 +1,21 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.group-commit")
+@Getter
+@Setter
+public class GroupCommitProperties {
+    private boolean enabled = false;
+    private int maxBatchSize = 200;                         // Most checkout inserts written in one statement and commit
+    private Duration maxDelay = Duration.ofMillis(5);       // Longest the first insert of a batch waits for others
+    private int queueCapacity = 10000;                      // Inserts waiting for a writer; beyond that they are saved alone
+    private int writers = 2;                                // Batches written concurrently
+    private Duration maxWait = Duration.ofSeconds(5);       // Longest a checkout waits for a writer before saving alone
+}
@@ -0,0 +1,18 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.gateways.mock")
+@Getter
+@Setter
+public class MockGatewayProperties {
+    private boolean enabled = false;            // Registers the simulated gateway next to Stripe
+    private long latencyMs = 50;                // Base simulated round trip
+    private long jitterMs = 20;                 // Uniform random extra latency
+    private double failureRate = 0.0;           // Fraction of calls that fail
+    private long completeAfterSeconds = 0;      // Sessions report "paid" once they are this old
+}
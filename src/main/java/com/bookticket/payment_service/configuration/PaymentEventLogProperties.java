@@ -0,0 +1,24 @@
+package com.bookticket.payment_service.configuration;
+
+import com.bookticket.payment_service.enums.PaymentEventWriteMode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.events")
+@Getter
+@Setter
+public class PaymentEventLogProperties {
+    private boolean enabled = true;
+    private PaymentEventWriteMode mode = PaymentEventWriteMode.ASYNC;
+    private int queueCapacity = 10000;                          // Events waiting for the writer
+    private int batchSize = 500;                                // Most events written in one commit
+    private Duration enqueueTimeout = Duration.ofMillis(50);    // Wait for room in a full queue before dropping
+    private int maxRetries = 3;                                 // Attempts of a failed batch before it is dropped
+    private Duration retryDelay = Duration.ofSeconds(1);
+    private Duration shutdownTimeout = Duration.ofSeconds(10);  // Time to drain the queue on shutdown
+}
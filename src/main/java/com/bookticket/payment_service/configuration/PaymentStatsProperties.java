@@ -0,0 +1,16 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.stats")
+@Getter
+@Setter
+public class PaymentStatsProperties {
+    private boolean enabled = true;
+    private long flushIntervalMs = 5000;    // How often local deltas are written and shared totals re-read
+    private int windowMinutes = 60;         // Per-minute throughput windows kept and served
+}
@@ -0,0 +1,20 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.polling")
+@Getter
+@Setter
+public class PollingProperties {
+    private int cacheMaxEntries = 10000;                        // Status cache is cleared when it reaches this size
+    private Duration pendingTtl = Duration.ofSeconds(2);        // Other replicas may change a non-terminal payment
+    private Duration terminalTtl = Duration.ofMinutes(5);
+    private Duration minInterval = Duration.ofSeconds(2);       // Poll hint for a session just created
+    private Duration maxInterval = Duration.ofSeconds(30);      // Poll hint for an old session
+}
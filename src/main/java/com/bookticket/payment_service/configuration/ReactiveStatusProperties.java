@@ -0,0 +1,22 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.reactive-status")
+@Getter
+@Setter
+public class ReactiveStatusProperties {
+    private boolean enabled = false;
+    private String keyPrefix = "payment:status:";
+    private Duration redisTimeout = Duration.ofMillis(200);     // Slower Redis reads fall through to the database
+    private Duration redisRetryAfter = Duration.ofSeconds(5);   // Read from the database only, this long after a Redis error
+    private int databaseThreads = 16;                           // Cache misses read from the database concurrently
+    private int databaseQueueCapacity = 10000;                  // Cache misses waiting for a database thread
+    private Duration evictAgainAfter = Duration.ofSeconds(1);   // Second delete, for reads that raced a change
+}
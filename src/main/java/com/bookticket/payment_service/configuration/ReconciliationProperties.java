@@ -0,0 +1,21 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.reconciliation")
+@Getter
+@Setter
+public class ReconciliationProperties {
+    private boolean scheduleEnabled = false;    // Scheduled runs are opt-in; on-demand runs are always available
+    private String cron = "0 30 * * * *";       // Only read when scheduleEnabled is true
+    private int lookbackHours = 24;             // Window start for scheduled runs
+    private int settleMinutes = 10;             // Window end lag, so sessions still being created are not flagged
+    private long clockSkewSeconds = 300;        // Max distance between Stripe "created" and our createdAt
+    private boolean repair = false;             // Apply Stripe's terminal state to mismatched local rows
+    private int progressInterval = 1000;        // Log progress every N merged items
+    private int maxReportedMismatches = 200;    // Cap on mismatches returned in the report (all are logged)
+}
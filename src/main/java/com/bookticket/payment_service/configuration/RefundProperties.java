@@ -0,0 +1,22 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.refunds")
+@Getter
+@Setter
+public class RefundProperties {
+    private int parallelism = 8;                            // Concurrent gateway refund calls per instance
+    private int maxConcurrentJobs = 2;                      // Jobs run at the same time per instance
+    private int checkpointSize = 100;                       // Items refunded between two progress checkpoints
+    private int maxAttempts = 3;                            // Failed attempts before an item is marked FAILED
+    private Duration retryBackoff = Duration.ofSeconds(30); // Pause before another pass over retryable items
+    private Duration lease = Duration.ofMinutes(2);         // A job whose lease expired is resumed by any instance
+    private long resumeIntervalMs = 60000;                  // How often orphaned jobs are looked for
+}
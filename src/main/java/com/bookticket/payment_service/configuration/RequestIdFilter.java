@@ -1,10 +1,14 @@
 package com.bookticket.payment_service.configuration;
 
 
+import com.bookticket.payment_service.observability.RequestTimeline;
+import com.bookticket.payment_service.observability.SlowRequestRecorder;
+import com.bookticket.payment_service.resilience.RequestDeadline;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import org.slf4j.MDC;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
@@ -12,14 +16,19 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.UUID;
 
 @Component
 @Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
 public class RequestIdFilter extends OncePerRequestFilter {
     private static final String HEADER_NAME = "X-Request-ID";
     private static final String MDC_KEY = "requestId";
 
+    private final SlowRequestRecorder slowRequestRecorder;
+    private final DeadlineProperties deadlineProperties;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
@@ -35,8 +44,29 @@ public class RequestIdFilter extends OncePerRequestFilter {
             // 2. Add to MDC for logging
             MDC.put(MDC_KEY, requestId);
 
-            // 3. Continue
-            chain.doFilter(request, response);
+            // 3. Start stage timing for the slow request recorder
+            RequestTimeline timeline = slowRequestRecorder.isEnabled()
+                    ? RequestTimeline.begin(requestId, request.getMethod(), request.getRequestURI())
+                    : null;
+
+            // 4. Bind the caller's deadline, if any, for the stages to check
+            Instant deadline = deadlineProperties.isEnabled()
+                    ? RequestDeadline.parse(request.getHeader(RequestDeadline.HEADER))
+                    : null;
+            if (deadline != null) {
+                RequestDeadline.begin(deadline);
+            }
+
+            // 5. Continue
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                RequestDeadline.end();
+                if (timeline != null) {
+                    RequestTimeline.end();
+                    slowRequestRecorder.record(timeline, response.getStatus());
+                }
+            }
         } finally {
             MDC.remove(MDC_KEY);
         }
@@ -1,6 +1,7 @@
 package com.bookticket.payment_service.configuration;
 
 import com.bookticket.payment_service.security.HeaderAuthenticatorFilter;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -29,9 +30,12 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
                 .authorizeHttpRequests(requests -> requests
+                        // Slow requests carry request paths and trace IDs; recordings cost CPU and disk
+                        .requestMatchers(EndpointRequest.to("slowrequests", "jfr")).hasRole("ADMIN")
                         .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("v3/api-docs/**").permitAll()
                         .requestMatchers("/api/v1/internal/payments/**").hasRole("SERVICE_ACCOUNT")
+                        .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(headerAuthenticatorFilter(), UsernamePasswordAuthenticationFilter.class);
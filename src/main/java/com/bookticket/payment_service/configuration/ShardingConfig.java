@@ -0,0 +1,83 @@
+package com.bookticket.payment_service.configuration;
+
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.bookticket.payment_service.sharding.ShardSchemaManager;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class ShardingConfig {
+
+    /**
+     * Without sharding the router wraps the auto-configured DataSource and runs everything on it
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "payment.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+    public PaymentShardRouter singleDatabaseRouter(DataSource dataSource) {
+        return PaymentShardRouter.single(dataSource);
+    }
+
+    /**
+     * Shard 0 is spring.datasource (with its spring.datasource.hikari settings), the others come from
+     * payment.sharding.shards
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "payment.sharding", name = "enabled", havingValue = "true")
+    public PaymentShardRouter shardedRouter(DataSourceProperties dataSourceProperties,
+                                            ShardingProperties shardingProperties,
+                                            Environment environment,
+                                            MeterRegistry meterRegistry) {
+        if (shardingProperties.getShards().isEmpty()) {
+            throw new IllegalStateException("payment.sharding.enabled requires at least one entry in payment.sharding.shards");
+        }
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+        List<DataSource> shards = new ArrayList<>();
+
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("payments-shard-0");
+        primary.setMetricsTrackerFactory(metrics);
+        shards.add(primary);
+
+        for (ShardingProperties.Shard shard : shardingProperties.getShards()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+            dataSource.setPoolName("payments-shard-" + shards.size());
+            dataSource.setMetricsTrackerFactory(metrics);
+            shards.add(dataSource);
+        }
+        return PaymentShardRouter.sharded(shards, shardingProperties.getParallelism(), meterRegistry);
+    }
+
+    /**
+     * Replaces the auto-configured DataSource, so JPA and JDBC follow the shard selected for the current thread
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "payment.sharding", name = "enabled", havingValue = "true")
+    public DataSource shardRoutingDataSource(PaymentShardRouter shardedRouter) {
+        return shardedRouter.routingDataSource();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "payment.sharding", name = "enabled", havingValue = "true")
+    public ShardSchemaManager shardSchemaManager(PaymentShardRouter shardedRouter, ShardingProperties shardingProperties) {
+        return new ShardSchemaManager(shardedRouter, shardingProperties.isInitializeSchema());
+    }
+}
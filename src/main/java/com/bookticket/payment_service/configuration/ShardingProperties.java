@@ -0,0 +1,29 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.sharding")
+@Getter
+@Setter
+public class ShardingProperties {
+    private boolean enabled = false;                  // Spread payments over spring.datasource plus the shards below
+    private List<Shard> shards = new ArrayList<>();   // Additional databases; shard 0 is always spring.datasource
+    private int parallelism = 8;                      // Threads for scatter-gather reads across shards
+    private boolean initializeSchema = true;          // Create the payments table on shards that lack it at startup
+
+    @Getter
+    @Setter
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,19 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.slow-requests")
+@Getter
+@Setter
+public class SlowRequestProperties {
+    private boolean enabled = true;
+    private int capacity = 20;                          // Slowest requests kept per window
+    private Duration window = Duration.ofMinutes(5);    // The endpoint reports the current and the previous window
+    private Duration minDuration = Duration.ZERO;       // Requests faster than this are never recorded
+}
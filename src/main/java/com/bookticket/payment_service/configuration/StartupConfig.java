@@ -0,0 +1,24 @@
+package com.bookticket.payment_service.configuration;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    private static final String BASE_PACKAGE = "com.bookticket.payment_service";
+
+    /**
+     * With spring.main.lazy-initialization (fast-startup profile) only framework beans become lazy.
+     * Our own beans stay eager: they are on the request path, own @Scheduled jobs, or are filters,
+     * and creating them at startup also pulls in the DataSource, JPA and Stripe setup they need.
+     * OpenAPIConfig is the exception, since it is only used by the Swagger UI.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerApplicationBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && beanType.getPackageName().startsWith(BASE_PACKAGE)
+                && !OpenAPIConfig.class.isAssignableFrom(beanType);
+    }
+}
@@ -18,9 +18,13 @@ public class StripeConfig {
     private String successUrl;  // For Checkout Session
     private String cancelUrl;   // For Checkout Session
     private Integer checkoutSessionExpiryMinutes;  // Checkout session expiry time in minutes
+    private String apiBase;     // Optional: point the SDK at a local stand-in (e.g. stripe-mock)
 
     @PostConstruct
     public void init() {
         Stripe.apiKey = secretKey;
+        if (apiBase != null && !apiBase.isBlank()) {
+            Stripe.overrideApiBase(apiBase);
+        }
     }
 }
@@ -0,0 +1,23 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stripe.hedging")
+@Getter
+@Setter
+public class StripeHedgingProperties {
+    private boolean enabled = false;
+    private double percentile = 0.95;                   // A read slower than this percentile of recent ones is hedged
+    private Duration minDelay = Duration.ofMillis(50);  // Never hedge sooner than this
+    private double budgetRatio = 0.05;                  // Hedges allowed per read, so at most 5% extra requests
+    private int maxBudget = 10;                         // Unused hedges saved up for a burst of slow reads
+    private int windowSize = 500;                       // Latest attempt latencies per operation the percentile uses
+    private int minSamples = 50;                        // No hedging until this many latencies are known
+    private int maxConcurrentReads = 64;                // Threads for hedged reads; beyond that reads run unhedged
+}
@@ -0,0 +1,40 @@
+package com.bookticket.payment_service.configuration;
+
+import com.bookticket.payment_service.enums.StripeCallPriority;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "stripe.governor")
+@Getter
+@Setter
+public class StripeRateGovernorProperties {
+    private boolean enabled = true;
+    private double requestsPerSecond = 25;          // Cluster-wide budget (Stripe test mode allows 25/s, live 100/s)
+    private double burstCapacity = 25;              // Bucket size
+    private String redisKey = "stripe:rate-governor";
+    private int fallbackReplicas = 2;               // Local fallback gets requestsPerSecond / fallbackReplicas
+    private Duration redisRetryAfter = Duration.ofSeconds(10);  // Stay on the local bucket this long after a Redis error
+
+    // Fraction of the bucket that must remain after a call of this priority takes its token
+    private Map<StripeCallPriority, Double> reserve = new EnumMap<>(Map.of(
+            StripeCallPriority.VERIFY, 0.0,
+            StripeCallPriority.CREATE, 0.1,
+            StripeCallPriority.EXPIRE, 0.4,
+            StripeCallPriority.REFUND, 0.5,
+            StripeCallPriority.RECONCILE, 0.6));
+
+    // How long a call of this priority may wait for a token before it is rejected
+    private Map<StripeCallPriority, Duration> maxWait = new EnumMap<>(Map.of(
+            StripeCallPriority.VERIFY, Duration.ofSeconds(2),
+            StripeCallPriority.CREATE, Duration.ofSeconds(2),
+            StripeCallPriority.EXPIRE, Duration.ofSeconds(5),
+            StripeCallPriority.REFUND, Duration.ofSeconds(10),
+            StripeCallPriority.RECONCILE, Duration.ofSeconds(30)));
+}
@@ -0,0 +1,20 @@
+package com.bookticket.payment_service.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "payment.warmup")
+@Getter
+@Setter
+public class WarmupProperties {
+    private boolean enabled = true;
+    private Duration timeBudget = Duration.ofSeconds(30);   // Traffic is accepted after this even if warm-up is not done
+    private int iterations = 2000;                          // Synthetic create/verify/status flows of 3 requests each
+    private int connectionsPerShard = 5;                    // Database connections opened at once per shard
+    private boolean stripeConnection = true;                // Open a TLS connection to the Stripe API
+}
@@ -0,0 +1,15 @@
+package com.bookticket.payment_service.configuration;
+
+import com.bookticket.payment_service.observability.RequestTimelineInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestTimelineInterceptor());
+    }
+}
@@ -0,0 +1,73 @@
+package com.bookticket.payment_service.controller;
+
+import com.bookticket.payment_service.dto.CheckoutIntentRequest;
+import com.bookticket.payment_service.dto.CheckoutIntentResponse;
+import com.bookticket.payment_service.service.CheckoutIntentService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+
+@RestController
+@RequestMapping("/api/v1/internal/payments/checkout/intents")
+@ConditionalOnProperty(prefix = "payment.async-checkout", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Tag(name = "Checkout Intent Controller", description = "Asynchronous creation of Stripe Checkout Sessions")
+public class CheckoutIntentController {
+
+    private final CheckoutIntentService checkoutIntentService;
+
+    @Operation(
+            summary = "Create Checkout Session asynchronously",
+            description = "Stores the payment as a PENDING intent and answers 202 with its local payment ID right away; the checkout session is created in the background. The payment URL is then available from the Location URL and, if callbackUrl was given, POSTed to it. When the background executor is full the session is created before answering, with 200.",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Checkout accepted, session being created",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CheckoutIntentResponse.class))),
+                    @ApiResponse(responseCode = "200", description = "Session created (or failed) before answering",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CheckoutIntentResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid request data or callback URL",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "500", description = "Internal server error",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping
+    public ResponseEntity<CheckoutIntentResponse> createCheckoutIntent(@Valid @RequestBody CheckoutIntentRequest request) {
+        CheckoutIntentResponse response = checkoutIntentService.accept(request);
+        if (!CheckoutIntentService.ACCEPTED.equals(response.status())) {
+            return ResponseEntity.ok(response);
+        }
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{paymentId}")
+                .buildAndExpand(response.paymentId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(response);
+    }
+
+    @Operation(
+            summary = "Get Checkout Intent",
+            description = "State of an asynchronously created checkout: accepted while the session is being created, then the payment status in lower case with the session ID and, while payable, the payment URL.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Intent retrieved",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CheckoutIntentResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "Payment ID not found",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @GetMapping("/{paymentId}")
+    public ResponseEntity<CheckoutIntentResponse> getCheckoutIntent(
+            @Parameter(description = "Local payment ID returned when the checkout was accepted", required = true)
+            @PathVariable Long paymentId) {
+        return ResponseEntity.ok(checkoutIntentService.get(paymentId));
+    }
+}
@@ -0,0 +1,185 @@
+package com.bookticket.payment_service.controller;
+
+import com.bookticket.payment_service.dto.PaymentEventResponse;
+import com.bookticket.payment_service.dto.PaymentExportRequest;
+import com.bookticket.payment_service.dto.PaymentStatsResponse;
+import com.bookticket.payment_service.dto.ReconciliationReport;
+import com.bookticket.payment_service.dto.ShardRebalanceReport;
+import com.bookticket.payment_service.enums.ExportFormat;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.repository.PaymentEventRepository;
+import com.bookticket.payment_service.service.PaymentExportService;
+import com.bookticket.payment_service.service.PaymentReconciliationService;
+import com.bookticket.payment_service.service.PaymentStatsService;
+import com.bookticket.payment_service.sharding.ShardRebalancer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/v1/admin/payments")
+@RequiredArgsConstructor
+@Tag(name = "Payment Admin Controller", description = "Administrative operations on payment records")
+public class PaymentAdminController {
+
+    private final PaymentReconciliationService reconciliationService;
+    private final PaymentExportService exportService;
+    private final ShardRebalancer shardRebalancer;
+    private final PaymentStatsService statsService;
+    private final PaymentEventRepository eventRepository;
+
+    @Operation(
+            summary = "Reconcile payments with Stripe",
+            description = "Compares every Stripe Checkout Session created in the window with the local payment records and reports sessions missing locally, payments missing in Stripe and status mismatches. With repair=true, PENDING payments whose session has reached a terminal state in Stripe are updated.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Reconciliation completed",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReconciliationReport.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid window or a run is already in progress",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "500", description = "Internal server error or error communicating with Stripe",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping("/reconciliation")
+    public ResponseEntity<ReconciliationReport> reconcile(
+            @Parameter(description = "Window start (inclusive), ISO-8601 instant", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "Window end (exclusive), ISO-8601 instant", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @Parameter(description = "Apply Stripe's terminal status to mismatched PENDING payments")
+            @RequestParam(defaultValue = "false") boolean repair) {
+        return ResponseEntity.ok(reconciliationService.reconcile(from, to, repair));
+    }
+
+    @Operation(
+            summary = "Export payments",
+            description = "Streams payment records created in [from, to) as CSV or NDJSON, ordered by payment ID. Rows are read from a database cursor and written as they arrive, so exports of any size run in constant memory. An interrupted download can be resumed by passing the last received payment ID as 'after'.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Export stream started",
+                            content = {@Content(mediaType = "text/csv"), @Content(mediaType = "application/x-ndjson"),
+                                    @Content(mediaType = "application/gzip")}),
+                    @ApiResponse(responseCode = "400", description = "Invalid range, status or format",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @Parameter(description = "Created-at lower bound (inclusive), ISO-8601 local date-time", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Created-at upper bound (exclusive), ISO-8601 local date-time", required = true)
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Only export payments in these statuses (default: all)")
+            @RequestParam(required = false) Set<PaymentStatus> status,
+            @Parameter(description = "csv or ndjson")
+            @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "Compress the stream with gzip")
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @Parameter(description = "Resume after this payment ID")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Maximum number of rows to export")
+            @RequestParam(required = false) Long limit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Export range start must be before its end");
+        }
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("Export limit must be positive");
+        }
+        ExportFormat exportFormat = ExportFormat.from(format);
+        PaymentExportRequest request = new PaymentExportRequest(from, to,
+                status == null || status.isEmpty() ? EnumSet.noneOf(PaymentStatus.class) : EnumSet.copyOf(status),
+                exportFormat, gzip, after, limit);
+
+        String filename = "payments-" + from.toLocalDate() + "-" + to.toLocalDate() + "." + exportFormat.getFileExtension()
+                + (gzip ? ".gz" : "");
+        StreamingResponseBody body = outputStream -> exportService.export(request, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Rebalance payment shards",
+            description = "Moves every payment that is not on the shard its booking ID hashes to, e.g. after shards were added. Payments updated while being moved stay where they are and are picked up by the next run. With dryRun=true (the default) only the misplaced payments are counted.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Rebalancing completed",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ShardRebalanceReport.class))),
+                    @ApiResponse(responseCode = "400", description = "Sharding is disabled or a run is already in progress",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping("/shards/rebalance")
+    public ResponseEntity<ShardRebalanceReport> rebalanceShards(
+            @Parameter(description = "Only count misplaced payments")
+            @RequestParam(defaultValue = "true") boolean dryRun,
+            @Parameter(description = "Payments moved per batch (1-5000)")
+            @RequestParam(defaultValue = "500") int batchSize) {
+        if (batchSize <= 0 || batchSize > 5000) {
+            throw new IllegalArgumentException("Batch size must be between 1 and 5000");
+        }
+        return ResponseEntity.ok(shardRebalancer.rebalance(dryRun, batchSize));
+    }
+
+    @Operation(
+            summary = "Live payment statistics",
+            description = "Payment count and amount per status, and the payments that entered each status per minute over the last payment.stats.window-minutes. Served from in-memory counters that are updated on every status change and shared between replicas every flush interval, so no database query runs.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Statistics retrieved",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentStatsResponse.class)))
+            }
+    )
+    @GetMapping("/stats")
+    public ResponseEntity<PaymentStatsResponse> getStats() {
+        return ResponseEntity.ok(statsService.getStats());
+    }
+
+    @Operation(
+            summary = "Rebuild payment statistics",
+            description = "Recounts the per-status totals from the payments table on every shard and replaces the stored counters, e.g. after payments were changed directly in SQL. The per-minute windows are kept.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Statistics rebuilt",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentStatsResponse.class))),
+                    @ApiResponse(responseCode = "500", description = "Internal server error",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<PaymentStatsResponse> rebuildStats() {
+        return ResponseEntity.ok(statsService.rebuild());
+    }
+
+    @Operation(
+            summary = "Payment history",
+            description = "Every status change of the payment with the gateway details at the time, oldest first, from the payment_events log. In the default ASYNC mode the latest change may take a moment to appear.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Events retrieved (empty for an unknown payment)",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentEventResponse.class)))
+            }
+    )
+    @GetMapping("/{paymentId}/events")
+    public ResponseEntity<List<PaymentEventResponse>> getEvents(@PathVariable Long paymentId) {
+        return ResponseEntity.ok(eventRepository.findByPaymentIdOrderByOccurredAtAscIdAsc(paymentId).stream()
+                .map(event -> new PaymentEventResponse(event.getId(), event.getPaymentId(), event.getBookingId(),
+                        event.getTransactionId(), event.getFromStatus() != null ? event.getFromStatus().name() : null,
+                        event.getToStatus().name(), event.getAmount(), event.getGatewayResponse(),
+                        event.getOccurredAt()))
+                .toList());
+    }
+}
@@ -1,9 +1,14 @@
 package com.bookticket.payment_service.controller;
 
+import com.bookticket.payment_service.dto.BulkStatusRequest;
+import com.bookticket.payment_service.dto.BulkStatusResponse;
 import com.bookticket.payment_service.dto.PaymentResponse;
 import com.bookticket.payment_service.dto.CheckoutSessionRequest;
 import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.enums.PaymentStatus;
 import com.bookticket.payment_service.service.PaymentService;
+import com.bookticket.payment_service.service.PaymentStatusCache;
+import com.bookticket.payment_service.service.PollHintPolicy;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,9 +17,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/v1/internal/payments")
 @RequiredArgsConstructor
@@ -22,6 +33,8 @@ import org.springframework.web.bind.annotation.*;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentStatusCache statusCache;
+    private final PollHintPolicy pollHintPolicy;
 
     @Operation(
             summary = "Create Stripe Checkout Session",
@@ -50,10 +63,11 @@ public class PaymentController {
 
     @Operation(
             summary = "Verify Checkout Session",
-            description = "Verifies the status of a Stripe Checkout Session after the user has completed the payment flow. This is called by the Booking Service to confirm payment success or failure.",
+            description = "Verifies the status of a Stripe Checkout Session after the user has completed the payment flow. This is called by the Booking Service to confirm payment success or failure. Responses carry an ETag and poll hints (Retry-After, X-Poll-Interval-Ms, X-Poll-Action: stop once the payment is completed, failed or refunded); with a matching If-None-Match a failed or refunded payment is answered with 304 without calling Stripe.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Payment status verified successfully",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentResponse.class))),
+                    @ApiResponse(responseCode = "304", description = "Status unchanged since the ETag sent in If-None-Match"),
                     @ApiResponse(responseCode = "404", description = "Session ID not found",
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "500", description = "Internal server error or error communicating with Stripe",
@@ -69,17 +83,25 @@ public class PaymentController {
     @GetMapping("/checkout/verify/{sessionId}")
     public ResponseEntity<PaymentResponse> verifyCheckoutSession(
             @Parameter(description = "The session ID provided by Stripe", required = true)
-            @PathVariable String sessionId) {
+            @PathVariable String sessionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // A terminal payment cannot change any more: no need to ask Stripe or the database
+        Optional<PaymentStatusCache.Entry> cached = statusCache.get(sessionId);
+        if (cached.isPresent() && PaymentStatusCache.isTerminal(cached.get().status())
+                && cached.get().matches(ifNoneMatch)) {
+            return notModified(cached.get());
+        }
         PaymentResponse response = paymentService.verifyCheckoutSession(sessionId);
-        return ResponseEntity.ok(response);
+        return conditionalResponse(sessionId, response, ifNoneMatch);
     }
 
     @Operation(
             summary = "Get Payment Status",
-            description = "Retrieves the current status of a payment from the local database using the transaction/session ID.",
+            description = "Retrieves the current status of a payment from the local database using the transaction/session ID. Responses carry an ETag and poll hints; a matching If-None-Match is answered with 304 from the in-memory status cache without a database read.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Payment status retrieved successfully",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentResponse.class))),
+                    @ApiResponse(responseCode = "304", description = "Status unchanged since the ETag sent in If-None-Match"),
                     @ApiResponse(responseCode = "404", description = "Transaction ID not found",
                             content = @Content(mediaType = "application/json")),
                     @ApiResponse(responseCode = "500", description = "Internal server error",
@@ -95,8 +117,59 @@ public class PaymentController {
     @GetMapping("/status/{transactionId}")
     public ResponseEntity<PaymentResponse> getPaymentStatus(
             @Parameter(description = "The transaction/session ID of the payment", required = true)
-            @PathVariable String transactionId) {
+            @PathVariable String transactionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<PaymentStatusCache.Entry> cached = statusCache.get(transactionId);
+        if (cached.isPresent() && cached.get().matches(ifNoneMatch)) {
+            return notModified(cached.get());
+        }
         PaymentResponse response = paymentService.getPaymentStatus(transactionId);
-        return ResponseEntity.ok(response);
+        return conditionalResponse(transactionId, response, ifNoneMatch);
+    }
+
+    @Operation(
+            summary = "Get Payment Statuses",
+            description = "Retrieves the current status of up to 500 payments by transaction/session ID from the local database, with one query per shard. Payments are returned in request order; IDs without a payment are listed in notFound.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Payment statuses retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkStatusResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "No or too many transaction IDs",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping("/status/bulk")
+    public ResponseEntity<BulkStatusResponse> getPaymentStatuses(@Valid @RequestBody BulkStatusRequest request) {
+        List<PaymentResponse> found = paymentService.getPaymentStatuses(request.transactionIds());
+        return ResponseEntity.ok(BulkStatusResponse.of(request.transactionIds(), found));
+    }
+
+    /**
+     * 200 with ETag and poll hints, or 304 if the caller already has this version
+     */
+    private ResponseEntity<PaymentResponse> conditionalResponse(String transactionId, PaymentResponse response,
+                                                                String ifNoneMatch) {
+        Optional<PaymentStatusCache.Entry> entry = statusCache.get(transactionId)
+                .filter(cached -> cached.status().name().equals(response.paymentStatus()));
+        if (entry.isEmpty()) {
+            PaymentStatus status = Arrays.stream(PaymentStatus.values())
+                    .filter(candidate -> candidate.name().equals(response.paymentStatus()))
+                    .findFirst()
+                    .orElse(null);
+            return ResponseEntity.ok().headers(pollHintPolicy.headers(status, null)).body(response);
+        }
+        if (entry.get().matches(ifNoneMatch)) {
+            return notModified(entry.get());
+        }
+        return ResponseEntity.ok()
+                .headers(pollHintPolicy.headers(entry.get().status(), entry.get().createdAt()))
+                .eTag(entry.get().etag())
+                .body(response);
+    }
+
+    private ResponseEntity<PaymentResponse> notModified(PaymentStatusCache.Entry entry) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .headers(pollHintPolicy.headers(entry.status(), entry.createdAt()))
+                .eTag(entry.etag())
+                .build();
     }
 }
@@ -0,0 +1,89 @@
+package com.bookticket.payment_service.controller;
+
+import com.bookticket.payment_service.dto.BulkStatusRequest;
+import com.bookticket.payment_service.dto.BulkStatusResponse;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.exception.PaymentNotFoundException;
+import com.bookticket.payment_service.service.PaymentStatusCache;
+import com.bookticket.payment_service.service.PollHintPolicy;
+import com.bookticket.payment_service.service.ReactivePaymentStatusService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * The status endpoints for pollers on the non-blocking read path: the request thread is released while the
+ * status is read, and the response is written when it arrives
+ */
+@RestController
+@RequestMapping("/api/v1/internal/payments/reactive")
+@ConditionalOnProperty(prefix = "payment.reactive-status", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Tag(name = "Reactive Status Controller", description = "Non-blocking payment status reads backed by Redis")
+public class ReactiveStatusController {
+
+    private final ReactivePaymentStatusService statusService;
+    private final PollHintPolicy pollHintPolicy;
+
+    @Operation(
+            summary = "Get Payment Status (non-blocking)",
+            description = "Same response, ETag and poll hints as /status/{transactionId}, read from the shared Redis status cache and, on a miss, from the database. No request thread is held while waiting.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Payment status retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaymentResponse.class))),
+                    @ApiResponse(responseCode = "304", description = "Status unchanged since the ETag sent in If-None-Match"),
+                    @ApiResponse(responseCode = "404", description = "Transaction ID not found",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "429", description = "Too many database reads queued",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @GetMapping("/status/{transactionId}")
+    public Mono<ResponseEntity<PaymentResponse>> getPaymentStatus(
+            @Parameter(description = "The transaction/session ID of the payment", required = true)
+            @PathVariable String transactionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return statusService.status(transactionId)
+                .switchIfEmpty(Mono.error(() -> new PaymentNotFoundException(
+                        "Payment not found for transaction ID: " + transactionId)))
+                .map(snapshot -> {
+                    PaymentStatusCache.Entry entry = snapshot.entry();
+                    HttpHeaders headers = pollHintPolicy.headers(entry.status(), entry.createdAt());
+                    if (entry.matches(ifNoneMatch)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).eTag(entry.etag()).build();
+                    }
+                    return ResponseEntity.ok().headers(headers).eTag(entry.etag()).body(snapshot.toResponse());
+                });
+    }
+
+    @Operation(
+            summary = "Get Payment Statuses (non-blocking)",
+            description = "Same response as POST /status/bulk, read from the shared Redis status cache; only the IDs missing there are read from the database.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Payment statuses retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkStatusResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "No or too many transaction IDs",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "429", description = "Too many database reads queued",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping("/status/bulk")
+    public Mono<BulkStatusResponse> getPaymentStatuses(@Valid @RequestBody BulkStatusRequest request) {
+        return statusService.statuses(request.transactionIds())
+                .map(snapshots -> BulkStatusResponse.of(request.transactionIds(), snapshots.stream()
+                        .map(ReactivePaymentStatusService.StatusSnapshot::toResponse)
+                        .toList()));
+    }
+}
@@ -0,0 +1,99 @@
+package com.bookticket.payment_service.controller;
+
+import com.bookticket.payment_service.dto.RefundJobItemResponse;
+import com.bookticket.payment_service.dto.RefundJobRequest;
+import com.bookticket.payment_service.dto.RefundJobResponse;
+import com.bookticket.payment_service.enums.RefundItemStatus;
+import com.bookticket.payment_service.service.RefundJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/refunds")
+@RequiredArgsConstructor
+@Tag(name = "Refund Admin Controller", description = "Bulk refunds, e.g. for cancelled shows")
+public class RefundAdminController {
+
+    private static final int MAX_ITEMS_PAGE = 1000;
+
+    private final RefundJobService refundJobService;
+
+    @Operation(
+            summary = "Start a bulk refund",
+            description = "Creates a refund job for the COMPLETED payments of the given bookings (for a cancelled show, pass all of its booking IDs). The payments move to REFUND_PENDING and the job runs in the background; poll the job for progress.",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Refund job created",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RefundJobResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid request data provided",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping
+    public ResponseEntity<RefundJobResponse> createRefundJob(@Valid @RequestBody RefundJobRequest request) {
+        return ResponseEntity.accepted().body(refundJobService.createJob(request));
+    }
+
+    @Operation(
+            summary = "Get refund job progress",
+            description = "Returns the job status with succeeded, failed and pending counts, throughput and an estimated time to completion.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Refund job found",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RefundJobResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "Refund job not found",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @GetMapping("/{jobId}")
+    public ResponseEntity<RefundJobResponse> getRefundJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(refundJobService.getJob(jobId));
+    }
+
+    @Operation(
+            summary = "List refund job items",
+            description = "Lists the job's items in the given state, e.g. FAILED items with their last error.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Items listed"),
+                    @ApiResponse(responseCode = "404", description = "Refund job not found",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @GetMapping("/{jobId}/items")
+    public ResponseEntity<List<RefundJobItemResponse>> getRefundJobItems(
+            @PathVariable Long jobId,
+            @Parameter(description = "Item state: PENDING, SUCCEEDED, FAILED or SKIPPED")
+            @RequestParam(defaultValue = "FAILED") RefundItemStatus status,
+            @Parameter(description = "Maximum number of items to return (at most 1000)")
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > MAX_ITEMS_PAGE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_ITEMS_PAGE);
+        }
+        return ResponseEntity.ok(refundJobService.getItems(jobId, status, limit));
+    }
+
+    @Operation(
+            summary = "Cancel a refund job",
+            description = "Skips the items not yet attempted and returns their payments to COMPLETED. Refunds already sent are still recorded.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Refund job cancelled",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RefundJobResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Refund job already finished",
+                            content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "404", description = "Refund job not found",
+                            content = @Content(mediaType = "application/json"))
+            }
+    )
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<RefundJobResponse> cancelRefundJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(refundJobService.cancel(jobId));
+    }
+}
@@ -0,0 +1,17 @@
+package com.bookticket.payment_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request DTO for looking up the status of several payments at once by transaction/session ID
+ */
+public record BulkStatusRequest(
+        @NotEmpty(message = "At least one transaction ID is required")
+        @Size(max = BulkStatusRequest.MAX_IDS, message = "At most " + BulkStatusRequest.MAX_IDS + " transaction IDs per request")
+        List<String> transactionIds
+) {
+    public static final int MAX_IDS = 500;
+}
@@ -0,0 +1,33 @@
+package com.bookticket.payment_service.dto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statuses of the payments found, in request order, and the transaction IDs that matched no payment
+ */
+public record BulkStatusResponse(
+        List<PaymentResponse> payments,
+        List<String> notFound
+) {
+    /**
+     * Put the payments found, in any order, in the order of the requested IDs
+     */
+    public static BulkStatusResponse of(List<String> requested, List<PaymentResponse> found) {
+        Map<String, PaymentResponse> byId = new HashMap<>();
+        found.forEach(payment -> byId.put(payment.transactionId(), payment));
+        List<PaymentResponse> payments = new ArrayList<>(found.size());
+        List<String> notFound = new ArrayList<>();
+        for (String id : requested.stream().distinct().toList()) {
+            PaymentResponse payment = byId.get(id);
+            if (payment != null) {
+                payments.add(payment);
+            } else {
+                notFound.add(id);
+            }
+        }
+        return new BulkStatusResponse(payments, notFound);
+    }
+}
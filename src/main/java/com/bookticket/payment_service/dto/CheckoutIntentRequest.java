@@ -0,0 +1,28 @@
+package com.bookticket.payment_service.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Request DTO for an asynchronously created Checkout Session: the fields of CheckoutSessionRequest plus an
+ * optional URL that receives the CheckoutIntentResponse once the session is ready or has failed
+ */
+public record CheckoutIntentRequest(
+        @NotNull(message = "Booking ID is required")
+        Long bookingId,
+
+        @NotNull(message = "User ID is required")
+        Long userId,
+
+        @NotNull(message = "Amount is required")
+        @Min(value = 1, message = "Amount must be greater than 0")
+        Double amount,
+
+        String successUrl,  // Optional: Override default success URL
+        String cancelUrl,   // Optional: Override default cancel URL
+        String callbackUrl  // Optional: POSTed the result; its host must be in payment.async-checkout.callback-hosts
+) {
+    public CheckoutSessionRequest toSessionRequest() {
+        return new CheckoutSessionRequest(bookingId, userId, amount, successUrl, cancelUrl);
+    }
+}
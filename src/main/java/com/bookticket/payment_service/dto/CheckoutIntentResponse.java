@@ -0,0 +1,15 @@
+package com.bookticket.payment_service.dto;
+
+/**
+ * State of an asynchronously created Checkout Session, as returned on acceptance, polled and sent to the callback
+ */
+public record CheckoutIntentResponse(
+        Long paymentId,             // Local payment ID, known from the moment the checkout is accepted
+        Long bookingId,
+        String status,              // "accepted" (session being created), "pending" (ready to pay), "failed", ...
+        String sessionId,           // Gateway session ID once created
+        String paymentUrl,          // URL to redirect the user to once created
+        Long expiresAt,             // Unix timestamp when the session expires, when known
+        String message
+) {
+}
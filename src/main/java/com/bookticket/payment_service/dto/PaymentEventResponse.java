@@ -0,0 +1,16 @@
+package com.bookticket.payment_service.dto;
+
+import java.time.LocalDateTime;
+
+public record PaymentEventResponse(
+        Long eventId,
+        Long paymentId,
+        Long bookingId,
+        String transactionId,
+        String fromStatus,          // Null for a new payment
+        String toStatus,
+        Double amount,
+        String gatewayResponse,     // Gateway details at the time of the change
+        LocalDateTime occurredAt
+) {
+}
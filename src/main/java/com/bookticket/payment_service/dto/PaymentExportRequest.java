@@ -0,0 +1,21 @@
+package com.bookticket.payment_service.dto;
+
+import com.bookticket.payment_service.enums.ExportFormat;
+import com.bookticket.payment_service.enums.PaymentStatus;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Filter and keyset cursor for a payments export
+ */
+public record PaymentExportRequest(
+        LocalDateTime from,             // createdAt lower bound (inclusive)
+        LocalDateTime to,               // createdAt upper bound (exclusive)
+        Set<PaymentStatus> statuses,    // Empty means all statuses
+        ExportFormat format,
+        boolean gzip,
+        Long afterPaymentId,            // Resume cursor: last payment_id already received
+        Long limit                      // Optional cap on exported rows
+) {
+}
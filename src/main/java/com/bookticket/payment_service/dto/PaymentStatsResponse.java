@@ -0,0 +1,26 @@
+package com.bookticket.payment_service.dto;
+
+import com.bookticket.payment_service.enums.PaymentStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live payment counters, served from memory
+ */
+public record PaymentStatsResponse(
+        LocalDateTime refreshedAt,              // Last read of the shared counters; this instance's changes since are included
+        Map<PaymentStatus, StatusTotals> totals,
+        List<MinuteWindow> minutes              // Oldest first, minutes without transitions omitted
+) {
+
+    public record StatusTotals(long count, double amount) {
+    }
+
+    /**
+     * Payments that entered each status during one minute
+     */
+    public record MinuteWindow(LocalDateTime minuteStart, Map<PaymentStatus, Long> transitions) {
+    }
+}
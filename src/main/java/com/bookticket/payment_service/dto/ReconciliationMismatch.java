@@ -0,0 +1,15 @@
+package com.bookticket.payment_service.dto;
+
+/**
+ * One disagreement between a Stripe Checkout Session and the local payments table
+ */
+public record ReconciliationMismatch(
+        String type,                // "MISSING_LOCAL", "MISSING_STRIPE", "STATUS_MISMATCH"
+        String transactionId,       // Stripe Checkout Session ID
+        Long paymentId,
+        Long bookingId,
+        String localStatus,
+        String stripeStatus,        // "<session status>/<payment_status>" as reported by Stripe
+        boolean repaired
+) {
+}
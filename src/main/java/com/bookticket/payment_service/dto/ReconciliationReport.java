@@ -0,0 +1,23 @@
+package com.bookticket.payment_service.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Summary of a Stripe-vs-local reconciliation run
+ */
+public record ReconciliationReport(
+        Instant windowStart,
+        Instant windowEnd,
+        long stripeSessionsScanned,
+        long localPaymentsScanned,
+        long matched,
+        long mismatchCount,
+        long repaired,
+        long durationMs,
+        double itemsPerSecond,
+        int peakBufferedItems,      // Largest number of unmatched items held at once by the merge
+        List<ReconciliationMismatch> mismatches,
+        boolean mismatchesTruncated
+) {
+}
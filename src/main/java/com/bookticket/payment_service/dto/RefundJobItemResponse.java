@@ -0,0 +1,16 @@
+package com.bookticket.payment_service.dto;
+
+import java.time.LocalDateTime;
+
+public record RefundJobItemResponse(
+        Long itemId,
+        Long paymentId,
+        Long bookingId,
+        Double amount,
+        String status,
+        String refundId,
+        int attempts,
+        String lastError,
+        LocalDateTime updatedAt
+) {
+}
@@ -0,0 +1,19 @@
+package com.bookticket.payment_service.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.Set;
+
+/**
+ * Bulk refund of the COMPLETED payments of the given bookings, e.g. all bookings of a cancelled show
+ */
+public record RefundJobRequest(
+        @NotEmpty(message = "At least one booking ID is required")
+        @Size(max = 100000, message = "At most 100000 bookings per refund job")
+        Set<Long> bookingIds,
+
+        Long showId,        // Optional: the cancelled show, stored for reference
+        String reason
+) {
+}
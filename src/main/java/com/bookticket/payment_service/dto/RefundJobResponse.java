@@ -0,0 +1,24 @@
+package com.bookticket.payment_service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Refund job progress; throughput and ETA are derived from the items processed since the job started
+ */
+public record RefundJobResponse(
+        Long jobId,
+        String status,
+        Long showId,
+        String reason,
+        int totalItems,
+        int succeeded,
+        int failed,
+        long pending,
+        int skippedBookings,
+        LocalDateTime createdAt,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        double refundsPerSecond,
+        Long estimatedSecondsRemaining
+) {
+}
@@ -0,0 +1,19 @@
+package com.bookticket.payment_service.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a shard rebalancing run
+ */
+public record ShardRebalanceReport(
+        boolean dryRun,
+        int shardCount,
+        List<Long> paymentsScannedByShard,
+        long misplaced,                 // Payments not on the shard their booking ID hashes to
+        long moved,
+        long changedDuringMove,         // Updated while being copied; left in place for the next run
+        Map<String, Long> movesByRoute, // "from->to" shard pairs
+        long durationMs
+) {
+}
@@ -0,0 +1,19 @@
+package com.bookticket.payment_service.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One recorded slow request with its time per stage, as reported by the slowrequests actuator endpoint
+ */
+public record SlowRequest(
+        String requestId,
+        String traceId,
+        String method,
+        String path,
+        int status,
+        Instant startedAt,
+        double totalMs,
+        Map<String, Double> stagesMs    // Stage name -> milliseconds; "application" is the unattributed remainder
+) {
+}
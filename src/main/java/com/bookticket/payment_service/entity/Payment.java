@@ -1,14 +1,22 @@
 package com.bookticket.payment_service.entity;
 
 import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.observability.PaymentWriteEventListener;
+import com.bookticket.payment_service.service.PaymentTransitionListener;
+import com.bookticket.payment_service.service.PaymentStatusCacheListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
 @Table(name = "payments")
+@DynamicUpdate // A status change updates only the columns it changed; the history is in payment_events
+@EntityListeners({PaymentWriteEventListener.class, PaymentStatusCacheListener.class, PaymentTransitionListener.class})
 @Data
 @Builder
 @NoArgsConstructor
@@ -33,6 +41,12 @@ public class Payment extends Auditable{
     private PaymentStatus paymentStatus;
     @Column(columnDefinition = "TEXT")
     private String paymentGatewayResponse; // Raw response from Stripe/Razorpay
+    @Column(length = 1024)
+    private String paymentUrl; // Hosted checkout page, so an asynchronously created session can be handed out later
     @Column(nullable = false)
     private Long userId;
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private PaymentStatus storedStatus; // Status as last read or written, so PaymentTransitionListener sees transitions
 }
@@ -0,0 +1,42 @@
+package com.bookticket.payment_service.entity;
+
+import com.bookticket.payment_service.enums.PaymentStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One status change of a payment, appended by PaymentEventLog and never updated. Kept on shard 0 with the
+ * other unsharded tables.
+ */
+@Entity
+@Table(name = "payment_events", indexes = @Index(name = "idx_payment_events_payment_id", columnList = "payment_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    private Long id;
+    @Column(name = "payment_id", nullable = false)
+    private Long paymentId;
+    @Column(nullable = false)
+    private Long bookingId;
+    private String transactionId;
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus fromStatus;   // Null for a new payment
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus toStatus;
+    private Double amount;
+    @Column(columnDefinition = "TEXT")
+    private String gatewayResponse;     // Gateway details at the time of the change
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,42 @@
+package com.bookticket.payment_service.entity;
+
+import com.bookticket.payment_service.enums.PaymentStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Payments that entered one status during one minute
+ */
+@Entity
+@Table(name = "payment_stats_minutes")
+@IdClass(PaymentStatsMinute.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentStatsMinute {
+    @Id
+    private LocalDateTime minuteStart;
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_status")
+    private PaymentStatus status;
+    @Column(nullable = false)
+    private long transitions;
+    @Column(nullable = false)
+    private long amountCents;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDateTime minuteStart;
+        private PaymentStatus status;
+    }
+}
@@ -0,0 +1,31 @@
+package com.bookticket.payment_service.entity;
+
+import com.bookticket.payment_service.enums.PaymentStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running count and amount of the payments in one status, maintained incrementally by PaymentStatsService
+ */
+@Entity
+@Table(name = "payment_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentStatsTotal {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_status")
+    private PaymentStatus status;
+    @Column(nullable = false)
+    private long paymentCount;
+    @Column(nullable = false)
+    private long amountCents;           // Sum of amounts in minor units, exact under concurrent increments
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,41 @@
+package com.bookticket.payment_service.entity;
+
+import com.bookticket.payment_service.enums.RefundJobStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A bulk refund, e.g. for a cancelled show. Progress counters are updated at every checkpoint.
+ */
+@Entity
+@Table(name = "refund_jobs")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefundJob extends Auditable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "refund_job_id")
+    private Long id;
+    private Long showId;                // Reference only; bookings are resolved by the caller
+    private String reason;
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RefundJobStatus status;
+    private int totalItems;
+    private int succeeded;
+    private int failed;
+    private int skippedBookings;        // Requested bookings without a COMPLETED payment
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String leaseOwner;          // Instance currently running the job
+    private LocalDateTime leaseExpiresAt;
+}
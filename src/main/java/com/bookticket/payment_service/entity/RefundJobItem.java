@@ -0,0 +1,44 @@
+package com.bookticket.payment_service.entity;
+
+import com.bookticket.payment_service.enums.RefundItemStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One payment to refund within a refund job
+ */
+@Entity
+@Table(name = "refund_job_items", indexes = {
+        @Index(name = "idx_refund_job_items_job_status", columnList = "refund_job_id, status, refund_job_item_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefundJobItem {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "refund_job_item_id")
+    private Long id;
+    @Column(name = "refund_job_id", nullable = false)
+    private Long jobId;
+    @Column(nullable = false)
+    private Long paymentId;
+    @Column(nullable = false)
+    private Long bookingId;
+    @Column(nullable = false)
+    private Double amount;
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private RefundItemStatus status;
+    private String refundId;            // Gateway refund reference
+    private int attempts;
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+    private LocalDateTime updatedAt;
+}
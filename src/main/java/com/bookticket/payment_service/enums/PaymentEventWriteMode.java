@@ -0,0 +1,9 @@
+package com.bookticket.payment_service.enums;
+
+/**
+ * How payment events reach the payment_events table
+ */
+public enum PaymentEventWriteMode {
+    ASYNC,  // Queued after commit and written in batches by a background writer; lost if the instance dies first
+    SYNC    // Written before the request returns, in the payment's own transaction where possible
+}
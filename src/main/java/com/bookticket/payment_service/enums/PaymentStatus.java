@@ -3,5 +3,7 @@ package com.bookticket.payment_service.enums;
 public enum PaymentStatus {
     PENDING,
     COMPLETED,
-    FAILED
+    FAILED,
+    REFUND_PENDING,     // COMPLETED payment queued in a refund job
+    REFUNDED
 }
@@ -0,0 +1,8 @@
+package com.bookticket.payment_service.enums;
+
+public enum RefundItemStatus {
+    PENDING,
+    SUCCEEDED,
+    FAILED,
+    SKIPPED     // Job was cancelled before the refund was attempted
+}
@@ -0,0 +1,13 @@
+package com.bookticket.payment_service.enums;
+
+public enum RefundJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    COMPLETED_WITH_ERRORS,
+    CANCELLED;
+
+    public boolean isActive() {
+        return this == PENDING || this == RUNNING;
+    }
+}
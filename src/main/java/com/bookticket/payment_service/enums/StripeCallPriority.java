@@ -0,0 +1,13 @@
+package com.bookticket.payment_service.enums;
+
+/**
+ * Priority classes for the shared Stripe request budget, highest first.
+ * Lower classes must leave a larger part of the bucket untouched, so background work backs off first.
+ */
+public enum StripeCallPriority {
+    VERIFY,
+    CREATE,
+    EXPIRE,
+    REFUND,
+    RECONCILE
+}
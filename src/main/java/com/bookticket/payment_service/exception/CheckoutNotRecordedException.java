@@ -0,0 +1,21 @@
+package com.bookticket.payment_service.exception;
+
+/**
+ * Thrown when the gateway created a checkout session but its payment could not be stored. The gateway did its
+ * part, so this must not fail over to another gateway (which would open a second session for the booking).
+ */
+public class CheckoutNotRecordedException extends PaymentProcessingException {
+    private final String sessionId;
+
+    public CheckoutNotRecordedException(String sessionId, Throwable cause) {
+        super("Checkout session " + sessionId + " was created but could not be recorded. Please try again.", cause);
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * The gateway session that has no payment row
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+}
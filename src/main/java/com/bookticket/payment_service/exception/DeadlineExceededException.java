@@ -0,0 +1,24 @@
+package com.bookticket.payment_service.exception;
+
+/**
+ * Thrown when the caller's deadline (X-Request-Deadline) has passed, so the remaining work is abandoned
+ */
+public class DeadlineExceededException extends RuntimeException {
+    private final String stage;
+
+    public DeadlineExceededException(String stage) {
+        this(stage, null);
+    }
+
+    public DeadlineExceededException(String stage, Throwable cause) {
+        super("Request deadline exceeded before " + stage, cause);
+        this.stage = stage;
+    }
+
+    /**
+     * The step that was skipped or cut short
+     */
+    public String getStage() {
+        return stage;
+    }
+}
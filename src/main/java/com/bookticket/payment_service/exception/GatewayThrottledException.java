@@ -0,0 +1,17 @@
+package com.bookticket.payment_service.exception;
+
+/**
+ * Thrown when a gateway call could not get a share of the outbound rate budget in time
+ */
+public class GatewayThrottledException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public GatewayThrottledException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,7 +1,10 @@
 package com.bookticket.payment_service.exception;
 
 import com.bookticket.payment_service.dto.PaymentResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -9,9 +12,12 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalExceptionHandler {
 
+    private final MeterRegistry meterRegistry;
+
     @ExceptionHandler(PaymentNotFoundException.class)
     public ResponseEntity<PaymentResponse> handlePaymentNotFoundException(PaymentNotFoundException ex) {
         log.error("Payment not found: {}", ex.getMessage());
@@ -40,6 +46,37 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    @ExceptionHandler(GatewayThrottledException.class)
+    public ResponseEntity<PaymentResponse> handleGatewayThrottledException(GatewayThrottledException ex) {
+        log.warn("Gateway call throttled: {}", ex.getMessage());
+        PaymentResponse response = new PaymentResponse(
+                null,
+                null,
+                "THROTTLED",
+                null,
+                null,
+                ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<PaymentResponse> handleDeadlineExceededException(DeadlineExceededException ex) {
+        log.warn("Abandoned request: {}", ex.getMessage());
+        meterRegistry.counter("payment.deadline.abandoned", "stage", ex.getStage()).increment();
+        PaymentResponse response = new PaymentResponse(
+                null,
+                null,
+                "DEADLINE_EXCEEDED",
+                null,
+                null,
+                ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<PaymentResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
         log.error("Invalid argument: {}", ex.getMessage());
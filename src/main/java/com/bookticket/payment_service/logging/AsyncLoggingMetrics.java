@@ -0,0 +1,37 @@
+package com.bookticket.payment_service.logging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exports queue depth and dropped-event counts of the async log appenders
+ */
+@Component
+public class AsyncLoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        MeteredAsyncAppender.stats().forEach((name, stats) -> {
+            Gauge.builder("logging.async.queue.depth", stats, MeteredAsyncAppender.Stats::queueDepth)
+                    .tag("appender", name)
+                    .description("Events waiting in the async appender queue")
+                    .register(registry);
+            Gauge.builder("logging.async.queue.remaining", stats, MeteredAsyncAppender.Stats::remainingCapacity)
+                    .tag("appender", name)
+                    .register(registry);
+            FunctionCounter.builder("logging.async.dropped", stats.discarded, adder -> adder.sum())
+                    .tags("appender", name, "reason", "threshold")
+                    .description("Events dropped by the async appender")
+                    .register(registry);
+            FunctionCounter.builder("logging.async.dropped", stats.rejected, adder -> adder.sum())
+                    .tags("appender", name, "reason", "queue_full")
+                    .register(registry);
+        });
+        FunctionCounter.builder("logging.sampled.out", InfoSamplingTurboFilter.SAMPLED_OUT, adder -> adder.sum())
+                .description("INFO events skipped by log sampling")
+                .register(registry);
+    }
+}
@@ -0,0 +1,57 @@
+package com.bookticket.payment_service.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps one in {@code rate} INFO events from the configured logger prefixes.
+ *
+ * Runs as a turbo filter, so sampled-out events are rejected before a logging event is even created.
+ * WARN and ERROR are never sampled. A rate of 1 (the default) disables sampling.
+ */
+public class InfoSamplingTurboFilter extends TurboFilter {
+
+    static final LongAdder SAMPLED_OUT = new LongAdder();
+
+    private int rate = 1;
+    private String[] loggerPrefixes = new String[0];
+
+    public void setRate(int rate) {
+        this.rate = Math.max(1, rate);
+    }
+
+    public void setLoggers(String loggers) {
+        this.loggerPrefixes = Arrays.stream(loggers.split(","))
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (rate == 1 || level != Level.INFO || !matches(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (ThreadLocalRandom.current().nextInt(rate) == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        SAMPLED_OUT.increment();
+        return FilterReply.DENY;
+    }
+
+    private boolean matches(String loggerName) {
+        for (String prefix : loggerPrefixes) {
+            if (loggerName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package com.bookticket.payment_service.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AsyncAppender that counts what it drops and exposes its queue to {@link AsyncLoggingMetrics}.
+ *
+ * Events at or below {@code discardLevel} are dropped once the remaining queue capacity falls under the
+ * discarding threshold; with {@code neverBlock} every level is dropped instead of blocking when the queue is full.
+ * Stats are kept per appender name so they survive a logging reconfiguration.
+ */
+public class MeteredAsyncAppender extends AsyncAppender {
+
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+
+    private Level discardLevel = Level.INFO;
+    private Stats stats;
+
+    public void setDiscardLevel(String discardLevel) {
+        this.discardLevel = Level.toLevel(discardLevel, Level.INFO);
+    }
+
+    @Override
+    public void start() {
+        stats = STATS.computeIfAbsent(getName(), name -> new Stats());
+        stats.appender = this;
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (stats != null && stats.appender == this) {
+            stats.appender = null;
+        }
+    }
+
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        return event.getLevel().toInt() <= discardLevel.toInt();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (isQueueBelowDiscardingThreshold() && isDiscardable(event)) {
+            stats.discarded.increment();
+            return;
+        }
+        if (isNeverBlock() && getRemainingCapacity() == 0) {
+            stats.rejected.increment();
+            return;
+        }
+        super.append(event);
+    }
+
+    static Map<String, Stats> stats() {
+        return STATS;
+    }
+
+    static final class Stats {
+        final LongAdder discarded = new LongAdder();    // Dropped by level under the discarding threshold
+        final LongAdder rejected = new LongAdder();     // Dropped because the queue was full and neverBlock is set
+        volatile MeteredAsyncAppender appender;
+
+        int queueDepth() {
+            MeteredAsyncAppender current = appender;
+            return current != null ? current.getNumberOfElementsInQueue() : 0;
+        }
+
+        int remainingCapacity() {
+            MeteredAsyncAppender current = appender;
+            return current != null ? current.getRemainingCapacity() : 0;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.bookticket.payment_service.observability;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning one run of the expired session sweep
+ */
+@Name("com.bookticket.payment.ExpirySweep")
+@Label("Expiry Sweep")
+@Category({"BookTicket", "Payment"})
+@Description("One run of the scheduled sweep that expires stale checkout sessions")
+@StackTrace(false)
+public class ExpirySweepEvent extends Event {
+
+    @Label("Rows Scanned")
+    public int scanned;
+
+    @Label("Sessions Expired")
+    public int expired;
+
+    @Label("Errors")
+    public int errors;
+
+    @Label("Stopped By Rate Governor")
+    public boolean throttled;
+}
@@ -0,0 +1,125 @@
+package com.bookticket.payment_service.observability;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/jfr: starts and stops a flight recording with the JDK "default" settings plus the payment events
+ * from jfr/payments.jfc. Recordings are written to the temp directory.
+ */
+@Component
+@Endpoint(id = "jfr")
+@Slf4j
+public class JfrRecordingEndpoint {
+
+    private static final Duration DEFAULT_DURATION = Duration.ofMinutes(5);
+    private static final Duration MAX_DURATION = Duration.ofMinutes(30);   // Bounds the overhead and the file size
+
+    private Recording recording;
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("name", recording.getName());
+        status.put("state", recording.getState().name());
+        status.put("startTime", recording.getStartTime());
+        status.put("duration", recording.getDuration());
+        status.put("destination", recording.getDestination() != null ? recording.getDestination().toString() : null);
+        return status;
+    }
+
+    /**
+     * Start a recording; it stops by itself after durationSeconds (default 300, at most 1800) and is dumped to its
+     * destination
+     */
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable Long durationSeconds) {
+        Duration duration = durationSeconds != null ? Duration.ofSeconds(durationSeconds) : DEFAULT_DURATION;
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(MAX_DURATION) > 0) {
+            throw new InvalidEndpointRequestException(
+                    "durationSeconds must be between 1 and " + MAX_DURATION.toSeconds(), "Invalid durationSeconds");
+        }
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            // Only one recording at a time; report the running one
+            return status();
+        }
+        Map<String, String> settings = new HashMap<>(loadConfiguration("default").getSettings());
+        settings.putAll(loadPaymentConfiguration().getSettings());
+
+        String name = "payments-" + Instant.now().getEpochSecond();
+        try {
+            Path destination = Files.createTempFile(name + "-", ".jfr");
+            Recording newRecording = new Recording(settings);
+            newRecording.setName(name);
+            newRecording.setToDisk(true);
+            newRecording.setDuration(duration);
+            newRecording.setDestination(destination);
+            newRecording.start();
+            if (recording != null) {
+                recording.close();
+            }
+            recording = newRecording;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Started JFR recording {} to {}", name, recording.getDestination());
+        return status();
+    }
+
+    /**
+     * Stop the running recording early; the file is written to its destination
+     */
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("Stopped JFR recording {}, written to {}", recording.getName(), recording.getDestination());
+        }
+        return status();
+    }
+
+    private Configuration loadConfiguration(String name) {
+        try {
+            return Configuration.getConfiguration(name);
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Cannot load JFR configuration " + name, e);
+        }
+    }
+
+    private Configuration loadPaymentConfiguration() {
+        try (Reader reader = new InputStreamReader(
+                new ClassPathResource("jfr/payments.jfc").getInputStream(), StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Cannot load jfr/payments.jfc", e);
+        }
+    }
+}
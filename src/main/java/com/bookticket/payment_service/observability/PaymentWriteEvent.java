@@ -0,0 +1,35 @@
+package com.bookticket.payment_service.observability;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one INSERT, UPDATE or DELETE of a payments row, from the JPA callback before the
+ * statement to the one after it
+ */
+@Name("com.bookticket.payment.PaymentWrite")
+@Label("Payment Write")
+@Category({"BookTicket", "Payment"})
+@Description("A write of a payments row through JPA")
+@StackTrace(false)
+public class PaymentWriteEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Payment ID")
+    long paymentId;
+
+    @Label("Booking ID")
+    long bookingId;
+
+    @Label("Session ID")
+    String sessionId;
+
+    @Label("Payment Status")
+    String paymentStatus;
+}
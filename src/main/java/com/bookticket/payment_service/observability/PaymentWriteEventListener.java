@@ -0,0 +1,72 @@
+package com.bookticket.payment_service.observability;
+
+import com.bookticket.payment_service.entity.Payment;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Emits a PaymentWriteEvent per payments row write. The pre callback begins the event and the post callback
+ * for the same entity instance commits it; both run on the flushing thread.
+ */
+public class PaymentWriteEventListener {
+
+    // A write that fails between the callbacks leaves its event behind; cap what can pile up
+    private static final int MAX_OPEN_EVENTS = 256;
+
+    private static final ThreadLocal<Map<Object, PaymentWriteEvent>> OPEN_EVENTS =
+            ThreadLocal.withInitial(IdentityHashMap::new);
+
+    @PrePersist
+    void prePersist(Payment payment) {
+        begin(payment, "insert");
+    }
+
+    @PreUpdate
+    void preUpdate(Payment payment) {
+        begin(payment, "update");
+    }
+
+    @PreRemove
+    void preRemove(Payment payment) {
+        begin(payment, "delete");
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void afterWrite(Payment payment) {
+        PaymentWriteEvent event = OPEN_EVENTS.get().remove(payment);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.paymentId = payment.getId() != null ? payment.getId() : 0;
+            event.bookingId = payment.getBookingId() != null ? payment.getBookingId() : 0;
+            event.sessionId = payment.getTransactionId();
+            event.paymentStatus = payment.getPaymentStatus() != null ? payment.getPaymentStatus().name() : null;
+            event.commit();
+        }
+    }
+
+    private void begin(Payment payment, String operation) {
+        PaymentWriteEvent event = new PaymentWriteEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        Map<Object, PaymentWriteEvent> openEvents = OPEN_EVENTS.get();
+        if (openEvents.size() >= MAX_OPEN_EVENTS) {
+            openEvents.clear();
+        }
+        event.operation = operation;
+        event.begin();
+        openEvents.put(payment, event);
+    }
+}
@@ -0,0 +1,130 @@
+package com.bookticket.payment_service.observability;
+
+import java.util.Locale;
+
+/**
+ * Per-request stage timing, bound to the request thread by RequestIdFilter.
+ *
+ * Instrumented layers add elapsed nanos to a stage with {@link #record}; outside a request (scheduled jobs,
+ * the reconciliation run) there is no timeline and recording is a no-op. Only a ThreadLocal lookup and an
+ * array add per call, so it can stay on in production.
+ */
+public final class RequestTimeline {
+
+    public enum Stage {
+        FILTERS,
+        DB_CONNECTION,
+        DB_QUERY,
+        DB_FLUSH,
+        STRIPE_QUEUE,
+        STRIPE,
+        SERIALIZATION,
+        APPLICATION;
+
+        private final String key = name().toLowerCase(Locale.ROOT);
+
+        public String key() {
+            return key;
+        }
+    }
+
+    private static final ThreadLocal<RequestTimeline> CURRENT = new ThreadLocal<>();
+
+    private final String requestId;
+    private final String method;
+    private final String path;
+    private final long startEpochMillis;
+    private final long startNanos;
+    private final long[] stageNanos = new long[Stage.values().length];
+    private String traceId;
+    private long serializationStartNanos;
+
+    private RequestTimeline(String requestId, String method, String path) {
+        this.requestId = requestId;
+        this.method = method;
+        this.path = path;
+        this.startEpochMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    public static RequestTimeline begin(String requestId, String method, String path) {
+        RequestTimeline timeline = new RequestTimeline(requestId, method, path);
+        CURRENT.set(timeline);
+        return timeline;
+    }
+
+    public static RequestTimeline current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static void record(Stage stage, long nanos) {
+        RequestTimeline timeline = CURRENT.get();
+        if (timeline != null) {
+            timeline.stageNanos[stage.ordinal()] += nanos;
+        }
+    }
+
+    /**
+     * Everything between the start of the filter chain and the handler is filter time
+     */
+    void markHandlerStart(String traceId) {
+        if (stageNanos[Stage.FILTERS.ordinal()] == 0) {
+            stageNanos[Stage.FILTERS.ordinal()] = System.nanoTime() - startNanos;
+        }
+        this.traceId = traceId;
+    }
+
+    void markSerializationStart() {
+        serializationStartNanos = System.nanoTime();
+    }
+
+    void markSerializationEnd() {
+        if (serializationStartNanos != 0) {
+            stageNanos[Stage.SERIALIZATION.ordinal()] += System.nanoTime() - serializationStartNanos;
+            serializationStartNanos = 0;
+        }
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    String getRequestId() {
+        return requestId;
+    }
+
+    String getTraceId() {
+        return traceId;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    /**
+     * Copy of the stage totals, with the unattributed remainder of totalNanos as APPLICATION
+     */
+    long[] stageNanos(long totalNanos) {
+        long[] copy = stageNanos.clone();
+        long attributed = 0;
+        for (Stage stage : Stage.values()) {
+            if (stage != Stage.APPLICATION) {
+                attributed += copy[stage.ordinal()];
+            }
+        }
+        copy[Stage.APPLICATION.ordinal()] = Math.max(0, totalNanos - attributed);
+        return copy;
+    }
+}
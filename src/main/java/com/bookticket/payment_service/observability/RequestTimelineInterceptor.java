@@ -0,0 +1,41 @@
+package com.bookticket.payment_service.observability;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Closes the filter stage when the handler is reached and the serialization stage once the body is written
+ */
+public class RequestTimelineInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestTimeline timeline = RequestTimeline.current();
+        if (timeline != null) {
+            // The tracing observation is open here, so the trace ID is in the MDC
+            timeline.markHandlerStart(MDC.get("traceId"));
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        RequestTimeline timeline = RequestTimeline.current();
+        if (timeline != null) {
+            timeline.markSerializationEnd();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RequestTimeline timeline = RequestTimeline.current();
+        if (timeline != null) {
+            timeline.markSerializationEnd();
+        }
+    }
+}
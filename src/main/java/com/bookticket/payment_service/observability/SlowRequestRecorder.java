@@ -0,0 +1,124 @@
+package com.bookticket.payment_service.observability;
+
+import com.bookticket.payment_service.configuration.SlowRequestProperties;
+import com.bookticket.payment_service.dto.SlowRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the N slowest requests of the current and the previous window.
+ *
+ * Each window is a bounded min-heap. Once a window is full, its fastest kept duration is published as a
+ * volatile floor, so the common case (a request faster than all of them) returns without taking the lock.
+ */
+@Component
+public class SlowRequestRecorder {
+
+    private final SlowRequestProperties properties;
+    private final long minDurationNanos;
+    private final long windowNanos;
+
+    private volatile Window current;
+    private Window previous;
+
+    public SlowRequestRecorder(SlowRequestProperties properties) {
+        this.properties = properties;
+        this.minDurationNanos = properties.getMinDuration().toNanos();
+        this.windowNanos = properties.getWindow().toNanos();
+        this.current = new Window(System.nanoTime());
+        this.previous = new Window(System.nanoTime() - windowNanos);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public void record(RequestTimeline timeline, int status) {
+        long totalNanos = timeline.elapsedNanos();
+        if (totalNanos < minDurationNanos) {
+            return;
+        }
+        Window window = current;
+        long now = System.nanoTime();
+        if (now - window.startNanos < windowNanos && totalNanos <= window.floorNanos) {
+            return;
+        }
+        Entry entry = new Entry(timeline, status, totalNanos, timeline.stageNanos(totalNanos));
+        synchronized (this) {
+            rollIfExpired(now);
+            current.offer(entry, properties.getCapacity());
+        }
+    }
+
+    /**
+     * Slowest requests of the current and previous window, slowest first
+     */
+    public synchronized List<SlowRequest> snapshot() {
+        rollIfExpired(System.nanoTime());
+        List<Entry> entries = new ArrayList<>(current.entries);
+        entries.addAll(previous.entries);
+        entries.sort(Comparator.comparingLong(Entry::totalNanos).reversed());
+        return entries.stream()
+                .limit(properties.getCapacity())
+                .map(Entry::toSlowRequest)
+                .toList();
+    }
+
+    public synchronized void clear() {
+        current = new Window(System.nanoTime());
+        previous = new Window(System.nanoTime() - windowNanos);
+    }
+
+    private void rollIfExpired(long now) {
+        if (now - current.startNanos >= windowNanos) {
+            // A gap longer than two windows leaves nothing worth keeping
+            previous = now - current.startNanos >= 2 * windowNanos ? new Window(now - windowNanos) : current;
+            current = new Window(now);
+        }
+    }
+
+    private static final class Window {
+        private final long startNanos;
+        private final PriorityQueue<Entry> entries = new PriorityQueue<>(Comparator.comparingLong(Entry::totalNanos));
+        private volatile long floorNanos = -1;
+
+        private Window(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        private void offer(Entry entry, int capacity) {
+            if (entries.size() < capacity) {
+                entries.add(entry);
+            } else if (entry.totalNanos() > entries.peek().totalNanos()) {
+                entries.poll();
+                entries.add(entry);
+            }
+            if (entries.size() >= capacity) {
+                floorNanos = entries.peek().totalNanos();
+            }
+        }
+    }
+
+    private record Entry(RequestTimeline timeline, int status, long totalNanos, long[] stageNanos) {
+
+        private SlowRequest toSlowRequest() {
+            Map<String, Double> stages = new LinkedHashMap<>();
+            for (RequestTimeline.Stage stage : RequestTimeline.Stage.values()) {
+                long nanos = stageNanos[stage.ordinal()];
+                if (nanos > 0) {
+                    stages.put(stage.key(), nanos / 1_000_000.0);
+                }
+            }
+            return new SlowRequest(timeline.getRequestId(), timeline.getTraceId(), timeline.getMethod(),
+                    timeline.getPath(), status, Instant.ofEpochMilli(timeline.getStartEpochMillis()),
+                    totalNanos / 1_000_000.0, stages);
+        }
+    }
+}
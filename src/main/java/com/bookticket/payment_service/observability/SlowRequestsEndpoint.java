@@ -0,0 +1,31 @@
+package com.bookticket.payment_service.observability;
+
+import com.bookticket.payment_service.dto.SlowRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/slowrequests: the slowest recent requests with their stage breakdown
+ */
+@Component
+@Endpoint(id = "slowrequests")
+@RequiredArgsConstructor
+public class SlowRequestsEndpoint {
+
+    private final SlowRequestRecorder recorder;
+
+    @ReadOperation
+    public List<SlowRequest> slowRequests() {
+        return recorder.snapshot();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        recorder.clear();
+    }
+}
@@ -0,0 +1,88 @@
+package com.bookticket.payment_service.observability;
+
+import com.stripe.exception.StripeException;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event around one Stripe Checkout Session call. When the event type is disabled, begin/end/commit
+ * reduce to an isEnabled() check the JIT folds away.
+ */
+@Name("com.bookticket.payment.StripeCall")
+@Label("Stripe Call")
+@Category({"BookTicket", "Payment"})
+@Description("A Stripe Checkout Session API call made by the payment service")
+@StackTrace(false)
+public class StripeCallEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Booking ID")
+    long bookingId;
+
+    @Label("Session ID")
+    String sessionId;
+
+    @Label("Session Status")
+    String sessionStatus;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Stripe Error Type")
+    String errorType;
+
+    @Label("Stripe Error Code")
+    String errorCode;
+
+    @Label("HTTP Status")
+    int httpStatus;
+
+    public static StripeCallEvent begin(String operation, Long bookingId, String sessionId) {
+        StripeCallEvent event = new StripeCallEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.bookingId = bookingId != null ? bookingId : 0;
+            event.sessionId = sessionId;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void succeed(Long bookingId, String sessionId, String sessionStatus) {
+        if (!isEnabled()) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            if (bookingId != null) {
+                this.bookingId = bookingId;
+            }
+            this.sessionId = sessionId;
+            this.sessionStatus = sessionStatus;
+            this.outcome = "success";
+            commit();
+        }
+    }
+
+    public void fail(Exception exception) {
+        if (!isEnabled()) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.outcome = "error";
+            this.errorType = exception.getClass().getSimpleName();
+            if (exception instanceof StripeException stripeException) {
+                this.errorCode = stripeException.getCode();
+                this.httpStatus = stripeException.getStatusCode() != null ? stripeException.getStatusCode() : 0;
+            }
+            commit();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.bookticket.payment_service.observability;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Adds Hibernate's JDBC and flush time to the current request timeline.
+ * Registered for every session through hibernate.session.events.auto.
+ */
+public class TimelineSessionEventListener implements SessionEventListener {
+
+    private long connectionStartNanos;
+    private long statementStartNanos;
+    private long flushStartNanos;
+    private boolean flushing;
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        connectionStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        RequestTimeline.record(RequestTimeline.Stage.DB_CONNECTION, System.nanoTime() - connectionStartNanos);
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        // Statements issued by a flush are part of the flush time
+        if (!flushing) {
+            RequestTimeline.record(RequestTimeline.Stage.DB_QUERY, System.nanoTime() - statementStartNanos);
+        }
+    }
+
+    @Override
+    public void flushStart() {
+        flushing = true;
+        flushStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        flushing = false;
+        RequestTimeline.record(RequestTimeline.Stage.DB_FLUSH, System.nanoTime() - flushStartNanos);
+    }
+}
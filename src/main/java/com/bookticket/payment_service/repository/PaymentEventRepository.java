@@ -0,0 +1,11 @@
+package com.bookticket.payment_service.repository;
+
+import com.bookticket.payment_service.entity.PaymentEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface PaymentEventRepository extends JpaRepository<PaymentEvent, Long> {
+
+    List<PaymentEvent> findByPaymentIdOrderByOccurredAtAscIdAsc(Long paymentId);
+}
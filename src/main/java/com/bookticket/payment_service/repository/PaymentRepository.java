@@ -4,12 +4,31 @@ import com.bookticket.payment_service.entity.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.bookticket.payment_service.enums.PaymentStatus;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByTransactionId(String transactionId);
+    List<Payment> findByTransactionIdIn(Collection<String> transactionIds);
     Optional<Payment> findByBookingId(Long bookingId);
     List<Payment> findByPaymentStatus(PaymentStatus status);
+    List<Payment> findByBookingIdInAndPaymentStatus(Collection<Long> bookingIds, PaymentStatus status);
+
+    /**
+     * Count and amount per status, for rebuilding the statistics counters
+     */
+    @Query("select p.paymentStatus as status, count(p) as payments, coalesce(sum(p.amount), 0) as amount " +
+            "from Payment p group by p.paymentStatus")
+    List<StatusSummary> summarizeByStatus();
+
+    interface StatusSummary {
+        PaymentStatus getStatus();
+
+        long getPayments();
+
+        double getAmount();
+    }
 }
@@ -0,0 +1,29 @@
+package com.bookticket.payment_service.repository;
+
+import com.bookticket.payment_service.entity.PaymentStatsMinute;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PaymentStatsMinuteRepository extends JpaRepository<PaymentStatsMinute, PaymentStatsMinute.Key> {
+
+    List<PaymentStatsMinute> findByMinuteStartGreaterThanEqual(LocalDateTime from);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO payment_stats_minutes (minute_start, payment_status, transitions, amount_cents) " +
+            "VALUES (:minuteStart, :status, :transitions, :amountCents) ON CONFLICT (minute_start, payment_status) DO UPDATE SET " +
+            "transitions = payment_stats_minutes.transitions + EXCLUDED.transitions, " +
+            "amount_cents = payment_stats_minutes.amount_cents + EXCLUDED.amount_cents")
+    int addDelta(@Param("minuteStart") LocalDateTime minuteStart,
+                 @Param("status") String status,
+                 @Param("transitions") long transitions,
+                 @Param("amountCents") long amountCents);
+
+    @Modifying
+    @Query("delete from PaymentStatsMinute m where m.minuteStart < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
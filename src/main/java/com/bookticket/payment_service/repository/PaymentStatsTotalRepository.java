@@ -0,0 +1,26 @@
+package com.bookticket.payment_service.repository;
+
+import com.bookticket.payment_service.entity.PaymentStatsTotal;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface PaymentStatsTotalRepository extends JpaRepository<PaymentStatsTotal, PaymentStatus> {
+
+    /**
+     * Add a delta in place, so every instance can flush its own counts without reading first
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO payment_stats (payment_status, payment_count, amount_cents, updated_at) " +
+            "VALUES (:status, :count, :amountCents, :now) ON CONFLICT (payment_status) DO UPDATE SET " +
+            "payment_count = payment_stats.payment_count + EXCLUDED.payment_count, " +
+            "amount_cents = payment_stats.amount_cents + EXCLUDED.amount_cents, updated_at = EXCLUDED.updated_at")
+    int addDelta(@Param("status") String status,
+                 @Param("count") long count,
+                 @Param("amountCents") long amountCents,
+                 @Param("now") LocalDateTime now);
+}
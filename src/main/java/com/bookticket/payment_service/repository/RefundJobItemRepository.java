@@ -0,0 +1,33 @@
+package com.bookticket.payment_service.repository;
+
+import com.bookticket.payment_service.entity.RefundJobItem;
+import com.bookticket.payment_service.enums.RefundItemStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RefundJobItemRepository extends JpaRepository<RefundJobItem, Long> {
+
+    /**
+     * Next checkpoint chunk: keyset over the item ID within one job and status
+     */
+    List<RefundJobItem> findByJobIdAndStatusAndIdGreaterThanOrderByIdAsc(Long jobId, RefundItemStatus status,
+                                                                        Long afterId, Pageable pageable);
+
+    List<RefundJobItem> findByJobIdAndStatusOrderByIdAsc(Long jobId, RefundItemStatus status, Pageable pageable);
+
+    long countByJobIdAndStatus(Long jobId, RefundItemStatus status);
+
+    @Modifying
+    @Query("update RefundJobItem i set i.status = :to, i.updatedAt = :updatedAt " +
+            "where i.jobId = :jobId and i.status = :from")
+    int updateStatusByJob(@Param("jobId") Long jobId,
+                          @Param("from") RefundItemStatus from,
+                          @Param("to") RefundItemStatus to,
+                          @Param("updatedAt") LocalDateTime updatedAt);
+}
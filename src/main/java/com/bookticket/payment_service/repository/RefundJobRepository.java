@@ -0,0 +1,32 @@
+package com.bookticket.payment_service.repository;
+
+import com.bookticket.payment_service.entity.RefundJob;
+import com.bookticket.payment_service.enums.RefundJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface RefundJobRepository extends JpaRepository<RefundJob, Long> {
+    List<RefundJob> findByStatusIn(Collection<RefundJobStatus> statuses);
+
+    /**
+     * Take or renew the job's lease; returns 0 when another live instance holds it
+     */
+    @Modifying
+    @Query("update RefundJob j set j.leaseOwner = :owner, j.leaseExpiresAt = :until where j.id = :id " +
+            "and (j.leaseOwner is null or j.leaseOwner = :owner or j.leaseExpiresAt < :now)")
+    int claimLease(@Param("id") Long id,
+                   @Param("owner") String owner,
+                   @Param("until") LocalDateTime until,
+                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update RefundJob j set j.succeeded = j.succeeded + :succeeded, j.failed = j.failed + :failed " +
+            "where j.id = :id")
+    int addProgress(@Param("id") Long id, @Param("succeeded") int succeeded, @Param("failed") int failed);
+}
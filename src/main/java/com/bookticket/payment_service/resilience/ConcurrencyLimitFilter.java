@@ -0,0 +1,124 @@
+package com.bookticket.payment_service.resilience;
+
+import com.bookticket.payment_service.configuration.ConcurrencyLimitProperties;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sheds internal payment API requests above the adaptive concurrency limit of their endpoint with 503.
+ *
+ * Runs right after RequestIdFilter and before Spring Security, so a rejected request costs almost nothing.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String BASE_PATH = "/api/v1/internal/payments/";
+
+    private final ConcurrencyLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<String, GradientConcurrencyLimiter> limiters = new HashMap<>();
+    private final Map<String, Counter> shedCounters = new HashMap<>();
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        properties.getEndpoints().forEach((endpoint, endpointLimit) -> {
+            GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(properties, endpointLimit);
+            limiters.put(endpoint, limiter);
+            Gauge.builder("payment.concurrency.limit", limiter, GradientConcurrencyLimiter::getLimit)
+                    .tag("endpoint", endpoint)
+                    .description("Current adaptive in-flight request limit")
+                    .register(meterRegistry);
+            Gauge.builder("payment.concurrency.inflight", limiter, GradientConcurrencyLimiter::getInFlight)
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            shedCounters.put(endpoint, Counter.builder("payment.concurrency.shed")
+                    .tag("endpoint", endpoint)
+                    .description("Requests rejected with 503 because the endpoint was at its limit")
+                    .register(meterRegistry));
+        });
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || !request.getRequestURI().startsWith(BASE_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String endpoint = resolveEndpoint(request);
+        GradientConcurrencyLimiter limiter = endpoint != null ? limiters.get(endpoint) : null;
+        if (limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (!limiter.tryAcquire()) {
+            shedCounters.get(endpoint).increment();
+            log.debug("Shedding {} request, limit {} reached", endpoint, limiter.getLimit());
+            writeShedResponse(response);
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            limiter.release(System.nanoTime() - startNanos, failed);
+        }
+    }
+
+    private String resolveEndpoint(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(BASE_PATH.length());
+        if (path.equals("checkout/create") && "POST".equals(request.getMethod())) {
+            return "create";
+        }
+        if (path.startsWith("checkout/verify/") && "GET".equals(request.getMethod())) {
+            return "verify";
+        }
+        if (path.startsWith("status/") && "GET".equals(request.getMethod())) {
+            return "status";
+        }
+        return null;
+    }
+
+    private void writeShedResponse(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new PaymentResponse(
+                null,
+                null,
+                "OVERLOADED",
+                null,
+                null,
+                "Payment service is at capacity. Please retry shortly."
+        ));
+    }
+}
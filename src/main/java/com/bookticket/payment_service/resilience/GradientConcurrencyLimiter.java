@@ -0,0 +1,94 @@
+package com.bookticket.payment_service.resilience;
+
+import com.bookticket.payment_service.configuration.ConcurrencyLimitProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-flight request limit that adapts to latency, in the style of a gradient limiter.
+ *
+ * A slow moving average of request latency is the baseline and a fast one tracks the current load. While the
+ * current latency stays within tolerance of the baseline the limit grows by roughly sqrt(limit); once it rises
+ * above it the limit shrinks in proportion (gradient = baseline * tolerance / current). Failed requests cut the
+ * limit multiplicatively. Requests over the limit are rejected immediately instead of waiting.
+ */
+public class GradientConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW_WEIGHT = 0.1;
+    private static final double LONG_WINDOW_WEIGHT = 0.01;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final ConcurrencyLimitProperties properties;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public GradientConcurrencyLimiter(ConcurrencyLimitProperties properties, ConcurrencyLimitProperties.EndpointLimit endpointLimit) {
+        this.properties = properties;
+        this.minLimit = Math.max(1, endpointLimit.getMinLimit());
+        this.maxLimit = Math.max(minLimit, endpointLimit.getMaxLimit());
+        this.limit = Math.min(maxLimit, Math.max(minLimit, endpointLimit.getInitialLimit()));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Takes an in-flight slot, or returns false if the limit is reached; every true must be followed by one release
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot and feeds the request's latency (or failure) into the limit
+     */
+    public void release(long rttNanos, boolean failed) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (failed) {
+                limit = Math.max(minLimit, limit * properties.getBackoffRatio());
+                return;
+            }
+            if (longRttNanos == 0) {
+                shortRttNanos = rttNanos;
+                longRttNanos = rttNanos;
+                return;
+            }
+            shortRttNanos = SHORT_WINDOW_WEIGHT * rttNanos + (1 - SHORT_WINDOW_WEIGHT) * shortRttNanos;
+            longRttNanos = LONG_WINDOW_WEIGHT * rttNanos + (1 - LONG_WINDOW_WEIGHT) * longRttNanos;
+
+            // After a long overload the baseline itself has drifted up; pull it back so the limit can recover
+            if (longRttNanos > 2 * shortRttNanos) {
+                longRttNanos *= 0.95;
+            }
+
+            double gradient = Math.max(MIN_GRADIENT,
+                    Math.min(1.0, properties.getTolerance() * longRttNanos / shortRttNanos));
+            // Do not grow a limit the traffic is not using
+            if (gradient >= 1.0 && inFlightBefore < limit / 2) {
+                return;
+            }
+            double estimate = limit * gradient + Math.sqrt(limit);
+            double smoothed = (1 - properties.getSmoothing()) * limit + properties.getSmoothing() * estimate;
+            limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.bookticket.payment_service.resilience;
+
+import com.bookticket.payment_service.exception.DeadlineExceededException;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The caller's deadline for the current request, bound to the request thread by RequestIdFilter.
+ *
+ * Callers send X-Request-Deadline as epoch milliseconds or an ISO-8601 instant. Stages that start expensive work
+ * call {@link #check} and give up once it has passed; outside a request, or without the header, there is no
+ * deadline and every check passes.
+ */
+public final class RequestDeadline {
+
+    public static final String HEADER = "X-Request-Deadline";
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final Instant deadline;
+    private final long deadlineNanos;
+
+    private RequestDeadline(Instant deadline) {
+        this.deadline = deadline;
+        // Measured on the monotonic clock from here on
+        this.deadlineNanos = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(deadline.toEpochMilli() - System.currentTimeMillis());
+    }
+
+    public static RequestDeadline begin(Instant deadline) {
+        RequestDeadline requestDeadline = new RequestDeadline(deadline);
+        CURRENT.set(requestDeadline);
+        return requestDeadline;
+    }
+
+    public static RequestDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind a deadline taken from another thread, e.g. for work handed to an executor; null clears it
+     */
+    public static void set(RequestDeadline deadline) {
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Nanos left for the current request, Long.MAX_VALUE without a deadline
+     */
+    public static long remainingNanos() {
+        RequestDeadline deadline = CURRENT.get();
+        return deadline == null ? Long.MAX_VALUE : deadline.deadlineNanos - System.nanoTime();
+    }
+
+    public static boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Throw DeadlineExceededException if the deadline has passed before the given stage
+     */
+    public static void check(String stage) {
+        if (isExpired()) {
+            throw new DeadlineExceededException(stage);
+        }
+    }
+
+    /**
+     * Parse the header value; null when absent or malformed, as a bad header must not fail the request
+     */
+    public static Instant parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return trimmed.chars().allMatch(Character::isDigit)
+                    ? Instant.ofEpochMilli(Long.parseLong(trimmed))
+                    : Instant.parse(trimmed);
+        } catch (NumberFormatException | DateTimeException e) {
+            return null;
+        }
+    }
+
+    public Instant getDeadline() {
+        return deadline;
+    }
+}
@@ -0,0 +1,167 @@
+package com.bookticket.payment_service.resilience;
+
+import com.bookticket.payment_service.configuration.StripeRateGovernorProperties;
+import com.bookticket.payment_service.enums.StripeCallPriority;
+import com.bookticket.payment_service.exception.DeadlineExceededException;
+import com.bookticket.payment_service.exception.GatewayThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares one Stripe request budget across all replicas through a token bucket in Redis.
+ *
+ * Each priority class may only take a token while a reserved part of the bucket stays untouched, so
+ * reconciliation and the expiry sweep back off long before checkout verification and creation do.
+ * If Redis is unreachable the governor falls back to a local bucket sized to this replica's share.
+ */
+@Component
+@Slf4j
+public class StripeRateGovernor {
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TOKEN_BUCKET_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/stripe-token-bucket.lua"), List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StripeRateGovernorProperties properties;
+    private final LocalTokenBucket localBucket;
+    private final Map<StripeCallPriority, Timer> waitTimers = new EnumMap<>(StripeCallPriority.class);
+    private final Map<StripeCallPriority, Counter> rejectedCounters = new EnumMap<>(StripeCallPriority.class);
+    private final Counter fallbackCounter;
+
+    private volatile long redisRetryAtNanos;
+
+    public StripeRateGovernor(StringRedisTemplate redisTemplate,
+                              StripeRateGovernorProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.localBucket = new LocalTokenBucket(
+                properties.getRequestsPerSecond() / Math.max(1, properties.getFallbackReplicas()),
+                Math.max(1, properties.getBurstCapacity() / Math.max(1, properties.getFallbackReplicas())));
+        for (StripeCallPriority priority : StripeCallPriority.values()) {
+            waitTimers.put(priority, Timer.builder("stripe.governor.wait")
+                    .tag("priority", priority.name())
+                    .description("Time spent waiting for a Stripe rate token")
+                    .register(meterRegistry));
+            rejectedCounters.put(priority, Counter.builder("stripe.governor.rejected")
+                    .tag("priority", priority.name())
+                    .register(meterRegistry));
+        }
+        this.fallbackCounter = Counter.builder("stripe.governor.fallback")
+                .description("Token requests served by the local bucket because Redis was unavailable")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Blocks until a token is available for the given priority, or throws GatewayThrottledException once
+     * the priority's maximum wait would be exceeded
+     */
+    public void acquire(StripeCallPriority priority) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + properties.getMaxWait()
+                .getOrDefault(priority, Duration.ofSeconds(1)).toNanos();
+        try {
+            while (true) {
+                long waitMillis = tryAcquire(priority);
+                if (waitMillis <= 0) {
+                    return;
+                }
+                if (TimeUnit.MILLISECONDS.toNanos(waitMillis) >= RequestDeadline.remainingNanos()) {
+                    // The caller will have given up before a token frees up
+                    throw new DeadlineExceededException("stripe_queue");
+                }
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                if (waitMillis > remainingMillis) {
+                    rejectedCounters.get(priority).increment();
+                    throw new GatewayThrottledException(
+                            "Payment gateway is busy. Please try again in a few moments.",
+                            Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999)));
+                }
+                Thread.sleep(waitMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCounters.get(priority).increment();
+            throw new GatewayThrottledException("Interrupted while waiting for the payment gateway", 1);
+        } finally {
+            waitTimers.get(priority).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Takes a token only if one is available right away, for optional requests such as hedges
+     */
+    public boolean tryAcquireNow(StripeCallPriority priority) {
+        return !properties.isEnabled() || tryAcquire(priority) == 0;
+    }
+
+    /**
+     * Takes a token if the priority's reserve allows it; returns 0 on success or the millis to wait before retrying
+     */
+    private long tryAcquire(StripeCallPriority priority) {
+        double reserveFraction = properties.getReserve().getOrDefault(priority, 0.0);
+        if (System.nanoTime() - redisRetryAtNanos >= 0) {
+            try {
+                List<?> result = redisTemplate.execute(TOKEN_BUCKET_SCRIPT, List.of(properties.getRedisKey()),
+                        String.valueOf(properties.getRequestsPerSecond()),
+                        String.valueOf(properties.getBurstCapacity()),
+                        String.valueOf(reserveFraction * properties.getBurstCapacity()));
+                if (result != null && result.size() == 2) {
+                    return ((Number) result.get(0)).longValue() == 1 ? 0 : ((Number) result.get(1)).longValue();
+                }
+                log.warn("Unexpected rate governor script result: {}", result);
+            } catch (RuntimeException e) {
+                log.warn("Rate governor cannot reach Redis, using the local bucket for {}: {}",
+                        properties.getRedisRetryAfter(), e.getMessage());
+            }
+            redisRetryAtNanos = System.nanoTime() + properties.getRedisRetryAfter().toNanos();
+        }
+        fallbackCounter.increment();
+        return localBucket.tryAcquire(reserveFraction);
+    }
+
+    /**
+     * In-process copy of the Redis script, used while Redis is unavailable
+     */
+    static final class LocalTokenBucket {
+        private final double ratePerSecond;
+        private final double capacity;
+        private double tokens;
+        private long lastRefillNanos;
+
+        LocalTokenBucket(double ratePerSecond, double capacity) {
+            this.ratePerSecond = ratePerSecond;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized long tryAcquire(double reserveFraction) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * ratePerSecond / 1_000_000_000.0);
+            lastRefillNanos = now;
+            double reserve = reserveFraction * capacity;
+            if (tokens - 1 >= reserve) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((reserve + 1 - tokens) * 1000 / ratePerSecond);
+        }
+    }
+}
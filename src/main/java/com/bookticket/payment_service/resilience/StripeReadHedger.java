@@ -0,0 +1,212 @@
+package com.bookticket.payment_service.resilience;
+
+import com.bookticket.payment_service.configuration.StripeHedgingProperties;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Hedges idempotent Stripe reads: when an attempt has not answered within the recent latency percentile of its
+ * operation, the same request is sent again and whichever answers first is used.
+ *
+ * Every read earns budgetRatio of a hedge and every hedge spends one, so hedges stay a bounded share of the
+ * traffic even when Stripe is slow across the board. The losing attempt cannot be cancelled and finishes in the
+ * background. Reads run on a bounded pool; when it is full they run on the caller's thread, unhedged.
+ */
+@Component
+@Slf4j
+public class StripeReadHedger implements DisposableBean {
+
+    /**
+     * One attempt of the read, e.g. a Session.retrieve call
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T call() throws StripeException;
+    }
+
+    private final StripeHedgingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private double budget;
+
+    public StripeReadHedger(StripeHedgingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.executor = new ThreadPoolExecutor(0, Math.max(2, properties.getMaxConcurrentReads()), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new CustomizableThreadFactory("stripe-read-"));
+    }
+
+    /**
+     * Run the read, hedging it once if it is slow, the budget allows and canHedge (e.g. a rate limit token) agrees
+     */
+    public <T> T execute(String operation, BooleanSupplier canHedge, Attempt<T> attempt) throws StripeException {
+        if (!properties.isEnabled()) {
+            return attempt.call();
+        }
+        LatencyWindow window = latencies.computeIfAbsent(operation,
+                op -> new LatencyWindow(properties.getWindowSize()));
+        meterRegistry.counter("stripe.hedge.reads", "operation", operation).increment();
+        deposit();
+
+        BlockingQueue<Outcome<T>> outcomes = new LinkedBlockingQueue<>();
+        if (!submit(attempt, false, window, outcomes)) {
+            return attempt.call();
+        }
+        try {
+            long delayNanos = window.samples() >= properties.getMinSamples()
+                    ? Math.max(window.percentileNanos(properties.getPercentile()), properties.getMinDelay().toNanos())
+                    : -1;
+            Outcome<T> first = delayNanos < 0 ? outcomes.take() : outcomes.poll(delayNanos, TimeUnit.NANOSECONDS);
+            boolean hedged = false;
+            if (first == null) {
+                hedged = hedge(operation, canHedge, attempt, window, outcomes);
+                first = outcomes.take();
+            }
+            if (first.failure() == null || !hedged) {
+                return result(operation, first);
+            }
+            // The first answer was an error; the other attempt may still succeed
+            Outcome<T> second = outcomes.take();
+            return result(operation, second.failure() == null ? second : first);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentProcessingException("Interrupted while waiting for Stripe", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private <T> boolean hedge(String operation, BooleanSupplier canHedge, Attempt<T> attempt, LatencyWindow window,
+                              BlockingQueue<Outcome<T>> outcomes) {
+        if (!withdraw()) {
+            meterRegistry.counter("stripe.hedge.skipped", "operation", operation, "reason", "budget").increment();
+            return false;
+        }
+        if (!canHedge.getAsBoolean()) {
+            refund();
+            meterRegistry.counter("stripe.hedge.skipped", "operation", operation, "reason", "rate_limit").increment();
+            return false;
+        }
+        if (!submit(attempt, true, window, outcomes)) {
+            refund();
+            meterRegistry.counter("stripe.hedge.skipped", "operation", operation, "reason", "pool_full").increment();
+            return false;
+        }
+        meterRegistry.counter("stripe.hedge.sent", "operation", operation).increment();
+        return true;
+    }
+
+    private <T> boolean submit(Attempt<T> attempt, boolean hedge, LatencyWindow window,
+                               BlockingQueue<Outcome<T>> outcomes) {
+        RequestDeadline deadline = RequestDeadline.current();
+        try {
+            executor.execute(() -> {
+                RequestDeadline.set(deadline);
+                long startNanos = System.nanoTime();
+                try {
+                    T value = attempt.call();
+                    window.record(System.nanoTime() - startNanos);
+                    outcomes.add(new Outcome<>(value, null, hedge));
+                } catch (StripeException | RuntimeException e) {
+                    outcomes.add(new Outcome<>(null, e, hedge));
+                } finally {
+                    RequestDeadline.end();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private <T> T result(String operation, Outcome<T> outcome) throws StripeException {
+        if (outcome.failure() == null) {
+            if (outcome.hedge()) {
+                meterRegistry.counter("stripe.hedge.wins", "operation", operation).increment();
+            }
+            return outcome.value();
+        }
+        if (outcome.failure() instanceof StripeException stripeException) {
+            throw stripeException;
+        }
+        throw (RuntimeException) outcome.failure();
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(budget + properties.getBudgetRatio(), properties.getMaxBudget());
+    }
+
+    private synchronized boolean withdraw() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+
+    private synchronized void refund() {
+        budget += 1;
+    }
+
+    private record Outcome<T>(T value, Exception failure, boolean hedge) {
+    }
+
+    /**
+     * The latest attempt latencies of one operation; the percentile is recomputed every tenth of the window
+     */
+    static final class LatencyWindow {
+        private final long[] nanos;
+        private int next;
+        private int size;
+        private int sinceSort;
+        private long[] sorted = new long[0];
+
+        LatencyWindow(int capacity) {
+            this.nanos = new long[Math.max(1, capacity)];
+        }
+
+        synchronized void record(long latencyNanos) {
+            nanos[next] = latencyNanos;
+            next = (next + 1) % nanos.length;
+            size = Math.min(size + 1, nanos.length);
+            sinceSort++;
+        }
+
+        synchronized int samples() {
+            return size;
+        }
+
+        synchronized long percentileNanos(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            if (sorted.length != size || sinceSort >= Math.max(1, nanos.length / 10)) {
+                sorted = Arrays.copyOf(nanos, size);
+                Arrays.sort(sorted);
+                sinceSort = 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.min(sorted.length - 1, Math.max(0, index))];
+        }
+    }
+}
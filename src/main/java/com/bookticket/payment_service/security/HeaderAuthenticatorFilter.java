@@ -5,19 +5,27 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class HeaderAuthenticatorFilter extends OncePerRequestFilter {
     private static final String USER_ROLES_HEADER = "X-User-Roles";
     private static final String USER_ID_HEADER = "X-User-Id";
     private static final String USER_NAME_HEADER = "X-User-Name";
+    private static final String ROLE_PREFIX = "ROLE_";
 
+    // Callers send a handful of distinct role combinations; the bound only protects against unexpected headers
+    private static final int MAX_CACHED_ROLE_SETS = 256;
+
+    private final Map<String, List<GrantedAuthority>> authoritiesByRolesHeader = new ConcurrentHashMap<>();
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -25,20 +33,90 @@ public class HeaderAuthenticatorFilter extends OncePerRequestFilter {
 
         String rolesHeader = request.getHeader(USER_ROLES_HEADER);
         String userId = request.getHeader(USER_ID_HEADER);
-//        String username = request.getHeader(USER_NAME_HEADER);
-
 
         if (rolesHeader != null && !rolesHeader.isEmpty() && userId != null && !userId.isEmpty()) {
-            List<SimpleGrantedAuthority> authorities = Arrays.stream(rolesHeader.split(","))
-                    .map(role -> "ROLE_" + role.trim())
-                    .map(SimpleGrantedAuthority::new)
-                    .toList();
+            Long parsedUserId = parseUserId(userId);
+            String username = request.getHeader(USER_NAME_HEADER);
+            if (username == null && parsedUserId == null) {
+                // Non-numeric ids (e.g. service accounts) are kept as the name so auditing can still attribute them
+                username = userId;
+            }
 
-            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                    userId, null, authorities);
+            UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+                    new UserPrincipal(parsedUserId, username), null, authoritiesFor(rolesHeader));
             SecurityContextHolder.getContext().setAuthentication(authentication);
         }
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Reactive handlers finish in an async dispatch, which Spring Security authorizes again; nothing is stored
+     * between dispatches, so authenticate from the headers once more
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * Returns the shared, immutable authority list for a roles header, parsing it only the first time it is seen
+     */
+    List<GrantedAuthority> authoritiesFor(String rolesHeader) {
+        List<GrantedAuthority> authorities = authoritiesByRolesHeader.get(rolesHeader);
+        if (authorities != null) {
+            return authorities;
+        }
+        authorities = parseRoles(rolesHeader);
+        if (authoritiesByRolesHeader.size() >= MAX_CACHED_ROLE_SETS) {
+            authoritiesByRolesHeader.clear();
+        }
+        authoritiesByRolesHeader.putIfAbsent(rolesHeader, authorities);
+        return authorities;
+    }
+
+    /**
+     * Splits "A, B,C" on commas and trims each role by index, without regex or streams
+     */
+    static List<GrantedAuthority> parseRoles(String rolesHeader) {
+        List<GrantedAuthority> authorities = new ArrayList<>(4);
+        int length = rolesHeader.length();
+        int start = 0;
+        while (start <= length) {
+            int end = rolesHeader.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int from = start;
+            int to = end;
+            while (from < to && Character.isWhitespace(rolesHeader.charAt(from))) {
+                from++;
+            }
+            while (to > from && Character.isWhitespace(rolesHeader.charAt(to - 1))) {
+                to--;
+            }
+            if (from < to) {
+                authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX.concat(rolesHeader.substring(from, to))));
+            }
+            start = end + 1;
+        }
+        return List.copyOf(authorities);
+    }
+
+    /**
+     * The numeric user ID, or null for anything but up to 18 digits (signs, spaces, longer values), which is kept
+     * as the name instead
+     */
+    static Long parseUserId(String userId) {
+        if (userId.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < userId.length(); i++) {
+            char c = userId.charAt(i);
+            if (c < '0' || c > '9' || i >= 18) {
+                return null;
+            }
+        }
+        return Long.parseLong(userId);
+    }
 }
@@ -3,13 +3,22 @@ package com.bookticket.payment_service.security;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.security.core.AuthenticatedPrincipal;
 
 import java.io.Serializable;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-public class UserPrincipal implements Serializable {
+public class UserPrincipal implements AuthenticatedPrincipal, Serializable {
     private  Long userId;
     private  String username;
+
+    /**
+     * Used by Authentication.getName(); falls back to the user ID when no username header was sent
+     */
+    @Override
+    public String getName() {
+        return username != null && !username.isBlank() ? username : String.valueOf(userId);
+    }
 }
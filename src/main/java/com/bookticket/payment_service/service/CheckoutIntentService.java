@@ -0,0 +1,215 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.AsyncCheckoutProperties;
+import com.bookticket.payment_service.dto.CheckoutIntentRequest;
+import com.bookticket.payment_service.dto.CheckoutIntentResponse;
+import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.PaymentNotFoundException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.impl.RoutingPaymentServiceImpl;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous checkout: the caller gets a local payment ID at once and the gateway session is created in the
+ * background, so the Booking Service does not wait for Stripe while it holds seat locks.
+ *
+ * The payment is stored as a PENDING intent without a session ID, then a bounded executor creates the session
+ * through the usual gateway routing and fills it in. The result is served by {@link #get} and, when the caller
+ * gave a callback URL, POSTed to it. When the executor is full the session is created on the caller's thread,
+ * as a synchronous checkout would. Intents whose session was never created (the instance stopped first) are
+ * failed by the expiry sweep.
+ */
+@Service
+@ConditionalOnProperty(prefix = "payment.async-checkout", name = "enabled", havingValue = "true")
+@Slf4j
+public class CheckoutIntentService implements DisposableBean {
+
+    public static final String PAYMENT_METHOD = "Checkout_Intent";
+    public static final String ACCEPTED = "accepted";
+
+    private final RoutingPaymentServiceImpl paymentService;
+    private final PaymentRepository paymentRepository;
+    private final PaymentShardRouter shardRouter;
+    private final AsyncCheckoutProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService callbackExecutor;
+    private final RestClient callbackClient;
+
+    public CheckoutIntentService(RoutingPaymentServiceImpl paymentService,
+                                 PaymentRepository paymentRepository,
+                                 PaymentShardRouter shardRouter,
+                                 AsyncCheckoutProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.paymentService = paymentService;
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        int threads = Math.max(1, properties.getThreads());
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                new CustomizableThreadFactory("checkout-intent-"));
+        this.callbackExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("checkout-callback-"));
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.getCallbackTimeout());
+        requestFactory.setReadTimeout(properties.getCallbackTimeout());
+        this.callbackClient = RestClient.builder().requestFactory(requestFactory).build();
+        Gauge.builder("payment.async_checkout.queue", executor, e -> e.getQueue().size())
+                .description("Accepted checkouts waiting for their session to be created")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Store the intent and create its session in the background; if the executor is full, create it now
+     */
+    public CheckoutIntentResponse accept(CheckoutIntentRequest request) {
+        URI callback = callbackUri(request.callbackUrl());
+        Payment intent = shardRouter.forBooking(request.bookingId(), () -> paymentRepository.save(Payment.builder()
+                .bookingId(request.bookingId())
+                .userId(request.userId())
+                .amount(request.amount())
+                .paymentMethod(PAYMENT_METHOD)
+                .paymentStatus(PaymentStatus.PENDING)
+                .paymentGatewayResponse("Checkout accepted, creating session")
+                .build()));
+        try {
+            executor.execute(() -> create(request, intent, callback));
+            meterRegistry.counter("payment.async_checkout.accepted").increment();
+            return new CheckoutIntentResponse(intent.getId(), intent.getBookingId(), ACCEPTED, null, null, null,
+                    "Checkout accepted. The payment URL follows from the status endpoint or the callback.");
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("payment.async_checkout.inline").increment();
+            return create(request, intent, callback);
+        }
+    }
+
+    /**
+     * Current state of an intent (or any payment) by its local payment ID
+     */
+    public CheckoutIntentResponse get(Long paymentId) {
+        Payment payment = shardRouter.scatter(shard -> paymentRepository.findById(paymentId)).stream()
+                .flatMap(Optional::stream)
+                .findFirst()
+                .orElseThrow(() -> new PaymentNotFoundException("Payment not found with ID: " + paymentId));
+        if (payment.getPaymentStatus() == PaymentStatus.PENDING && payment.getTransactionId() == null) {
+            return new CheckoutIntentResponse(payment.getId(), payment.getBookingId(), ACCEPTED, null, null, null,
+                    "Checkout session is being created.");
+        }
+        boolean payable = payment.getPaymentStatus() == PaymentStatus.PENDING;
+        return new CheckoutIntentResponse(payment.getId(), payment.getBookingId(),
+                payment.getPaymentStatus().name().toLowerCase(Locale.ROOT), payment.getTransactionId(),
+                payable ? payment.getPaymentUrl() : null, null, payment.getPaymentGatewayResponse());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        callbackExecutor.shutdown();
+    }
+
+    private CheckoutIntentResponse create(CheckoutIntentRequest request, Payment intent, URI callback) {
+        CheckoutIntentResponse response;
+        try {
+            CheckoutSessionResponse session = paymentService.createCheckoutSession(request.toSessionRequest(), intent);
+            response = new CheckoutIntentResponse(intent.getId(), intent.getBookingId(), session.status(),
+                    session.sessionId(), session.paymentUrl(), session.expiresAt(), session.message());
+        } catch (RuntimeException e) {
+            log.warn("Could not create checkout session for intent {} of booking ID {}: {}", intent.getId(),
+                    intent.getBookingId(), e.getMessage());
+            meterRegistry.counter("payment.async_checkout.failed").increment();
+            fail(intent, e);
+            response = new CheckoutIntentResponse(intent.getId(), intent.getBookingId(), "failed", null, null, null,
+                    "Checkout session could not be created: " + e.getMessage());
+        }
+        if (callback != null) {
+            scheduleCallback(callback, response, 1, 0);
+        }
+        return response;
+    }
+
+    private void fail(Payment intent, RuntimeException cause) {
+        try {
+            shardRouter.forBooking(intent.getBookingId(), () -> paymentRepository.findById(intent.getId())
+                    .filter(payment -> payment.getPaymentStatus() == PaymentStatus.PENDING)
+                    .filter(payment -> payment.getTransactionId() == null)
+                    .map(payment -> {
+                        payment.setPaymentStatus(PaymentStatus.FAILED);
+                        payment.setPaymentGatewayResponse("Checkout session could not be created: " + cause.getMessage());
+                        return paymentRepository.save(payment);
+                    }));
+        } catch (RuntimeException e) {
+            log.error("Could not mark checkout intent {} failed: {}", intent.getId(), e.getMessage());
+        }
+    }
+
+    private void deliver(URI callback, CheckoutIntentResponse response, int attempt) {
+        try {
+            callbackClient.post().uri(callback).contentType(MediaType.APPLICATION_JSON).body(response)
+                    .retrieve().toBodilessEntity();
+            meterRegistry.counter("payment.async_checkout.callbacks", "outcome", "delivered").increment();
+        } catch (RuntimeException e) {
+            if (attempt >= properties.getCallbackAttempts()) {
+                meterRegistry.counter("payment.async_checkout.callbacks", "outcome", "failed").increment();
+                log.warn("Giving up on callback for payment {} after {} attempts: {}", response.paymentId(), attempt,
+                        e.getMessage());
+                return;
+            }
+            scheduleCallback(callback, response, attempt + 1, properties.getCallbackRetryDelay().toMillis());
+        }
+    }
+
+    /**
+     * Callbacks run on their own thread, so a slow receiver does not hold up session creation
+     */
+    private void scheduleCallback(URI callback, CheckoutIntentResponse response, int attempt, long delayMillis) {
+        try {
+            callbackExecutor.schedule(() -> deliver(callback, response, attempt), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Callback for payment {} dropped on shutdown", response.paymentId());
+        }
+    }
+
+    /**
+     * Parse the callback URL, which must be http(s) on one of the configured hosts; null if none was given
+     */
+    private URI callbackUri(String callbackUrl) {
+        if (callbackUrl == null || callbackUrl.isBlank()) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid callback URL: " + callbackUrl);
+        }
+        boolean http = "http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme());
+        if (!http || uri.getHost() == null || properties.getCallbackHosts().stream()
+                .noneMatch(host -> host.equalsIgnoreCase(uri.getHost()))) {
+            throw new IllegalArgumentException("Callback URL host not allowed: " + callbackUrl);
+        }
+        return uri;
+    }
+}
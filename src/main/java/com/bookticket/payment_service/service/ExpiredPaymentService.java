@@ -3,16 +3,18 @@ package com.bookticket.payment_service.service;
 import com.bookticket.payment_service.configuration.StripeConfig;
 import com.bookticket.payment_service.entity.Payment;
 import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.GatewayThrottledException;
+import com.bookticket.payment_service.observability.ExpirySweepEvent;
 import com.bookticket.payment_service.repository.PaymentRepository;
-import com.stripe.Stripe;
-import com.stripe.exception.StripeException;
-import com.stripe.model.checkout.Session;
+import com.bookticket.payment_service.service.impl.PaymentGateway;
+import com.bookticket.payment_service.service.impl.PaymentGatewayRegistry;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.ZoneId;
@@ -26,25 +28,55 @@ public class ExpiredPaymentService {
 
     private final PaymentRepository paymentRepository;
     private final StripeConfig stripeConfig;
+    private final PaymentGatewayRegistry gatewayRegistry;
+    private final PaymentShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Scheduled task to check for expired payment sessions
      * Runs every minute to check for expired sessions
      */
     @Scheduled(fixedRate = 60000) // Run every minute
-    @Transactional
     public void expireOldSessions() {
         log.info("Starting session expiration check at: {}", Instant.now());
+        ExpirySweepEvent event = new ExpirySweepEvent();
+        event.begin();
+        try {
+            // With sharding, every shard is swept in parallel, each in its own transaction
+            for (SweepResult result : shardRouter.scatter(shard -> transactionTemplate.execute(status -> sweep()))) {
+                event.scanned += result.scanned;
+                event.expired += result.expired;
+                event.errors += result.errors;
+                event.throttled |= result.throttled;
+            }
+        } finally {
+            event.commit();
+        }
+    }
 
+    private SweepResult sweep() {
+        SweepResult result = new SweepResult();
         // Find all pending payments
         List<Payment> pendingPayments = paymentRepository.findByPaymentStatus(PaymentStatus.PENDING);
+        result.scanned = pendingPayments.size();
         if (pendingPayments.isEmpty()) {
             log.info("No pending payments found. Exiting session expiration check.");
-            return;
+            return result;
         }
 
         for (Payment payment : pendingPayments) {
             try {
+                // An asynchronous checkout whose session was never created, e.g. its instance stopped first
+                if (payment.getTransactionId() == null && payment.getCreatedAt() != null
+                        && CheckoutIntentService.PAYMENT_METHOD.equals(payment.getPaymentMethod())
+                        && isSessionExpired(payment.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant())) {
+                    payment.setPaymentStatus(PaymentStatus.FAILED);
+                    payment.setPaymentGatewayResponse("Checkout session was never created");
+                    paymentRepository.save(payment);
+                    result.expired++;
+                    continue;
+                }
+
                 // Skip if no transaction ID or created time
                 if (payment.getTransactionId() == null || payment.getTransactionId().isBlank() ||
                         payment.getCreatedAt() == null) {
@@ -56,24 +88,35 @@ public class ExpiredPaymentService {
                     log.info("Expiring session - Transaction ID: {}, Booking ID: {}",
                             payment.getTransactionId(), payment.getBookingId());
 
-                    // Expire the session in Stripe
-                    expireStripeSession(payment.getTransactionId());
+                    // Expire the session with the gateway that created it
+                    PaymentGateway gateway = gatewayRegistry.forPayment(payment)
+                            .orElseThrow(() -> new IllegalStateException(
+                                    "No gateway configured for payment method " + payment.getPaymentMethod()));
+                    gateway.expireSession(payment.getTransactionId());
 
                     // Update payment status
                     payment.setPaymentStatus(PaymentStatus.FAILED);
                     payment.setPaymentGatewayResponse(
                             "Payment session expired after " + stripeConfig.getCheckoutSessionExpiryMinutes() + " minutes");
                     paymentRepository.save(payment);
+                    result.expired++;
 
                     log.info("Successfully expired session - Transaction ID: {}, Booking ID: {}",
                             payment.getTransactionId(), payment.getBookingId());
                 }
 
+            } catch (GatewayThrottledException e) {
+                // The Stripe budget is needed by checkout traffic; remaining sessions are picked up by the next run
+                log.warn("Stopping session expiration check, gateway budget exhausted: {}", e.getMessage());
+                result.throttled = true;
+                break;
             } catch (Exception e) {
+                result.errors++;
                 log.error("Error expiring session for payment {}: {}",
                         payment.getTransactionId(), e.getMessage(), e);
             }
         }
+        return result;
     }
 
     /**
@@ -83,18 +126,10 @@ public class ExpiredPaymentService {
         return instant.plus(stripeConfig.getCheckoutSessionExpiryMinutes(), ChronoUnit.MINUTES).isBefore(Instant.now());
     }
 
-    /**
-     * Call Stripe API to expire a checkout session
-     */
-    private void expireStripeSession(String sessionId) throws StripeException {
-        log.info("Expiring Stripe session: {}", sessionId);
-        try {
-            Session session = Session.retrieve(sessionId);
-            session.expire();
-        } catch (StripeException e) {
-            log.error("Failed to expire Stripe session {}: {}", sessionId, e.getMessage(), e);
-            throw new RuntimeException(e);
-        }
-        log.info("Successfully expired Stripe session: {}", sessionId);
+    private static class SweepResult {
+        private int scanned;
+        private int expired;
+        private int errors;
+        private boolean throttled;
     }
 }
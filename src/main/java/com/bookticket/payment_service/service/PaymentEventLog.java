@@ -0,0 +1,255 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.PaymentEventLogProperties;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.entity.PaymentEvent;
+import com.bookticket.payment_service.enums.PaymentEventWriteMode;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends every payment status change, with the gateway details of the moment, to payment_events.
+ *
+ * In ASYNC mode committed changes go to a bounded queue and a background writer inserts whatever has queued up
+ * in one batch and one commit, so a burst of checkouts costs a few commits instead of one each. When the queue
+ * stays full for the enqueue timeout the event is dropped and counted rather than holding up the request.
+ * SYNC mode writes the event before the request returns: in the payment's own transaction, or right after it
+ * commits when sharding puts the payment on another database than the log.
+ */
+@Service
+@Slf4j
+public class PaymentEventLog implements DisposableBean {
+
+    private static final String INSERT_SQL = "INSERT INTO payment_events (payment_id, booking_id, transaction_id, " +
+            "from_status, to_status, amount, gateway_response, occurred_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final long POLL_MILLIS = 100;
+
+    private final PaymentEventLogProperties properties;
+    private final PaymentShardRouter shardRouter;
+    private final BlockingQueue<PaymentEvent> queue;
+    private final Counter written;
+    private final Counter droppedQueueFull;
+    private final Counter droppedWriteFailed;
+    private final DistributionSummary batchSizes;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public PaymentEventLog(PaymentEventLogProperties properties, PaymentShardRouter shardRouter,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.written = meterRegistry.counter("payment.events.written");
+        this.droppedQueueFull = meterRegistry.counter("payment.events.dropped", "reason", "queue_full");
+        this.droppedWriteFailed = meterRegistry.counter("payment.events.dropped", "reason", "write_failed");
+        this.batchSizes = DistributionSummary.builder("payment.events.batch.size")
+                .description("Events written per commit")
+                .register(meterRegistry);
+        Gauge.builder("payment.events.queue", queue, BlockingQueue::size)
+                .description("Payment events waiting for the writer")
+                .register(meterRegistry);
+        if (properties.isEnabled() && properties.getMode() == PaymentEventWriteMode.ASYNC) {
+            writer = new Thread(this::runWriter, "payment-events");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
+    }
+
+    /**
+     * Record that the payment moved from the given status (null for a new payment) to its current one
+     */
+    public void record(Payment payment, PaymentStatus from) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        PaymentEvent event = PaymentEvent.builder()
+                .paymentId(payment.getId())
+                .bookingId(payment.getBookingId())
+                .transactionId(payment.getTransactionId())
+                .fromStatus(from)
+                .toStatus(payment.getPaymentStatus())
+                .amount(payment.getAmount())
+                .gatewayResponse(payment.getPaymentGatewayResponse())
+                .occurredAt(LocalDateTime.now())
+                .build();
+        boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+        if (properties.getMode() == PaymentEventWriteMode.ASYNC) {
+            afterCommit(inTransaction, () -> enqueue(event));
+        } else if (inTransaction && !shardRouter.isSharded() && joinsTransaction()) {
+            // Same connection and transaction as the status change: both are committed or neither. Plain JDBC,
+            // as this runs in entity callbacks, which must not use the persistence context.
+            new JdbcTemplate(shardRouter.getShards().get(0)).execute((ConnectionCallback<Void>) connection -> {
+                insert(connection, List.of(event));
+                return null;
+            });
+            written.increment();
+        } else {
+            afterCommit(inTransaction, () -> writeNow(List.of(event)));
+        }
+    }
+
+    /**
+     * Stop accepting work and give the writer the shutdown timeout to drain the queue
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(properties.getShutdownTimeout().toMillis());
+            if (!queue.isEmpty()) {
+                log.warn("{} payment events were not written before shutdown", queue.size());
+            }
+        }
+    }
+
+    /**
+     * Whether the transaction manager exposes its JDBC connection, so that JDBC access to the log's database
+     * joins the current transaction
+     */
+    private boolean joinsTransaction() {
+        List<DataSource> shards = shardRouter.getShards();
+        return !shards.isEmpty() && TransactionSynchronizationManager.hasResource(shards.get(0));
+    }
+
+    private void afterCommit(boolean inTransaction, Runnable action) {
+        if (!inTransaction || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void enqueue(PaymentEvent event) {
+        try {
+            if (running && queue.offer(event, properties.getEnqueueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        droppedQueueFull.increment();
+        log.warn("Payment event queue full, dropped {} -> {} of payment {}", event.getFromStatus(), event.getToStatus(),
+                event.getPaymentId());
+    }
+
+    private void writeNow(List<PaymentEvent> events) {
+        try {
+            write(events);
+        } catch (SQLException | RuntimeException e) {
+            // The payment is committed; failing the request now would only invite a retry of a finished checkout
+            droppedWriteFailed.increment(events.size());
+            log.error("Could not write {} payment events: {}", events.size(), e.getMessage());
+        }
+    }
+
+    private void runWriter() {
+        List<PaymentEvent> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PaymentEvent first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Everything that queued up while the previous batch was being written goes in this one
+                batch.add(first);
+                queue.drainTo(batch, Math.max(0, properties.getBatchSize() - 1));
+                writeWithRetries(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeWithRetries(List<PaymentEvent> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(batch);
+                return;
+            } catch (SQLException | RuntimeException e) {
+                if (attempt >= properties.getMaxRetries() || !running) {
+                    droppedWriteFailed.increment(batch.size());
+                    log.error("Dropped {} payment events after {} attempts: {}", batch.size(), attempt, e.getMessage());
+                    return;
+                }
+                log.warn("Could not write {} payment events, retrying: {}", batch.size(), e.getMessage());
+                Thread.sleep(properties.getRetryDelay().toMillis());
+            }
+        }
+    }
+
+    /**
+     * Insert the events on shard 0 in one transaction
+     */
+    private void write(List<PaymentEvent> events) throws SQLException {
+        try (Connection connection = shardRouter.getShards().get(0).getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                insert(connection, events);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        written.increment(events.size());
+        batchSizes.record(events.size());
+    }
+
+    private static void insert(Connection connection, List<PaymentEvent> events) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            for (PaymentEvent event : events) {
+                statement.setLong(1, event.getPaymentId());
+                statement.setLong(2, event.getBookingId());
+                statement.setString(3, event.getTransactionId());
+                statement.setString(4, event.getFromStatus() != null ? event.getFromStatus().name() : null);
+                statement.setString(5, event.getToStatus().name());
+                if (event.getAmount() != null) {
+                    statement.setDouble(6, event.getAmount());
+                } else {
+                    statement.setNull(6, Types.DOUBLE);
+                }
+                statement.setString(7, event.getGatewayResponse());
+                statement.setTimestamp(8, Timestamp.valueOf(event.getOccurredAt()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
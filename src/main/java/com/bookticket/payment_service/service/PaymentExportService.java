@@ -0,0 +1,257 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.dto.PaymentExportRequest;
+import com.bookticket.payment_service.enums.ExportFormat;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.bookticket.payment_service.sharding.ShardCursor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams payments rows straight from a JDBC cursor to the response as CSV or NDJSON.
+ *
+ * Rows are read with a fetch size on a read-only connection with autocommit off (PostgreSQL only streams that way)
+ * and written one by one, so no result set or entity list is ever held in memory. With sharding, the query runs
+ * on every shard at once and the cursors are merged on payment_id, so the output order and resume token are the
+ * same as on a single database.
+ */
+@Service
+@Slf4j
+public class PaymentExportService {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int FLUSH_EVERY_ROWS = 5000;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private static final String[] COLUMNS = {
+            "payment_id", "booking_id", "user_id", "amount", "currency", "payment_method", "payment_status",
+            "transaction_id", "payment_intent_id", "created_at", "updated_at", "created_by", "payment_gateway_response"
+    };
+
+    private final PaymentShardRouter shardRouter;
+    private final JsonFactory jsonFactory;
+    private final MeterRegistry meterRegistry;
+
+    public PaymentExportService(PaymentShardRouter shardRouter,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry) {
+        this.shardRouter = shardRouter;
+        this.jsonFactory = objectMapper.getFactory();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Write the export to the given stream, returning the number of rows written
+     */
+    public long export(PaymentExportRequest request, OutputStream outputStream) throws IOException {
+        long startNanos = System.nanoTime();
+        OutputStream target = request.gzip() ? new GZIPOutputStream(outputStream, WRITE_BUFFER_BYTES) : outputStream;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), WRITE_BUFFER_BYTES);
+        RowWriter rowWriter = request.format() == ExportFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+        String sql = buildQuery(request);
+
+        long rows = 0;
+        Long lastPaymentId = request.afterPaymentId();
+        try {
+            rowWriter.start();
+            try (ShardCursor<Long> cursor = ShardCursor.open(shardRouter, sql, statement -> bind(statement, request),
+                    FETCH_SIZE, resultSet -> resultSet.getLong(1), Comparator.<Long>naturalOrder())) {
+                // Each shard applies the limit to its own rows; the merged stream is cut here
+                while ((request.limit() == null || rows < request.limit()) && cursor.next()) {
+                    ResultSet resultSet = cursor.row();
+                    rowWriter.write(resultSet);
+                    lastPaymentId = resultSet.getLong("payment_id");
+                    if (++rows % FLUSH_EVERY_ROWS == 0) {
+                        writer.flush();
+                    }
+                }
+            } catch (SQLException e) {
+                throw new UncategorizedSQLException("Payment export", sql, e);
+            }
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipOutputStream) {
+                gzipOutputStream.finish();
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            // Client went away mid-download; it can resume from the last payment_id it received
+            log.warn("Payment export aborted after {} rows: {}", rows, e.getMessage());
+            meterRegistry.counter("payment.export.aborted").increment();
+            throw e;
+        }
+
+        meterRegistry.counter("payment.export.rows", "format", request.format().getFileExtension()).increment(rows);
+        log.info("Payment export finished: {} rows, format: {}, gzip: {}, last payment_id: {}, {} ms",
+                rows, request.format(), request.gzip(), lastPaymentId,
+                (System.nanoTime() - startNanos) / 1_000_000);
+        return rows;
+    }
+
+    /**
+     * Keyset pagination on the primary key: resuming never re-reads rows or uses OFFSET
+     */
+    private String buildQuery(PaymentExportRequest request) {
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(String.join(", ", COLUMNS))
+                .append(" FROM payments WHERE created_at >= ? AND created_at < ? AND payment_id > ?");
+        if (request.statuses() != null && !request.statuses().isEmpty()) {
+            sql.append(" AND payment_status IN (")
+                    .append(String.join(", ", Collections.nCopies(request.statuses().size(), "?")))
+                    .append(")");
+        }
+        sql.append(" ORDER BY payment_id");
+        if (request.limit() != null) {
+            sql.append(" LIMIT ?");
+        }
+        return sql.toString();
+    }
+
+    private void bind(PreparedStatement statement, PaymentExportRequest request) throws SQLException {
+        int index = 1;
+        statement.setTimestamp(index++, Timestamp.valueOf(request.from()));
+        statement.setTimestamp(index++, Timestamp.valueOf(request.to()));
+        statement.setLong(index++, request.afterPaymentId() != null ? request.afterPaymentId() : 0L);
+        if (request.statuses() != null) {
+            for (PaymentStatus status : request.statuses()) {
+                statement.setString(index++, status.name());
+            }
+        }
+        if (request.limit() != null) {
+            statement.setLong(index, request.limit());
+        }
+    }
+
+    private interface RowWriter {
+        void start() throws IOException;
+
+        void write(ResultSet resultSet) throws IOException, SQLException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        private CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ResultSet resultSet) throws IOException, SQLException {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(resultSet.getString(i + 1));
+            }
+            writer.write('\n');
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final Writer writer;
+        private JsonGenerator generator;
+
+        private NdjsonRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            generator = jsonFactory.createGenerator(writer);
+            // The writer is flushed and closed by the export, not by the generator
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        }
+
+        @Override
+        public void write(ResultSet resultSet) throws IOException, SQLException {
+            generator.writeStartObject();
+            generator.writeNumberField("paymentId", resultSet.getLong("payment_id"));
+            writeLong("bookingId", resultSet, "booking_id");
+            writeLong("userId", resultSet, "user_id");
+            double amount = resultSet.getDouble("amount");
+            if (resultSet.wasNull()) {
+                generator.writeNullField("amount");
+            } else {
+                generator.writeNumberField("amount", amount);
+            }
+            generator.writeStringField("currency", resultSet.getString("currency"));
+            generator.writeStringField("paymentMethod", resultSet.getString("payment_method"));
+            generator.writeStringField("paymentStatus", resultSet.getString("payment_status"));
+            generator.writeStringField("transactionId", resultSet.getString("transaction_id"));
+            generator.writeStringField("paymentIntentId", resultSet.getString("payment_intent_id"));
+            generator.writeStringField("createdAt", timestamp(resultSet.getTimestamp("created_at")));
+            generator.writeStringField("updatedAt", timestamp(resultSet.getTimestamp("updated_at")));
+            generator.writeStringField("createdBy", resultSet.getString("created_by"));
+            generator.writeStringField("paymentGatewayResponse", resultSet.getString("payment_gateway_response"));
+            generator.writeEndObject();
+            generator.flush();
+            writer.write('\n');
+        }
+
+        /**
+         * A nullable BIGINT column as a number or null; getLong alone would turn null into 0
+         */
+        private void writeLong(String field, ResultSet resultSet, String column) throws IOException, SQLException {
+            long value = resultSet.getLong(column);
+            if (resultSet.wasNull()) {
+                generator.writeNullField(field);
+            } else {
+                generator.writeNumberField(field, value);
+            }
+        }
+
+        private String timestamp(Timestamp timestamp) {
+            return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+        }
+    }
+}
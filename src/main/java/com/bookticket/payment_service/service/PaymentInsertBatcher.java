@@ -0,0 +1,327 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.GroupCommitProperties;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes new PENDING payments of concurrent checkouts together: one multi-row INSERT ... RETURNING and one commit
+ * per batch instead of a transaction per checkout, so an on-sale burst costs far fewer commits and fsyncs.
+ *
+ * A writer takes the first queued insert, waits up to maxDelay for more (or until maxBatchSize), writes them per
+ * shard and completes each caller's future with its generated ID. The inserts bypass JPA, so the writer does what
+ * the Payment entity listeners would after the commit. When the queue is full, or a batch fails as a whole, the
+ * checkout falls back to saving its payment alone. So does a checkout that waited maxWait while its insert was still
+ * queued; once a writer has taken an insert, the checkout waits for the commit, since the row may still be written.
+ * Disabled, {@link #insert} is a plain repository save.
+ */
+@Service
+@Slf4j
+public class PaymentInsertBatcher implements DisposableBean {
+
+    private static final String INSERT_SQL = "INSERT INTO payments (booking_id, user_id, amount, currency, " +
+            "payment_method, payment_status, transaction_id, payment_intent_id, payment_gateway_response, " +
+            "created_at, updated_at, created_by, payment_url) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String RETURNING = " RETURNING payment_id, transaction_id";
+    private static final int MAX_ROWS = 5000;   // Keeps a statement below PostgreSQL's bind parameter limit
+    private static final long POLL_MILLIS = 100;
+
+    private final GroupCommitProperties properties;
+    private final PaymentRepository paymentRepository;
+    private final PaymentShardRouter shardRouter;
+    private final AuditorAware<String> auditorAware;
+    private final PaymentStatusCache statusCache;
+    private final PaymentStatsService statsService;
+    private final PaymentEventLog eventLog;
+    private final BlockingQueue<PendingInsert> queue;
+    private final List<Thread> writers = new ArrayList<>();
+    private final DistributionSummary batchSizes;
+    private final Counter fallbackQueueFull;
+    private final Counter fallbackBatchFailed;
+    private final Counter fallbackTimedOut;
+    private volatile boolean running = true;
+
+    public PaymentInsertBatcher(GroupCommitProperties properties,
+                                PaymentRepository paymentRepository,
+                                PaymentShardRouter shardRouter,
+                                AuditorAware<String> auditorAware,
+                                PaymentStatusCache statusCache,
+                                PaymentStatsService statsService,
+                                PaymentEventLog eventLog,
+                                MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.auditorAware = auditorAware;
+        this.statusCache = statusCache;
+        this.statsService = statsService;
+        this.eventLog = eventLog;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.batchSizes = DistributionSummary.builder("payment.group_commit.batch.size")
+                .description("Checkout inserts written per commit")
+                .register(meterRegistry);
+        this.fallbackQueueFull = meterRegistry.counter("payment.group_commit.fallbacks", "reason", "queue_full");
+        this.fallbackBatchFailed = meterRegistry.counter("payment.group_commit.fallbacks", "reason", "batch_failed");
+        this.fallbackTimedOut = meterRegistry.counter("payment.group_commit.fallbacks", "reason", "timed_out");
+        Gauge.builder("payment.group_commit.queue", queue, BlockingQueue::size)
+                .description("Checkout inserts waiting for a writer")
+                .register(meterRegistry);
+        if (properties.isEnabled()) {
+            for (int i = 0; i < Math.max(1, properties.getWriters()); i++) {
+                Thread writer = new Thread(this::runWriter, "group-commit-" + i);
+                writer.setDaemon(true);
+                writer.start();
+                writers.add(writer);
+            }
+        }
+    }
+
+    /**
+     * Insert a new payment and return it with its ID, batched with concurrent checkouts when enabled
+     */
+    public Payment insert(Payment payment) {
+        if (!properties.isEnabled() || payment.getTransactionId() == null) {
+            return paymentRepository.save(payment);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        payment.setCreatedAt(now);
+        payment.setUpdatedAt(now);
+        payment.setCreatedBy(auditorAware.getCurrentAuditor().orElse(null));
+
+        PendingInsert pending = new PendingInsert(payment);
+        if (!running || !queue.offer(pending)) {
+            fallbackQueueFull.increment();
+            return paymentRepository.save(payment);
+        }
+        try {
+            pending.id().get(properties.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+            return payment;
+        } catch (ExecutionException e) {
+            return saveAfterBatchFailed(payment, e.getCause());
+        } catch (TimeoutException e) {
+            if (pending.take()) {
+                // No writer has it, and none will write it now
+                queue.remove(pending);
+                fallbackTimedOut.increment();
+                log.warn("Payment of session {} still queued after {}, saving it alone", payment.getTransactionId(),
+                        properties.getMaxWait());
+                return paymentRepository.save(payment);
+            }
+            return awaitWritten(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pending.take()) {
+                queue.remove(pending);
+                throw new PaymentProcessingException("Interrupted before the payment record was written", e);
+            }
+            return awaitWritten(pending);
+        }
+    }
+
+    /**
+     * Stop taking inserts and let the writers finish what is queued
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        for (Thread writer : writers) {
+            writer.join(properties.getMaxWait().toMillis());
+        }
+    }
+
+    /**
+     * Wait for a batch a writer has already taken to commit or fail; giving up earlier would report a checkout as
+     * failed whose payment is written afterwards
+     */
+    private Payment awaitWritten(PendingInsert pending) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (true) {
+                try {
+                    pending.id().get();
+                    return pending.payment();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    return saveAfterBatchFailed(pending.payment(), e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Payment saveAfterBatchFailed(Payment payment, Throwable cause) {
+        // Nothing of the batch was written; alone, only a payment that is itself invalid fails
+        fallbackBatchFailed.increment();
+        log.warn("Group commit failed, saving payment of session {} alone: {}", payment.getTransactionId(),
+                cause.getMessage());
+        payment.setId(null);
+        return paymentRepository.save(payment);
+    }
+
+    private void runWriter() {
+        int maxBatchSize = Math.min(MAX_ROWS, Math.max(1, properties.getMaxBatchSize()));
+        List<PendingInsert> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingInsert first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long lingerUntil = System.nanoTime() + properties.getMaxDelay().toNanos();
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = lingerUntil - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // Leave out inserts whose checkout gave up waiting and saved them alone
+                batch.removeIf(pending -> !pending.take());
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.id().completeExceptionally(e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingInsert> batch) {
+        shardRouter.groupByShard(batch, pending -> pending.payment().getBookingId()).forEach((shard, inserts) -> {
+            Map<String, Long> ids;
+            try {
+                ids = insertRows(shard, inserts);
+            } catch (SQLException | RuntimeException e) {
+                inserts.forEach(pending -> pending.id().completeExceptionally(e));
+                return;
+            }
+            batchSizes.record(inserts.size());
+            for (PendingInsert pending : inserts) {
+                Payment payment = pending.payment();
+                payment.setId(ids.get(payment.getTransactionId()));
+                afterInsert(payment);
+                pending.id().complete(payment.getId());
+            }
+        });
+    }
+
+    /**
+     * Insert the rows on the shard in one statement and one transaction; IDs by transaction ID
+     */
+    private Map<String, Long> insertRows(int shard, List<PendingInsert> inserts) throws SQLException {
+        StringBuilder sql = new StringBuilder(INSERT_SQL);
+        for (int i = 0; i < inserts.size(); i++) {
+            sql.append(i == 0 ? ROW : ", " + ROW);
+        }
+        sql.append(RETURNING);
+
+        Map<String, Long> ids = new HashMap<>();
+        try (Connection connection = shardRouter.getShards().get(shard).getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (PendingInsert pending : inserts) {
+                    Payment payment = pending.payment();
+                    statement.setLong(index++, payment.getBookingId());
+                    statement.setLong(index++, payment.getUserId());
+                    statement.setDouble(index++, payment.getAmount());
+                    statement.setString(index++, payment.getCurrency());
+                    statement.setString(index++, payment.getPaymentMethod());
+                    statement.setString(index++, payment.getPaymentStatus().name());
+                    statement.setString(index++, payment.getTransactionId());
+                    statement.setString(index++, payment.getPaymentIntentId());
+                    statement.setString(index++, payment.getPaymentGatewayResponse());
+                    statement.setTimestamp(index++, Timestamp.valueOf(payment.getCreatedAt()));
+                    statement.setTimestamp(index++, Timestamp.valueOf(payment.getUpdatedAt()));
+                    statement.setString(index++, payment.getCreatedBy());
+                    statement.setString(index++, payment.getPaymentUrl());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.put(resultSet.getString(2), resultSet.getLong(1));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * What the Payment entity listeners do for a persisted payment, now that the batch is committed
+     */
+    private void afterInsert(Payment payment) {
+        try {
+            statusCache.put(payment, false);
+            statsService.recordTransition(null, payment.getPaymentStatus(), payment.getAmount());
+            eventLog.record(payment, null);
+        } catch (RuntimeException e) {
+            // The row is committed; the caller must not save it again
+            log.warn("Could not record new payment {}: {}", payment.getId(), e.getMessage());
+        }
+        payment.setStoredStatus(payment.getPaymentStatus());
+    }
+
+    private record PendingInsert(Payment payment, CompletableFuture<Long> id, AtomicBoolean taken) {
+
+        PendingInsert(Payment payment) {
+            this(payment, new CompletableFuture<>(), new AtomicBoolean());
+        }
+
+        /**
+         * Either a writer takes the insert to write it, or its checkout takes it back after maxWait; only one does
+         */
+        boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.ReconciliationProperties;
+import com.bookticket.payment_service.dto.ReconciliationMismatch;
+import com.bookticket.payment_service.dto.ReconciliationReport;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.enums.StripeCallPriority;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.ReconciliationMerger.LocalPayment;
+import com.bookticket.payment_service.service.ReconciliationMerger.RemoteSession;
+import com.bookticket.payment_service.service.impl.StripeCallExecutor;
+import com.bookticket.payment_service.service.impl.StripePaymentServiceImpl;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.bookticket.payment_service.sharding.ShardCursor;
+import com.stripe.exception.StripeException;
+import com.stripe.model.StripeCollection;
+import com.stripe.model.checkout.Session;
+import com.stripe.param.checkout.SessionListParams;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compares Stripe Checkout Sessions with local Payment rows over a time window.
+ *
+ * Both sides are streamed (Stripe's session list, page by page, and a JDBC cursor over payments, merged across
+ * shards when sharding is enabled) and merged by creation time, so memory use does not grow with the size of the
+ * window.
+ */
+@Service
+@Slf4j
+public class PaymentReconciliationService {
+
+    private static final int FETCH_SIZE = 500;
+    private static final String LOCAL_PAYMENTS_SQL = "SELECT transaction_id, created_at, payment_status, payment_id, " +
+            "booking_id FROM payments WHERE payment_method = ? AND transaction_id IS NOT NULL " +
+            "AND created_at >= ? AND created_at < ? ORDER BY created_at DESC, payment_id DESC";
+
+    private final PaymentRepository paymentRepository;
+    private final ReconciliationProperties properties;
+    private final PaymentShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final StripeCallExecutor stripeCallExecutor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public PaymentReconciliationService(PaymentRepository paymentRepository,
+                                        ReconciliationProperties properties,
+                                        PaymentShardRouter shardRouter,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry,
+                                        StripeCallExecutor stripeCallExecutor) {
+        this.paymentRepository = paymentRepository;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.stripeCallExecutor = stripeCallExecutor;
+    }
+
+    /**
+     * Scheduled reconciliation of the last lookbackHours, ending settleMinutes ago
+     */
+    @Scheduled(cron = "${payment.reconciliation.cron:0 30 * * * *}")
+    public void scheduledReconciliation() {
+        if (!properties.isScheduleEnabled()) {
+            return;
+        }
+        Instant to = Instant.now().minus(properties.getSettleMinutes(), ChronoUnit.MINUTES);
+        Instant from = to.minus(properties.getLookbackHours(), ChronoUnit.HOURS);
+        try {
+            reconcile(from, to, properties.isRepair());
+        } catch (Exception e) {
+            log.error("Scheduled reconciliation failed for window {} - {}: {}", from, to, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run a reconciliation for sessions created in [from, to)
+     * @param repair when true, PENDING rows whose Stripe session reached a terminal state are updated
+     */
+    public ReconciliationReport reconcile(Instant from, Instant to, boolean repair) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Reconciliation window start must be before its end");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new PaymentProcessingException("A reconciliation run is already in progress");
+        }
+        try {
+            return reconcileWindow(from, to, repair);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationReport reconcileWindow(Instant from, Instant to, boolean repair) {
+        log.info("Starting reconciliation for window {} - {}, repair: {}", from, to, repair);
+        long startNanos = System.nanoTime();
+        Run run = new Run(from, to, repair);
+        ReconciliationMerger merger = new ReconciliationMerger(
+                properties.getClockSkewSeconds(), properties.getProgressInterval());
+
+        // Local rows are saved after Session.create returns, so a session created just before "to" can have its row after it
+        LocalDateTime localFrom = toLocal(from);
+        LocalDateTime localTo = toLocal(to.plusSeconds(properties.getClockSkewSeconds()));
+
+        try (ShardCursor<Timestamp> payments = ShardCursor.open(shardRouter, LOCAL_PAYMENTS_SQL, statement -> {
+                    statement.setString(1, StripePaymentServiceImpl.PAYMENT_METHOD);
+                    statement.setTimestamp(2, Timestamp.valueOf(localFrom));
+                    statement.setTimestamp(3, Timestamp.valueOf(localTo));
+                }, FETCH_SIZE, resultSet -> resultSet.getTimestamp(2), Comparator.<Timestamp>reverseOrder())) {
+            merger.merge(stripeSessions(from, to, run), localPayments(payments, run), run);
+        }
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        long items = run.stripeScanned + run.localScanned;
+        double itemsPerSecond = durationMs > 0 ? items * 1000.0 / durationMs : items;
+
+        Timer.builder("payment.reconciliation.duration")
+                .register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+        log.info("Reconciliation finished for window {} - {}: stripe={}, local={}, matched={}, mismatches={}, " +
+                        "repaired={}, {} ms ({} items/s), peak buffered={}",
+                from, to, run.stripeScanned, run.localScanned, run.matched, run.mismatchCount, run.repaired,
+                durationMs, Math.round(itemsPerSecond), merger.getPeakBuffered());
+
+        return new ReconciliationReport(from, to, run.stripeScanned, run.localScanned, run.matched,
+                run.mismatchCount, run.repaired, durationMs, itemsPerSecond, merger.getPeakBuffered(),
+                run.mismatches, run.mismatchCount > run.mismatches.size());
+    }
+
+    /**
+     * Lazily pages through Stripe's session list; only sessions carrying our bookingId metadata are considered.
+     * Pages are fetched one request at a time through the rate governor at RECONCILE priority, so a long
+     * window yields to checkout traffic instead of competing with it.
+     */
+    private Iterator<RemoteSession> stripeSessions(Instant from, Instant to, Run run) {
+        return new Iterator<>() {
+            private StripeCollection<Session> page = listPage(from, to, null);
+            private Iterator<Session> sessions = page.getData().iterator();
+            private String lastSessionId;
+            private RemoteSession next = advance();
+
+            private RemoteSession advance() {
+                while (true) {
+                    if (!sessions.hasNext()) {
+                        if (!Boolean.TRUE.equals(page.getHasMore()) || lastSessionId == null) {
+                            return null;
+                        }
+                        page = listPage(from, to, lastSessionId);
+                        sessions = page.getData().iterator();
+                        continue;
+                    }
+                    Session session = sessions.next();
+                    lastSessionId = session.getId();
+                    run.stripeScanned++;
+                    run.stripeCounter.increment();
+                    String bookingId = session.getMetadata() != null ? session.getMetadata().get("bookingId") : null;
+                    if (bookingId == null) {
+                        continue;
+                    }
+                    return new RemoteSession(session.getId(), session.getCreated(), expectedStatus(session),
+                            session.getStatus() + "/" + session.getPaymentStatus(), parseLong(bookingId));
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public RemoteSession next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                RemoteSession current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    private StripeCollection<Session> listPage(Instant from, Instant to, String startingAfter) {
+        SessionListParams.Builder params = SessionListParams.builder()
+                .setCreated(SessionListParams.Created.builder()
+                        .setGte(from.getEpochSecond())
+                        .setLt(to.getEpochSecond())
+                        .build())
+                .setLimit(100L);
+        if (startingAfter != null) {
+            params.setStartingAfter(startingAfter);
+        }
+        SessionListParams pageParams = params.build();
+        try {
+            return stripeCallExecutor.execute(StripeCallPriority.RECONCILE,
+                    options -> Session.list(pageParams, options));
+        } catch (StripeException e) {
+            throw new PaymentProcessingException("Failed to list Stripe checkout sessions: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Maps the cursor to merge entries; each row is read before the cursor moves on
+     */
+    private Iterator<LocalPayment> localPayments(ShardCursor<Timestamp> payments, Run run) {
+        return new Iterator<>() {
+            private Boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (hasNext == null) {
+                    hasNext = payments.next();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public LocalPayment next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                hasNext = null;
+                ResultSet row = payments.row();
+                run.localScanned++;
+                run.localCounter.increment();
+                try {
+                    return new LocalPayment(row.getString(1),
+                            row.getTimestamp(2).toLocalDateTime().atZone(ZoneId.systemDefault()).toEpochSecond(),
+                            PaymentStatus.valueOf(row.getString(3)), row.getLong(4), row.getLong(5),
+                            payments.shard());
+                } catch (SQLException e) {
+                    throw new UncategorizedSQLException("Reading local payments", LOCAL_PAYMENTS_SQL, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * The local status a session should have, using the same rules as checkout verification
+     */
+    private PaymentStatus expectedStatus(Session session) {
+        if ("expired".equalsIgnoreCase(session.getStatus())) {
+            return PaymentStatus.FAILED;
+        }
+        String paymentStatus = session.getPaymentStatus();
+        if ("paid".equalsIgnoreCase(paymentStatus) || "no_payment_required".equalsIgnoreCase(paymentStatus)) {
+            return PaymentStatus.COMPLETED;
+        }
+        return PaymentStatus.PENDING;
+    }
+
+    private LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Per-run state and merge callbacks
+     */
+    private class Run implements ReconciliationMerger.Listener {
+        private final long certainFrom;
+        private final long certainTo;
+        private final boolean repair;
+        private final long startNanos = System.nanoTime();
+        private final List<ReconciliationMismatch> mismatches = new ArrayList<>();
+        private final Counter stripeCounter = meterRegistry.counter("payment.reconciliation.items", "source", "stripe");
+        private final Counter localCounter = meterRegistry.counter("payment.reconciliation.items", "source", "local");
+        private long stripeScanned;
+        private long localScanned;
+        private long matched;
+        private long mismatchCount;
+        private long repaired;
+
+        private Run(Instant from, Instant to, boolean repair) {
+            // Unmatched local rows within the skew of either edge may belong to sessions outside the window
+            this.certainFrom = from.getEpochSecond() + properties.getClockSkewSeconds();
+            this.certainTo = to.getEpochSecond();
+            this.repair = repair;
+        }
+
+        @Override
+        public void matched(RemoteSession remote, LocalPayment local) {
+            matched++;
+            if (remote.expectedStatus() == local.status()) {
+                return;
+            }
+            // Refunds leave the session "paid", so refunded payments match a COMPLETED session
+            if (remote.expectedStatus() == PaymentStatus.COMPLETED && (local.status() == PaymentStatus.REFUND_PENDING
+                    || local.status() == PaymentStatus.REFUNDED)) {
+                return;
+            }
+            boolean repairable = local.status() == PaymentStatus.PENDING
+                    && remote.expectedStatus() != PaymentStatus.PENDING;
+            boolean fixed = repair && repairable && repair(local, remote);
+            if (fixed) {
+                repaired++;
+                meterRegistry.counter("payment.reconciliation.repaired").increment();
+            }
+            record(new ReconciliationMismatch("STATUS_MISMATCH", remote.sessionId(), local.paymentId(),
+                    local.bookingId(), local.status().name(), remote.stripeState(), fixed));
+        }
+
+        @Override
+        public void missingLocal(RemoteSession remote) {
+            record(new ReconciliationMismatch("MISSING_LOCAL", remote.sessionId(), null,
+                    remote.bookingId(), null, remote.stripeState(), false));
+        }
+
+        @Override
+        public void missingRemote(LocalPayment local) {
+            if (local.createdEpochSecond() < certainFrom || local.createdEpochSecond() >= certainTo) {
+                return;
+            }
+            record(new ReconciliationMismatch("MISSING_STRIPE", local.transactionId(), local.paymentId(),
+                    local.bookingId(), local.status().name(), null, false));
+        }
+
+        @Override
+        public void progress(long mergedItems) {
+            double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+            log.info("Reconciliation progress: {} items merged ({} stripe, {} local), {} mismatches, {} items/s",
+                    mergedItems, stripeScanned, localScanned, mismatchCount,
+                    seconds > 0 ? Math.round(mergedItems / seconds) : mergedItems);
+        }
+
+        /**
+         * Apply Stripe's status through the entity, so the status cache and statistics see the change.
+         * Runs on the shard the row was read from, which may not be its booking's shard before a rebalance.
+         * Skipped when the payment moved on since it was read.
+         */
+        private boolean repair(LocalPayment local, RemoteSession remote) {
+            return Boolean.TRUE.equals(shardRouter.onShard(local.shard(), () -> transactionTemplate.execute(status ->
+                    paymentRepository.findById(local.paymentId())
+                            .filter(payment -> payment.getPaymentStatus() == PaymentStatus.PENDING)
+                            .map(payment -> {
+                                payment.setPaymentStatus(remote.expectedStatus());
+                                payment.setPaymentGatewayResponse("Reconciled with Stripe session "
+                                        + remote.sessionId() + ": " + remote.stripeState());
+                                paymentRepository.save(payment);
+                                return true;
+                            })
+                            .orElse(false))));
+        }
+
+        private void record(ReconciliationMismatch mismatch) {
+            mismatchCount++;
+            meterRegistry.counter("payment.reconciliation.mismatches", "type", mismatch.type()).increment();
+            log.warn("Reconciliation mismatch - Type: {}, Transaction ID: {}, Payment ID: {}, Booking ID: {}, " +
+                            "Local: {}, Stripe: {}, Repaired: {}",
+                    mismatch.type(), mismatch.transactionId(), mismatch.paymentId(), mismatch.bookingId(),
+                    mismatch.localStatus(), mismatch.stripeStatus(), mismatch.repaired());
+            if (mismatches.size() < properties.getMaxReportedMismatches()) {
+                mismatches.add(mismatch);
+            }
+        }
+    }
+}
@@ -4,6 +4,9 @@ import com.bookticket.payment_service.dto.CheckoutSessionRequest;
 import com.bookticket.payment_service.dto.CheckoutSessionResponse;
 import com.bookticket.payment_service.dto.PaymentResponse;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface PaymentService {
     // SECURE APPROACH: Checkout Session (Recommended for backend-focused)
     CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request);
@@ -15,4 +18,7 @@ public interface PaymentService {
     default PaymentResponse getPaymentStatus(String transactionId){
         return null;
     }
+    default List<PaymentResponse> getPaymentStatuses(Collection<String> transactionIds){
+        return List.of();
+    }
 }
@@ -0,0 +1,335 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.PaymentStatsProperties;
+import com.bookticket.payment_service.dto.PaymentStatsResponse;
+import com.bookticket.payment_service.dto.PaymentStatsResponse.MinuteWindow;
+import com.bookticket.payment_service.dto.PaymentStatsResponse.StatusTotals;
+import com.bookticket.payment_service.entity.PaymentStatsMinute;
+import com.bookticket.payment_service.entity.PaymentStatsTotal;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.repository.PaymentStatsMinuteRepository;
+import com.bookticket.payment_service.repository.PaymentStatsTotalRepository;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live payment counts and amounts per status, and per-minute transitions, read without querying payments.
+ *
+ * Every committed status change reported by PaymentTransitionListener moves one payment and its amount from the
+ * old status to the new one. Each instance adds its changes to the shared payment_stats tables every flush interval
+ * with upserts, then reads the shared counters back. Reads combine that snapshot with the changes not yet
+ * flushed, so a dashboard refresh never reaches the database.
+ *
+ * {@link #rebuild()} recounts the totals from the payments table, e.g. after fixes made directly in SQL.
+ */
+@Service
+@Slf4j
+public class PaymentStatsService {
+
+    private static final long PRUNE_INTERVAL_MINUTES = 1;
+
+    private final PaymentStatsTotalRepository totalRepository;
+    private final PaymentStatsMinuteRepository minuteRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentShardRouter shardRouter;
+    private final PaymentStatsProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    // Counters below are guarded by lock; flush and rebuild are serialized on the service itself
+    private final Object lock = new Object();
+    private Tally pending = new Tally();        // Committed here, not yet flushed
+    private Tally flushed = new Tally();        // Flushed, not yet part of the snapshot
+    private Tally snapshot = new Tally();       // Shared counters as last read
+    private LocalDateTime refreshedAt;
+    private LocalDateTime lastPrune = LocalDateTime.MIN;
+
+    public PaymentStatsService(PaymentStatsTotalRepository totalRepository,
+                               PaymentStatsMinuteRepository minuteRepository,
+                               PaymentRepository paymentRepository,
+                               PaymentShardRouter shardRouter,
+                               PaymentStatsProperties properties,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.totalRepository = totalRepository;
+        this.minuteRepository = minuteRepository;
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (PaymentStatus status : PaymentStatus.values()) {
+            Gauge.builder("payment.stats.count", this, stats -> stats.total(status)[0])
+                    .description("Payments currently in the status")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+            Gauge.builder("payment.stats.amount", this, stats -> stats.total(status)[1] / 100.0)
+                    .description("Amount of the payments currently in the status")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+            Gauge.builder("payment.stats.throughput", this, stats -> stats.lastMinuteTransitions(status))
+                    .description("Payments that entered the status during the last complete minute")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Count a payment moving between statuses (null for a new or deleted payment), once its transaction commits
+     */
+    public void recordTransition(PaymentStatus from, PaymentStatus to, Double amount) {
+        if (!properties.isEnabled() || from == to) {
+            return;
+        }
+        long amountCents = amount != null ? Math.round(amount * 100) : 0;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(from, to, amountCents);
+                }
+            });
+        } else {
+            apply(from, to, amountCents);
+        }
+    }
+
+    public PaymentStatsResponse getStats() {
+        LocalDateTime windowStart = windowStart(LocalDateTime.now());
+        synchronized (lock) {
+            Map<PaymentStatus, StatusTotals> totals = new EnumMap<>(PaymentStatus.class);
+            for (PaymentStatus status : PaymentStatus.values()) {
+                long[] total = total(status);
+                totals.put(status, new StatusTotals(total[0], total[1] / 100.0));
+            }
+            NavigableMap<LocalDateTime, Map<PaymentStatus, Long>> windows = new TreeMap<>();
+            for (Tally tally : List.of(snapshot, flushed, pending)) {
+                tally.minutes.tailMap(windowStart, true).forEach((minute, statuses) -> statuses.forEach((status, counts) ->
+                        windows.computeIfAbsent(minute, m -> new EnumMap<>(PaymentStatus.class))
+                                .merge(status, counts[0], Long::sum)));
+            }
+            List<MinuteWindow> minutes = new ArrayList<>(windows.size());
+            windows.forEach((minute, transitions) -> minutes.add(new MinuteWindow(minute, transitions)));
+            return new PaymentStatsResponse(refreshedAt, totals, minutes);
+        }
+    }
+
+    /**
+     * Add this instance's changes to the shared counters, drop expired minutes and read the counters back
+     */
+    @Scheduled(fixedDelayString = "${payment.stats.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Tally batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new Tally();
+            flushed.add(batch, 1);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            if (!batch.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> write(batch, now));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not flush payment statistics, retrying with the next flush: {}", e.getMessage());
+            synchronized (lock) {
+                flushed.add(batch, -1);
+                pending.add(batch, 1);
+            }
+            return;
+        }
+        try {
+            if (lastPrune.isBefore(now.minusMinutes(PRUNE_INTERVAL_MINUTES))) {
+                transactionTemplate.executeWithoutResult(status -> minuteRepository.deleteOlderThan(windowStart(now)));
+                lastPrune = now;
+            }
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh payment statistics: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recount the totals from the payments table on every shard. The per-minute windows are not rebuilt; they
+     * fill again as payments change.
+     *
+     * Changes committed while the payments are being counted may be counted twice, so run it when traffic is low.
+     */
+    public synchronized PaymentStatsResponse rebuild() {
+        long startNanos = System.nanoTime();
+        synchronized (lock) {
+            // Whatever has been committed so far is in the payments table
+            pending = new Tally();
+            flushed = new Tally();
+        }
+        Map<PaymentStatus, long[]> counted = new EnumMap<>(PaymentStatus.class);
+        for (List<PaymentRepository.StatusSummary> shard : shardRouter.scatter(shard -> paymentRepository.summarizeByStatus())) {
+            for (PaymentRepository.StatusSummary summary : shard) {
+                Tally.add(counted, summary.getStatus(), summary.getPayments(), Math.round(summary.getAmount() * 100));
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            totalRepository.deleteAllInBatch();
+            totalRepository.saveAll(counted.entrySet().stream()
+                    .map(entry -> PaymentStatsTotal.builder()
+                            .status(entry.getKey())
+                            .paymentCount(entry.getValue()[0])
+                            .amountCents(entry.getValue()[1])
+                            .updatedAt(now)
+                            .build())
+                    .toList());
+        });
+        refresh();
+        log.info("Payment statistics rebuilt in {} ms: {}", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                counted.entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue()[0]).toList());
+        return getStats();
+    }
+
+    /**
+     * Load the shared counters, counting them from the payments table the first time the service runs
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void loadOnStartup() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            refresh();
+            if (snapshot.totals.isEmpty()) {
+                log.info("No payment statistics stored yet, counting them from the payments table");
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not load payment statistics: {}", e.getMessage());
+        }
+    }
+
+    private void apply(PaymentStatus from, PaymentStatus to, long amountCents) {
+        LocalDateTime minute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        synchronized (lock) {
+            pending.transition(from, to, amountCents, minute);
+        }
+    }
+
+    private void write(Tally batch, LocalDateTime now) {
+        batch.totals.forEach((status, counts) -> {
+            if (counts[0] != 0 || counts[1] != 0) {
+                totalRepository.addDelta(status.name(), counts[0], counts[1], now);
+            }
+        });
+        batch.minutes.forEach((minute, statuses) -> statuses.forEach((status, counts) ->
+                minuteRepository.addDelta(minute, status.name(), counts[0], counts[1])));
+    }
+
+    private void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        Tally loaded = new Tally();
+        for (PaymentStatsTotal total : totalRepository.findAll()) {
+            Tally.add(loaded.totals, total.getStatus(), total.getPaymentCount(), total.getAmountCents());
+        }
+        for (PaymentStatsMinute minute : minuteRepository.findByMinuteStartGreaterThanEqual(windowStart(now))) {
+            Tally.add(loaded.minutes.computeIfAbsent(minute.getMinuteStart(), m -> new EnumMap<>(PaymentStatus.class)),
+                    minute.getStatus(), minute.getTransitions(), minute.getAmountCents());
+        }
+        synchronized (lock) {
+            snapshot = loaded;
+            flushed = new Tally();
+            refreshedAt = now;
+        }
+    }
+
+    /**
+     * {count, amountCents} of a status across the snapshot and unflushed changes
+     */
+    private long[] total(PaymentStatus status) {
+        synchronized (lock) {
+            long[] total = new long[2];
+            for (Tally tally : List.of(snapshot, flushed, pending)) {
+                long[] counts = tally.totals.get(status);
+                if (counts != null) {
+                    total[0] += counts[0];
+                    total[1] += counts[1];
+                }
+            }
+            return total;
+        }
+    }
+
+    private long lastMinuteTransitions(PaymentStatus status) {
+        LocalDateTime minute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(1);
+        synchronized (lock) {
+            long transitions = 0;
+            for (Tally tally : List.of(snapshot, flushed, pending)) {
+                Map<PaymentStatus, long[]> statuses = tally.minutes.get(minute);
+                long[] counts = statuses != null ? statuses.get(status) : null;
+                transitions += counts != null ? counts[0] : 0;
+            }
+            return transitions;
+        }
+    }
+
+    private LocalDateTime windowStart(LocalDateTime now) {
+        return now.truncatedTo(ChronoUnit.MINUTES).minusMinutes(properties.getWindowMinutes() - 1L);
+    }
+
+    /**
+     * Counts as {count, amountCents} per status, in total and per minute
+     */
+    static final class Tally {
+        final Map<PaymentStatus, long[]> totals = new EnumMap<>(PaymentStatus.class);
+        final NavigableMap<LocalDateTime, Map<PaymentStatus, long[]>> minutes = new TreeMap<>();
+
+        void transition(PaymentStatus from, PaymentStatus to, long amountCents, LocalDateTime minute) {
+            if (from != null) {
+                add(totals, from, -1, -amountCents);
+            }
+            if (to != null) {
+                add(totals, to, 1, amountCents);
+                add(minutes.computeIfAbsent(minute, m -> new EnumMap<>(PaymentStatus.class)), to, 1, amountCents);
+            }
+        }
+
+        boolean isEmpty() {
+            return totals.isEmpty() && minutes.isEmpty();
+        }
+
+        /**
+         * Add (sign 1) or subtract (sign -1) another tally
+         */
+        void add(Tally other, int sign) {
+            other.totals.forEach((status, counts) -> add(totals, status, sign * counts[0], sign * counts[1]));
+            other.minutes.forEach((minute, statuses) -> statuses.forEach((status, counts) ->
+                    add(minutes.computeIfAbsent(minute, m -> new EnumMap<>(PaymentStatus.class)), status,
+                            sign * counts[0], sign * counts[1])));
+        }
+
+        static void add(Map<PaymentStatus, long[]> counts, PaymentStatus status, long count, long amountCents) {
+            long[] current = counts.computeIfAbsent(status, s -> new long[2]);
+            current[0] += count;
+            current[1] += amountCents;
+        }
+    }
+}
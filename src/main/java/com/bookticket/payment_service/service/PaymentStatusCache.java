@@ -0,0 +1,124 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.PollingProperties;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest known status and ETag per transaction ID, kept current by PaymentStatusCacheListener.
+ *
+ * Lets the polling endpoints answer If-None-Match without a database read. Writes on this instance update
+ * the entry on commit; changes made by other replicas are picked up once the entry's TTL runs out
+ * (short for payments that can still change, long for terminal ones).
+ */
+@Component
+public class PaymentStatusCache {
+
+    private final PollingProperties properties;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public PaymentStatusCache(PollingProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Payments in these states cannot change any more. COMPLETED is not one of them: it may still be refunded.
+     */
+    public static boolean isTerminal(PaymentStatus status) {
+        return status == PaymentStatus.FAILED || status == PaymentStatus.REFUNDED;
+    }
+
+    public Optional<Entry> get(String transactionId) {
+        if (transactionId == null) {
+            return Optional.empty();
+        }
+        Entry entry = entries.get(transactionId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        long ttlNanos = (isTerminal(entry.status()) ? properties.getTerminalTtl() : properties.getPendingTtl()).toNanos();
+        if (System.nanoTime() - entry.cachedAtNanos() > ttlNanos) {
+            entries.remove(transactionId, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    /**
+     * Cache the payment's current state, or after commit when called inside a transaction
+     */
+    public void put(Payment payment, boolean afterCommit) {
+        if (payment.getTransactionId() == null || payment.getPaymentStatus() == null) {
+            return;
+        }
+        Entry entry = new Entry(payment.getTransactionId(), payment.getPaymentStatus(), payment.getCreatedAt(),
+                payment.getUpdatedAt(), etag(payment.getPaymentStatus(), payment.getUpdatedAt()), System.nanoTime());
+        if (afterCommit && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    store(entry);
+                }
+            });
+        } else {
+            store(entry);
+        }
+    }
+
+    public void evict(String transactionId) {
+        if (transactionId != null) {
+            entries.remove(transactionId);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private void store(Entry entry) {
+        if (entries.size() >= properties.getCacheMaxEntries() && !entries.containsKey(entry.transactionId())) {
+            entries.clear();
+        }
+        // A read that started before a committed write must not replace the newer state
+        entries.merge(entry.transactionId(), entry, (current, candidate) ->
+                current.updatedAt() != null && candidate.updatedAt() != null
+                        && current.updatedAt().isAfter(candidate.updatedAt()) ? current : candidate);
+    }
+
+    static String etag(PaymentStatus status, LocalDateTime updatedAt) {
+        long version = updatedAt != null ? updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+        return "\"" + Long.toHexString(version) + "-" + status.name() + "\"";
+    }
+
+    public record Entry(String transactionId, PaymentStatus status, LocalDateTime createdAt,
+                        LocalDateTime updatedAt, String etag, long cachedAtNanos) {
+
+        /**
+         * Whether an If-None-Match header value lists this entry's ETag (weak comparison, as for GET)
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag) || tag.equals("*")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.entity.Payment;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Keeps PaymentStatusCache in step with the payments this instance reads and writes, and drops written payments
+ * from the Redis status cache when the reactive status reads are enabled.
+ * Created by Hibernate through Spring's bean container, so the caches are injected.
+ */
+public class PaymentStatusCacheListener {
+
+    private final PaymentStatusCache statusCache;
+    private final ObjectProvider<ReactivePaymentStatusService> reactiveStatusService;
+
+    public PaymentStatusCacheListener(PaymentStatusCache statusCache,
+                                      ObjectProvider<ReactivePaymentStatusService> reactiveStatusService) {
+        this.statusCache = statusCache;
+        this.reactiveStatusService = reactiveStatusService;
+    }
+
+    @PostLoad
+    void afterLoad(Payment payment) {
+        statusCache.put(payment, false);
+    }
+
+    @PostPersist
+    @PostUpdate
+    void afterWrite(Payment payment) {
+        statusCache.put(payment, true);
+        reactiveStatusService.ifAvailable(service -> service.evictAfterCommit(payment.getTransactionId()));
+    }
+}
@@ -0,0 +1,47 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Reports every payment status change to PaymentStatsService and PaymentEventLog. The status last read or
+ * written is kept on the entity, so the previous status of an update is known without another query.
+ * The services are looked up on first use, as they depend on the repositories this listener is created for.
+ */
+public class PaymentTransitionListener {
+
+    private final ObjectProvider<PaymentStatsService> statsService;
+    private final ObjectProvider<PaymentEventLog> eventLog;
+
+    public PaymentTransitionListener(ObjectProvider<PaymentStatsService> statsService,
+                                     ObjectProvider<PaymentEventLog> eventLog) {
+        this.statsService = statsService;
+        this.eventLog = eventLog;
+    }
+
+    @PostLoad
+    void afterLoad(Payment payment) {
+        payment.setStoredStatus(payment.getPaymentStatus());
+    }
+
+    @PostPersist
+    @PostUpdate
+    void afterWrite(Payment payment) {
+        PaymentStatus from = payment.getStoredStatus();
+        if (from != payment.getPaymentStatus()) {
+            statsService.getObject().recordTransition(from, payment.getPaymentStatus(), payment.getAmount());
+            eventLog.getObject().record(payment, from);
+            payment.setStoredStatus(payment.getPaymentStatus());
+        }
+    }
+
+    @PostRemove
+    void afterRemove(Payment payment) {
+        statsService.getObject().recordTransition(payment.getStoredStatus(), null, payment.getAmount());
+    }
+}
@@ -0,0 +1,63 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.PollingProperties;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Tells pollers of the status endpoints when to ask again, or that they can stop.
+ *
+ * A fresh checkout is usually paid within seconds, an old one is most likely abandoned: the suggested interval
+ * grows with the session's age (a tenth of it, within min/max). Refunds take the longest to settle.
+ */
+@Component
+@RequiredArgsConstructor
+public class PollHintPolicy {
+
+    public static final String POLL_ACTION_HEADER = "X-Poll-Action";
+    public static final String POLL_INTERVAL_HEADER = "X-Poll-Interval-Ms";
+
+    private final PollingProperties properties;
+
+    public HttpHeaders headers(PaymentStatus status, LocalDateTime createdAt) {
+        HttpHeaders headers = new HttpHeaders();
+        if (status != null && PaymentStatusCache.isTerminal(status)) {
+            headers.set(POLL_ACTION_HEADER, "stop");
+            headers.setCacheControl(CacheControl.maxAge(properties.getTerminalTtl()).cachePrivate());
+            return headers;
+        }
+        if (status == PaymentStatus.COMPLETED) {
+            // The checkout is done, but a refund may still change the payment, so it must not be cached
+            headers.set(POLL_ACTION_HEADER, "stop");
+            headers.setCacheControl(CacheControl.noCache());
+            return headers;
+        }
+        Duration interval = interval(status, createdAt);
+        headers.set(POLL_ACTION_HEADER, "continue");
+        headers.set(POLL_INTERVAL_HEADER, String.valueOf(interval.toMillis()));
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (interval.toMillis() + 999) / 1000)));
+        headers.setCacheControl(CacheControl.noCache());
+        return headers;
+    }
+
+    Duration interval(PaymentStatus status, LocalDateTime createdAt) {
+        if (status == PaymentStatus.REFUND_PENDING) {
+            return properties.getMaxInterval();
+        }
+        if (createdAt == null) {
+            return properties.getMinInterval();
+        }
+        Duration age = Duration.between(createdAt, LocalDateTime.now());
+        Duration interval = age.dividedBy(10);
+        if (interval.compareTo(properties.getMinInterval()) < 0) {
+            return properties.getMinInterval();
+        }
+        return interval.compareTo(properties.getMaxInterval()) > 0 ? properties.getMaxInterval() : interval;
+    }
+}
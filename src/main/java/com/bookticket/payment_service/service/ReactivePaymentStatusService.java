@@ -0,0 +1,269 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.PollingProperties;
+import com.bookticket.payment_service.configuration.ReactiveStatusProperties;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.GatewayThrottledException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.impl.RoutingPaymentServiceImpl;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Non-blocking status reads for pollers: Redis first, the database only on a miss.
+ *
+ * A poll waiting for Redis holds no request thread, so an instance keeps far more polls in flight than it has
+ * Tomcat threads. Misses are read through the JPA repositories on a bounded scheduler of their own and written
+ * back with the TTLs of payment.polling. Every payment write deletes the key after commit, and once more shortly
+ * after, in case a miss read the old row just before the commit. While Redis is slow or down, reads go to the
+ * database.
+ */
+@Service
+@ConditionalOnProperty(prefix = "payment.reactive-status", name = "enabled", havingValue = "true")
+@Slf4j
+public class ReactivePaymentStatusService implements DisposableBean {
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RoutingPaymentServiceImpl paymentService;
+    private final PaymentRepository paymentRepository;
+    private final PaymentShardRouter shardRouter;
+    private final ReactiveStatusProperties properties;
+    private final PollingProperties pollingProperties;
+    private final ObjectMapper objectMapper;
+    private final Scheduler databaseScheduler;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter redisErrors;
+
+    private volatile long redisRetryAtNanos = System.nanoTime();
+
+    public ReactivePaymentStatusService(ReactiveStringRedisTemplate redisTemplate,
+                                        RoutingPaymentServiceImpl paymentService,
+                                        PaymentRepository paymentRepository,
+                                        PaymentShardRouter shardRouter,
+                                        ReactiveStatusProperties properties,
+                                        PollingProperties pollingProperties,
+                                        ObjectMapper objectMapper,
+                                        MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.paymentService = paymentService;
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.pollingProperties = pollingProperties;
+        this.objectMapper = objectMapper;
+        this.databaseScheduler = Schedulers.newBoundedElastic(Math.max(1, properties.getDatabaseThreads()),
+                Math.max(1, properties.getDatabaseQueueCapacity()), "reactive-status-db");
+        this.hits = meterRegistry.counter("payment.reactive_status.reads", "result", "hit");
+        this.misses = meterRegistry.counter("payment.reactive_status.reads", "result", "miss");
+        this.redisErrors = meterRegistry.counter("payment.reactive_status.redis.errors");
+    }
+
+    /**
+     * Current status of the payment with this transaction ID; empty if there is none
+     */
+    public Mono<StatusSnapshot> status(String transactionId) {
+        return cached(List.of(transactionId))
+                .flatMap(found -> {
+                    if (!found.isEmpty()) {
+                        hits.increment();
+                        return Mono.just(found.get(0));
+                    }
+                    misses.increment();
+                    return fromDatabase(() -> shardRouter.forTransaction(transactionId,
+                            () -> paymentRepository.findByTransactionId(transactionId))
+                            .map(payment -> List.of(StatusSnapshot.of(payment)))
+                            .orElse(List.of()))
+                            .flatMap(loaded -> Mono.justOrEmpty(loaded.stream().findFirst()));
+                });
+    }
+
+    /**
+     * Statuses of the payments with these transaction IDs, in no particular order; unknown IDs are left out
+     */
+    public Mono<List<StatusSnapshot>> statuses(List<String> transactionIds) {
+        List<String> ids = transactionIds.stream().filter(Objects::nonNull).distinct().toList();
+        return cached(ids).flatMap(found -> {
+            hits.increment(found.size());
+            Set<String> cachedIds = new HashSet<>();
+            found.forEach(snapshot -> cachedIds.add(snapshot.transactionId()));
+            List<String> missing = ids.stream().filter(id -> !cachedIds.contains(id)).toList();
+            if (missing.isEmpty()) {
+                return Mono.just(found);
+            }
+            misses.increment(missing.size());
+            return fromDatabase(() -> paymentService.findByTransactionIds(missing).stream()
+                    .map(StatusSnapshot::of)
+                    .toList())
+                    .map(loaded -> {
+                        List<StatusSnapshot> all = new ArrayList<>(found);
+                        all.addAll(loaded);
+                        return all;
+                    });
+        });
+    }
+
+    /**
+     * Drop the cached status once the current transaction commits, or now outside one
+     */
+    public void evictAfterCommit(String transactionId) {
+        if (transactionId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(transactionId);
+                }
+            });
+        } else {
+            evict(transactionId);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        databaseScheduler.dispose();
+    }
+
+    /**
+     * Snapshots found in Redis for the IDs; none when Redis is unavailable
+     */
+    private Mono<List<StatusSnapshot>> cached(List<String> transactionIds) {
+        if (transactionIds.isEmpty() || System.nanoTime() - redisRetryAtNanos < 0) {
+            return Mono.just(List.of());
+        }
+        return redisTemplate.opsForValue().multiGet(transactionIds.stream().map(this::key).toList())
+                .timeout(properties.getRedisTimeout())
+                .map(values -> values.stream()
+                        .filter(value -> value != null && !value.isEmpty())
+                        .map(this::decode)
+                        .filter(Objects::nonNull)
+                        .toList())
+                .onErrorResume(e -> {
+                    redisUnavailable(e);
+                    return Mono.just(List.of());
+                })
+                .defaultIfEmpty(List.of());
+    }
+
+    /**
+     * Run a blocking read on the database scheduler and cache what it found
+     */
+    private Mono<List<StatusSnapshot>> fromDatabase(Callable<List<StatusSnapshot>> read) {
+        return Mono.fromCallable(read)
+                .subscribeOn(databaseScheduler)
+                .onErrorMap(RejectedExecutionException.class, e -> new GatewayThrottledException(
+                        "Payment service is busy. Please retry shortly.", 1))
+                .doOnNext(this::store);
+    }
+
+    private void store(List<StatusSnapshot> snapshots) {
+        if (snapshots.isEmpty() || System.nanoTime() - redisRetryAtNanos < 0) {
+            return;
+        }
+        Flux.fromIterable(snapshots)
+                .flatMap(snapshot -> {
+                    String value = encode(snapshot);
+                    if (value == null) {
+                        return Mono.empty();
+                    }
+                    return redisTemplate.opsForValue().set(key(snapshot.transactionId()), value,
+                            PaymentStatusCache.isTerminal(snapshot.status())
+                                    ? pollingProperties.getTerminalTtl() : pollingProperties.getPendingTtl());
+                })
+                .timeout(properties.getRedisTimeout())
+                .subscribe(null, this::redisUnavailable);
+    }
+
+    private void evict(String transactionId) {
+        String key = key(transactionId);
+        redisTemplate.delete(key)
+                .then(Mono.delay(properties.getEvictAgainAfter()))
+                .then(redisTemplate.delete(key))
+                .subscribe(null, e -> {
+                    redisErrors.increment();
+                    log.warn("Could not evict cached status of {}: {}", transactionId, e.getMessage());
+                });
+    }
+
+    private void redisUnavailable(Throwable e) {
+        redisErrors.increment();
+        redisRetryAtNanos = System.nanoTime() + properties.getRedisRetryAfter().toNanos();
+        log.warn("Status cache cannot reach Redis, reading from the database for {}: {}",
+                properties.getRedisRetryAfter(), e.toString());
+    }
+
+    private String key(String transactionId) {
+        return properties.getKeyPrefix() + transactionId;
+    }
+
+    private String encode(StatusSnapshot snapshot) {
+        try {
+            return objectMapper.writeValueAsString(snapshot);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not cache status of {}: {}", snapshot.transactionId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private StatusSnapshot decode(String value) {
+        try {
+            return objectMapper.readValue(value, StatusSnapshot.class);
+        } catch (JsonProcessingException e) {
+            // Written by another version; treated as a miss and overwritten
+            return null;
+        }
+    }
+
+    /**
+     * What a status response needs of a payment, as cached in Redis
+     */
+    public record StatusSnapshot(Long paymentId, Long bookingId, String transactionId, PaymentStatus status,
+                                 Double amount, LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+        static StatusSnapshot of(Payment payment) {
+            return new StatusSnapshot(payment.getId(), payment.getBookingId(), payment.getTransactionId(),
+                    payment.getPaymentStatus(), payment.getAmount(), payment.getCreatedAt(), payment.getUpdatedAt());
+        }
+
+        /**
+         * As an entry of the in-memory status cache, for its ETag and If-None-Match matching
+         */
+        public PaymentStatusCache.Entry entry() {
+            return new PaymentStatusCache.Entry(transactionId, status, createdAt, updatedAt,
+                    PaymentStatusCache.etag(status, updatedAt), System.nanoTime());
+        }
+
+        public PaymentResponse toResponse() {
+            return new PaymentResponse(paymentId, bookingId, status.name(), transactionId, amount,
+                    "Payment status retrieved");
+        }
+    }
+}
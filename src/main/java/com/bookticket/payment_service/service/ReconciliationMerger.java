@@ -0,0 +1,122 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.enums.PaymentStatus;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Merges Stripe Checkout Sessions and local payments, both ordered by creation time (newest first),
+ * in memory bounded by the clock skew window rather than by the size of the reconciled range.
+ *
+ * Stripe's "created" and our createdAt are a few seconds apart, so an item that has no partner yet is
+ * parked until the merge frontier has moved more than {@code clockSkewSeconds} past it. At that point
+ * no later item can match it any more and it is reported as missing on the other side.
+ */
+class ReconciliationMerger {
+
+    record RemoteSession(String sessionId, long createdEpochSecond, PaymentStatus expectedStatus,
+                         String stripeState, Long bookingId) {
+    }
+
+    record LocalPayment(String transactionId, long createdEpochSecond, PaymentStatus status,
+                        Long paymentId, Long bookingId, int shard) {
+    }
+
+    interface Listener {
+        void matched(RemoteSession remote, LocalPayment local);
+
+        void missingLocal(RemoteSession remote);
+
+        void missingRemote(LocalPayment local);
+
+        default void progress(long mergedItems) {
+        }
+    }
+
+    private final long clockSkewSeconds;
+    private final int progressInterval;
+    private final Map<String, RemoteSession> pendingRemote = new LinkedHashMap<>();
+    private final Map<String, LocalPayment> pendingLocal = new LinkedHashMap<>();
+    private int peakBuffered;
+
+    ReconciliationMerger(long clockSkewSeconds, int progressInterval) {
+        this.clockSkewSeconds = clockSkewSeconds;
+        this.progressInterval = Math.max(1, progressInterval);
+    }
+
+    void merge(Iterator<RemoteSession> remoteSessions, Iterator<LocalPayment> localPayments, Listener listener) {
+        RemoteSession remote = next(remoteSessions);
+        LocalPayment local = next(localPayments);
+        long merged = 0;
+
+        while (remote != null || local != null) {
+            long frontier;
+            if (local == null || (remote != null && remote.createdEpochSecond() >= local.createdEpochSecond())) {
+                frontier = remote.createdEpochSecond();
+                LocalPayment partner = pendingLocal.remove(remote.sessionId());
+                if (partner != null) {
+                    listener.matched(remote, partner);
+                } else {
+                    pendingRemote.put(remote.sessionId(), remote);
+                }
+                remote = next(remoteSessions);
+            } else {
+                frontier = local.createdEpochSecond();
+                RemoteSession partner = pendingRemote.remove(local.transactionId());
+                if (partner != null) {
+                    listener.matched(partner, local);
+                } else {
+                    pendingLocal.put(local.transactionId(), local);
+                }
+                local = next(localPayments);
+            }
+
+            peakBuffered = Math.max(peakBuffered, pendingRemote.size() + pendingLocal.size());
+            evictOlderThan(frontier + clockSkewSeconds, listener);
+
+            if (++merged % progressInterval == 0) {
+                listener.progress(merged);
+            }
+        }
+
+        pendingRemote.values().forEach(listener::missingLocal);
+        pendingLocal.values().forEach(listener::missingRemote);
+        pendingRemote.clear();
+        pendingLocal.clear();
+    }
+
+    int getPeakBuffered() {
+        return peakBuffered;
+    }
+
+    /**
+     * Items are inserted in merge order (newest first), so only the head of each map needs checking
+     */
+    private void evictOlderThan(long horizon, Listener listener) {
+        Iterator<RemoteSession> remotes = pendingRemote.values().iterator();
+        while (remotes.hasNext()) {
+            RemoteSession remote = remotes.next();
+            if (remote.createdEpochSecond() <= horizon) {
+                break;
+            }
+            remotes.remove();
+            listener.missingLocal(remote);
+        }
+
+        Iterator<LocalPayment> locals = pendingLocal.values().iterator();
+        while (locals.hasNext()) {
+            LocalPayment local = locals.next();
+            if (local.createdEpochSecond() <= horizon) {
+                break;
+            }
+            locals.remove();
+            listener.missingRemote(local);
+        }
+    }
+
+    private static <T> T next(Iterator<T> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+}
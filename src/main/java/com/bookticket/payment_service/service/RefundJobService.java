@@ -0,0 +1,529 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.RefundProperties;
+import com.bookticket.payment_service.dto.RefundJobItemResponse;
+import com.bookticket.payment_service.dto.RefundJobRequest;
+import com.bookticket.payment_service.dto.RefundJobResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.entity.RefundJob;
+import com.bookticket.payment_service.entity.RefundJobItem;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.enums.RefundItemStatus;
+import com.bookticket.payment_service.enums.RefundJobStatus;
+import com.bookticket.payment_service.exception.GatewayThrottledException;
+import com.bookticket.payment_service.exception.PaymentNotFoundException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.repository.RefundJobItemRepository;
+import com.bookticket.payment_service.repository.RefundJobRepository;
+import com.bookticket.payment_service.service.impl.PaymentGateway;
+import com.bookticket.payment_service.service.impl.PaymentGatewayRegistry;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk refunds, e.g. every booking of a cancelled show.
+ *
+ * A job and one item per payment are persisted up front. The job then runs in chunks: each chunk's refunds are
+ * sent to the gateway in parallel, and the results are checkpointed (payments first, then the items and job
+ * progress in one transaction), so a restarted job continues with the first unfinished chunk. Gateway calls use
+ * a per-payment idempotency key, so a chunk interrupted between the refund and its checkpoint is not refunded
+ * twice. Payments may live on other shards than the job, so they are always written in their own transactions.
+ *
+ * A job is run by the instance holding its lease, renewed at every checkpoint; jobs whose lease expired are
+ * resumed by any instance, at startup or by the periodic scan.
+ */
+@Service
+@Slf4j
+public class RefundJobService {
+
+    private static final int BOOKING_QUERY_CHUNK = 1000;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final PaymentRepository paymentRepository;
+    private final RefundJobRepository jobRepository;
+    private final RefundJobItemRepository itemRepository;
+    private final PaymentGatewayRegistry gatewayRegistry;
+    private final PaymentShardRouter shardRouter;
+    private final RefundProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+    private final ExecutorService jobExecutor;
+    private final ExecutorService refundExecutor;
+    private final Counter succeededCounter;
+    private final Counter failedCounter;
+    private final Counter retriedCounter;
+
+    public RefundJobService(PaymentRepository paymentRepository,
+                            RefundJobRepository jobRepository,
+                            RefundJobItemRepository itemRepository,
+                            PaymentGatewayRegistry gatewayRegistry,
+                            PaymentShardRouter shardRouter,
+                            RefundProperties properties,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.paymentRepository = paymentRepository;
+        this.jobRepository = jobRepository;
+        this.itemRepository = itemRepository;
+        this.gatewayRegistry = gatewayRegistry;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobExecutor = Executors.newFixedThreadPool(properties.getMaxConcurrentJobs(),
+                new CustomizableThreadFactory("refund-job-"));
+        this.refundExecutor = Executors.newFixedThreadPool(properties.getParallelism(),
+                new CustomizableThreadFactory("refund-worker-"));
+        this.succeededCounter = meterRegistry.counter("payment.refund.items", "outcome", "succeeded");
+        this.failedCounter = meterRegistry.counter("payment.refund.items", "outcome", "failed");
+        this.retriedCounter = meterRegistry.counter("payment.refund.items", "outcome", "retried");
+        Gauge.builder("payment.refund.jobs.running", runningJobs, Set::size)
+                .description("Refund jobs running on this instance")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Persist a job for the COMPLETED payments of the given bookings and start it
+     */
+    public RefundJobResponse createJob(RefundJobRequest request) {
+        List<Long> bookingIds = new ArrayList<>(request.bookingIds());
+        List<Payment> payments = new ArrayList<>();
+        for (Map.Entry<Integer, List<Long>> shard : shardRouter.groupByShard(bookingIds, Function.identity()).entrySet()) {
+            List<Long> shardBookingIds = shard.getValue();
+            for (int i = 0; i < shardBookingIds.size(); i += BOOKING_QUERY_CHUNK) {
+                List<Long> chunk = shardBookingIds.subList(i, Math.min(shardBookingIds.size(), i + BOOKING_QUERY_CHUNK));
+                payments.addAll(shardRouter.onShard(shard.getKey(),
+                        () -> paymentRepository.findByBookingIdInAndPaymentStatus(chunk, PaymentStatus.COMPLETED)));
+            }
+        }
+        Set<Long> coveredBookings = payments.stream().map(Payment::getBookingId).collect(Collectors.toSet());
+
+        // Items before payments: a payment left COMPLETED by a failure in between is still refunded by the job
+        RefundJob job = transactionTemplate.execute(status -> {
+            RefundJob newJob = jobRepository.save(RefundJob.builder()
+                    .showId(request.showId())
+                    .reason(request.reason())
+                    .status(RefundJobStatus.PENDING)
+                    .totalItems(payments.size())
+                    .skippedBookings(bookingIds.size() - coveredBookings.size())
+                    .build());
+
+            LocalDateTime now = LocalDateTime.now();
+            List<RefundJobItem> items = new ArrayList<>(payments.size());
+            for (Payment payment : payments) {
+                items.add(RefundJobItem.builder()
+                        .jobId(newJob.getId())
+                        .paymentId(payment.getId())
+                        .bookingId(payment.getBookingId())
+                        .amount(payment.getAmount())
+                        .status(RefundItemStatus.PENDING)
+                        .updatedAt(now)
+                        .build());
+            }
+            itemRepository.saveAll(items);
+            return newJob;
+        });
+
+        inShardTransactions(payments, Payment::getBookingId, shardPayments -> {
+            List<Payment> current = paymentRepository.findAllById(shardPayments.stream().map(Payment::getId).toList());
+            for (Payment payment : current) {
+                if (payment.getPaymentStatus() == PaymentStatus.COMPLETED) {
+                    payment.setPaymentStatus(PaymentStatus.REFUND_PENDING);
+                    payment.setPaymentGatewayResponse("Queued for refund in job " + job.getId());
+                }
+            }
+            paymentRepository.saveAll(current);
+        });
+        submit(job.getId());
+
+        log.info("Refund job {} created for show {}: {} payments, {} bookings without a completed payment",
+                job.getId(), job.getShowId(), job.getTotalItems(), job.getSkippedBookings());
+        return toResponse(job);
+    }
+
+    public RefundJobResponse getJob(Long jobId) {
+        return toResponse(findJob(jobId));
+    }
+
+    public List<RefundJobItemResponse> getItems(Long jobId, RefundItemStatus status, int limit) {
+        findJob(jobId);
+        return itemRepository.findByJobIdAndStatusOrderByIdAsc(jobId, status, PageRequest.of(0, limit)).stream()
+                .map(item -> new RefundJobItemResponse(item.getId(), item.getPaymentId(), item.getBookingId(),
+                        item.getAmount(), item.getStatus().name(), item.getRefundId(), item.getAttempts(),
+                        item.getLastError(), item.getUpdatedAt()))
+                .toList();
+    }
+
+    /**
+     * Stop a job: unattempted items are skipped and their payments go back to COMPLETED.
+     * Refunds already sent in the running chunk still complete and are recorded.
+     */
+    public RefundJobResponse cancel(Long jobId) {
+        RefundJob job = transactionTemplate.execute(status -> {
+            RefundJob current = findJob(jobId);
+            if (!current.getStatus().isActive()) {
+                throw new IllegalArgumentException("Refund job " + jobId + " is already " + current.getStatus());
+            }
+            LocalDateTime now = LocalDateTime.now();
+            current.setStatus(RefundJobStatus.CANCELLED);
+            current.setFinishedAt(now);
+            int skipped = itemRepository.updateStatusByJob(jobId, RefundItemStatus.PENDING, RefundItemStatus.SKIPPED, now);
+            log.info("Refund job {} cancelled, {} items skipped", jobId, skipped);
+            return jobRepository.save(current);
+        });
+        releaseSkippedPayments(jobId);
+        return toResponse(job);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        resumeOrphanedJobs();
+    }
+
+    /**
+     * Picks up active jobs nobody is running: left behind by a restart or by an instance that died
+     */
+    @Scheduled(fixedDelayString = "${payment.refunds.resume-interval-ms:60000}",
+            initialDelayString = "${payment.refunds.resume-interval-ms:60000}")
+    public void resumeOrphanedJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        for (RefundJob job : jobRepository.findByStatusIn(List.of(RefundJobStatus.PENDING, RefundJobStatus.RUNNING))) {
+            boolean orphaned = job.getLeaseExpiresAt() == null || job.getLeaseExpiresAt().isBefore(now)
+                    || instanceId.equals(job.getLeaseOwner());
+            if (orphaned && !runningJobs.contains(job.getId())) {
+                log.info("Resuming refund job {} ({}, {} of {} items done)", job.getId(), job.getStatus(),
+                        job.getSucceeded() + job.getFailed(), job.getTotalItems());
+                submit(job.getId());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Unfinished chunks are repeated by whichever instance resumes the job; idempotency keys make that safe
+        jobExecutor.shutdownNow();
+        refundExecutor.shutdownNow();
+    }
+
+    private void submit(Long jobId) {
+        if (!runningJobs.add(jobId)) {
+            return;
+        }
+        try {
+            jobExecutor.execute(() -> {
+                try {
+                    run(jobId);
+                } catch (RuntimeException e) {
+                    log.error("Refund job {} stopped: {}", jobId, e.getMessage(), e);
+                } finally {
+                    runningJobs.remove(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runningJobs.remove(jobId);
+        }
+    }
+
+    private void run(Long jobId) {
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> claimLease(jobId) && markRunning(jobId)))) {
+            log.debug("Refund job {} is not runnable here", jobId);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        int processed = 0;
+        long afterId = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            List<RefundJobItem> chunk = itemRepository.findByJobIdAndStatusAndIdGreaterThanOrderByIdAsc(
+                    jobId, RefundItemStatus.PENDING, afterId, PageRequest.of(0, properties.getCheckpointSize()));
+            if (chunk.isEmpty()) {
+                if (afterId == 0 || itemRepository.countByJobIdAndStatus(jobId, RefundItemStatus.PENDING) == 0) {
+                    break;
+                }
+                // Items left PENDING were throttled or failed with attempts to spare: another pass after a pause
+                afterId = 0;
+                if (!pause(properties.getRetryBackoff())
+                        || !Boolean.TRUE.equals(transactionTemplate.execute(status -> claimLease(jobId)))) {
+                    return;
+                }
+                continue;
+            }
+
+            List<ItemOutcome> outcomes = refundChunk(jobId, chunk);
+            processed += outcomes.size();
+            if (!checkpoint(jobId, chunk, outcomes)) {
+                log.info("Refund job {} stopped after {} items: cancelled or lease lost", jobId, processed);
+                return;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        RefundJob job = transactionTemplate.execute(status -> finish(jobId));
+        double seconds = Math.max(0.001, (System.nanoTime() - startNanos) / 1_000_000_000.0);
+        log.info("Refund job {} finished as {}: {} succeeded, {} failed, {} items in {} s ({} refunds/s)",
+                jobId, job.getStatus(), job.getSucceeded(), job.getFailed(), processed,
+                Math.round(seconds), Math.round(processed / seconds));
+    }
+
+    private List<ItemOutcome> refundChunk(Long jobId, List<RefundJobItem> chunk) {
+        Map<Long, Payment> payments = new HashMap<>();
+        for (Map.Entry<Integer, List<RefundJobItem>> shard : shardRouter.groupByShard(chunk, RefundJobItem::getBookingId).entrySet()) {
+            List<Long> paymentIds = shard.getValue().stream().map(RefundJobItem::getPaymentId).toList();
+            shardRouter.onShard(shard.getKey(), () -> paymentRepository.findAllById(paymentIds))
+                    .forEach(payment -> payments.put(payment.getId(), payment));
+        }
+        List<CompletableFuture<ItemOutcome>> futures = chunk.stream()
+                .map(item -> CompletableFuture.supplyAsync(
+                        () -> refundItem(jobId, item, payments.get(item.getPaymentId())), refundExecutor))
+                .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private ItemOutcome refundItem(Long jobId, RefundJobItem item, Payment payment) {
+        if (payment == null) {
+            return ItemOutcome.failed(item, "Payment " + item.getPaymentId() + " not found");
+        }
+        if (payment.getPaymentStatus() == PaymentStatus.REFUNDED) {
+            return ItemOutcome.succeeded(item, "already_refunded");
+        }
+        PaymentGateway gateway = gatewayRegistry.forPayment(payment).orElse(null);
+        if (gateway == null) {
+            return ItemOutcome.failed(item, "No gateway configured for payment method " + payment.getPaymentMethod());
+        }
+        try {
+            return ItemOutcome.succeeded(item, gateway.refund(payment, "refund-" + jobId + "-" + payment.getId()));
+        } catch (GatewayThrottledException e) {
+            // Live checkout traffic has the budget; not counted as an attempt
+            return ItemOutcome.retry(item, item.getAttempts(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Refund of payment {} in job {} failed (attempt {}): {}",
+                    payment.getId(), jobId, item.getAttempts() + 1, e.getMessage());
+            int attempts = item.getAttempts() + 1;
+            return attempts >= properties.getMaxAttempts()
+                    ? ItemOutcome.failed(item, attempts, e.getMessage())
+                    : ItemOutcome.retry(item, attempts, e.getMessage());
+        }
+    }
+
+    /**
+     * Record a chunk's results; returns false when the job should stop (cancelled, or the lease is gone).
+     * Payments are written first: if the item update is then lost, the next pass finds them REFUNDED.
+     */
+    private boolean checkpoint(Long jobId, List<RefundJobItem> chunk, List<ItemOutcome> outcomes) {
+        Map<Long, ItemOutcome> finished = outcomes.stream()
+                .filter(outcome -> outcome.status() != null)
+                .collect(Collectors.toMap(ItemOutcome::paymentId, Function.identity()));
+        List<RefundJobItem> finishedItems = chunk.stream().filter(item -> finished.containsKey(item.getPaymentId())).toList();
+
+        inShardTransactions(finishedItems, RefundJobItem::getBookingId, items -> {
+            List<Payment> payments = paymentRepository.findAllById(items.stream().map(RefundJobItem::getPaymentId).toList());
+            for (Payment payment : payments) {
+                ItemOutcome outcome = finished.get(payment.getId());
+                if (outcome.status() == RefundItemStatus.SUCCEEDED) {
+                    payment.setPaymentStatus(PaymentStatus.REFUNDED);
+                    payment.setPaymentGatewayResponse("Refunded in job " + jobId + ": " + outcome.refundId());
+                } else if (payment.getPaymentStatus() == PaymentStatus.REFUND_PENDING) {
+                    // Not refunded: the payment can be included in a later job
+                    payment.setPaymentStatus(PaymentStatus.COMPLETED);
+                    payment.setPaymentGatewayResponse("Refund failed in job " + jobId + ": " + outcome.error());
+                }
+            }
+            paymentRepository.saveAll(payments);
+        });
+
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> recordItems(jobId, outcomes)));
+    }
+
+    private boolean recordItems(Long jobId, List<ItemOutcome> outcomes) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, RefundJobItem> items = itemRepository.findAllById(
+                        outcomes.stream().map(ItemOutcome::itemId).toList()).stream()
+                .collect(Collectors.toMap(RefundJobItem::getId, Function.identity()));
+
+        int succeeded = 0;
+        int failed = 0;
+        for (ItemOutcome outcome : outcomes) {
+            RefundJobItem item = items.get(outcome.itemId());
+            item.setAttempts(outcome.attempts());
+            item.setLastError(outcome.error());
+            item.setUpdatedAt(now);
+            if (outcome.status() == RefundItemStatus.SUCCEEDED) {
+                item.setStatus(RefundItemStatus.SUCCEEDED);
+                item.setRefundId(outcome.refundId());
+                succeeded++;
+                succeededCounter.increment();
+            } else if (outcome.status() == RefundItemStatus.FAILED) {
+                item.setStatus(RefundItemStatus.FAILED);
+                failed++;
+                failedCounter.increment();
+            } else {
+                retriedCounter.increment();
+            }
+        }
+        itemRepository.saveAll(items.values());
+        jobRepository.addProgress(jobId, succeeded, failed);
+
+        RefundJobStatus jobStatus = jobRepository.findById(jobId).map(RefundJob::getStatus).orElse(RefundJobStatus.CANCELLED);
+        return jobStatus.isActive() && claimLease(jobId);
+    }
+
+    /**
+     * Put the payments of a cancelled job's skipped items back to COMPLETED, page by page
+     */
+    private void releaseSkippedPayments(Long jobId) {
+        long afterId = 0;
+        List<RefundJobItem> page;
+        do {
+            page = itemRepository.findByJobIdAndStatusAndIdGreaterThanOrderByIdAsc(
+                    jobId, RefundItemStatus.SKIPPED, afterId, PageRequest.of(0, BOOKING_QUERY_CHUNK));
+            inShardTransactions(page, RefundJobItem::getBookingId, items -> {
+                List<Payment> released = paymentRepository.findAllById(
+                                items.stream().map(RefundJobItem::getPaymentId).toList()).stream()
+                        .filter(payment -> payment.getPaymentStatus() == PaymentStatus.REFUND_PENDING)
+                        .toList();
+                released.forEach(payment -> payment.setPaymentStatus(PaymentStatus.COMPLETED));
+                paymentRepository.saveAll(released);
+            });
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == BOOKING_QUERY_CHUNK);
+    }
+
+    /**
+     * Apply work to the items of each shard, in one transaction per shard
+     */
+    private <T> void inShardTransactions(Collection<T> items, Function<T, Long> bookingId, Consumer<List<T>> work) {
+        for (Map.Entry<Integer, List<T>> shard : shardRouter.groupByShard(items, bookingId).entrySet()) {
+            shardRouter.onShard(shard.getKey(), () -> {
+                transactionTemplate.executeWithoutResult(status -> work.accept(shard.getValue()));
+                return null;
+            });
+        }
+    }
+
+    private boolean claimLease(Long jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        return jobRepository.claimLease(jobId, instanceId, now.plus(properties.getLease()), now) == 1;
+    }
+
+    private boolean markRunning(Long jobId) {
+        RefundJob job = findJob(jobId);
+        if (!job.getStatus().isActive()) {
+            return false;
+        }
+        if (job.getStatus() == RefundJobStatus.PENDING) {
+            job.setStatus(RefundJobStatus.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+            jobRepository.save(job);
+        }
+        return true;
+    }
+
+    private RefundJob finish(Long jobId) {
+        RefundJob job = findJob(jobId);
+        if (job.getStatus() == RefundJobStatus.RUNNING) {
+            job.setStatus(job.getFailed() > 0 ? RefundJobStatus.COMPLETED_WITH_ERRORS : RefundJobStatus.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+        }
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        return jobRepository.save(job);
+    }
+
+    private boolean pause(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private RefundJob findJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new PaymentNotFoundException("Refund job not found: " + jobId));
+    }
+
+    private RefundJobResponse toResponse(RefundJob job) {
+        long pending = job.getStatus().isActive()
+                ? itemRepository.countByJobIdAndStatus(job.getId(), RefundItemStatus.PENDING)
+                : 0;
+        int processed = job.getSucceeded() + job.getFailed();
+        double refundsPerSecond = 0;
+        Long etaSeconds = null;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            double seconds = Duration.between(job.getStartedAt(), end).toMillis() / 1000.0;
+            refundsPerSecond = seconds > 0 ? processed / seconds : 0;
+            if (refundsPerSecond > 0 && pending > 0) {
+                etaSeconds = Math.round(pending / refundsPerSecond);
+            }
+        }
+        return new RefundJobResponse(job.getId(), job.getStatus().name(), job.getShowId(), job.getReason(),
+                job.getTotalItems(), job.getSucceeded(), job.getFailed(), pending, job.getSkippedBookings(),
+                job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt(), refundsPerSecond, etaSeconds);
+    }
+
+    /**
+     * Result of one refund attempt; a null status means the item stays PENDING for a later pass
+     */
+    private record ItemOutcome(Long itemId, Long paymentId, RefundItemStatus status, String refundId,
+                               int attempts, String error) {
+
+        static ItemOutcome succeeded(RefundJobItem item, String refundId) {
+            return new ItemOutcome(item.getId(), item.getPaymentId(), RefundItemStatus.SUCCEEDED, refundId,
+                    item.getAttempts() + 1, null);
+        }
+
+        static ItemOutcome failed(RefundJobItem item, String error) {
+            return failed(item, item.getAttempts() + 1, error);
+        }
+
+        static ItemOutcome failed(RefundJobItem item, int attempts, String error) {
+            return new ItemOutcome(item.getId(), item.getPaymentId(), RefundItemStatus.FAILED, null, attempts,
+                    truncate(error));
+        }
+
+        static ItemOutcome retry(RefundJobItem item, int attempts, String error) {
+            return new ItemOutcome(item.getId(), item.getPaymentId(), null, null, attempts, truncate(error));
+        }
+
+        private static String truncate(String error) {
+            return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bookticket.payment_service.service.impl;
+
+import com.bookticket.payment_service.configuration.GatewayRoutingProperties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rolling latency and error rate of one gateway, as exponentially weighted moving averages.
+ *
+ * Updates are synchronized on the instance; reads go through volatile fields so routing decisions
+ * never block behind a recording thread.
+ */
+class GatewayHealth {
+
+    private final PaymentGateway gateway;
+    private final GatewayRoutingProperties properties;
+    private final AtomicLong nextProbeAtNanos = new AtomicLong();
+
+    private volatile double latencyMs;
+    private volatile double errorRate;
+    private volatile long samples;
+
+    GatewayHealth(PaymentGateway gateway, GatewayRoutingProperties properties) {
+        this.gateway = gateway;
+        this.properties = properties;
+    }
+
+    PaymentGateway getGateway() {
+        return gateway;
+    }
+
+    double getLatencyMs() {
+        return latencyMs;
+    }
+
+    double getErrorRate() {
+        return errorRate;
+    }
+
+    synchronized void recordSuccess(long elapsedNanos) {
+        record(elapsedNanos, 0.0);
+    }
+
+    synchronized void recordFailure(long elapsedNanos) {
+        record(elapsedNanos, 1.0);
+        nextProbeAtNanos.set(System.nanoTime() + TimeUnit.SECONDS.toNanos(properties.getProbeIntervalSeconds()));
+    }
+
+    private void record(long elapsedNanos, double outcome) {
+        double elapsedMs = elapsedNanos / 1_000_000.0;
+        if (samples == 0) {
+            latencyMs = elapsedMs;
+            errorRate = outcome;
+        } else {
+            double alpha = properties.getSmoothingFactor();
+            latencyMs = alpha * elapsedMs + (1 - alpha) * latencyMs;
+            errorRate = alpha * outcome + (1 - alpha) * errorRate;
+        }
+        samples++;
+    }
+
+    boolean isDegraded() {
+        return samples >= properties.getMinSamples() && errorRate > properties.getErrorRateThreshold();
+    }
+
+    /**
+     * Lets exactly one caller per probe interval through to a degraded gateway, so it can recover
+     */
+    boolean tryAcquireProbe() {
+        long now = System.nanoTime();
+        long next = nextProbeAtNanos.get();
+        return now - next >= 0 && nextProbeAtNanos.compareAndSet(next,
+                now + TimeUnit.SECONDS.toNanos(properties.getProbeIntervalSeconds()));
+    }
+
+    /**
+     * Lower is better. Gateways without samples score 0 so each one gets tried at least once.
+     */
+    double score() {
+        return latencyMs * (1 + properties.getErrorPenalty() * errorRate);
+    }
+}
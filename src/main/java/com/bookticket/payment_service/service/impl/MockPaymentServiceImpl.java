@@ -1,4 +1,153 @@
 package com.bookticket.payment_service.service.impl;
 
-//public class MockPaymentServiceImpl {
-//}
+import com.bookticket.payment_service.configuration.MockGatewayProperties;
+import com.bookticket.payment_service.dto.CheckoutSessionRequest;
+import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.CheckoutNotRecordedException;
+import com.bookticket.payment_service.exception.PaymentNotFoundException;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.PaymentInsertBatcher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulated gateway with configurable latency and failure rate, for local runs and routing tests.
+ * Enabled with payment.gateways.mock.enabled=true.
+ */
+@Service
+@ConditionalOnProperty(prefix = "payment.gateways.mock", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class MockPaymentServiceImpl implements PaymentGateway {
+
+    public static final String PAYMENT_METHOD = "Mock_Checkout_Session";
+    private static final String SESSION_ID_PREFIX = "mock_cs_";
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentInsertBatcher paymentInsertBatcher;
+    private final MockGatewayProperties properties;
+
+    @Override
+    public String getGatewayName() {
+        return "mock";
+    }
+
+    @Override
+    public String getPaymentMethod() {
+        return PAYMENT_METHOD;
+    }
+
+    @Override
+    public boolean ownsSession(String sessionId) {
+        return sessionId != null && sessionId.startsWith(SESSION_ID_PREFIX);
+    }
+
+    @Override
+    public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request) {
+        return createCheckoutSession(request, null);
+    }
+
+    @Override
+    public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request, Payment intent) {
+        simulateRoundTrip();
+        String sessionId = SESSION_ID_PREFIX + UUID.randomUUID();
+        String paymentUrl = "https://mock-gateway.local/pay/" + sessionId;
+
+        Payment payment = intent != null ? intent : Payment.builder()
+                .bookingId(request.bookingId())
+                .userId(request.userId())
+                .amount(request.amount())
+                .build();
+        payment.setPaymentMethod(PAYMENT_METHOD);
+        payment.setPaymentStatus(PaymentStatus.PENDING);
+        payment.setTransactionId(sessionId);
+        payment.setPaymentUrl(paymentUrl);
+        payment.setPaymentGatewayResponse("Mock session created: " + sessionId);
+        try {
+            if (intent != null) {
+                paymentRepository.save(payment);
+            } else {
+                paymentInsertBatcher.insert(payment);
+            }
+        } catch (RuntimeException e) {
+            throw new CheckoutNotRecordedException(sessionId, e);
+        }
+        log.info("Mock checkout session created: {} for booking ID: {}", sessionId, request.bookingId());
+
+        return new CheckoutSessionResponse(
+                sessionId,
+                paymentUrl,
+                request.bookingId(),
+                request.amount(),
+                "pending",
+                "Mock checkout session created.",
+                Instant.now().plus(30, ChronoUnit.MINUTES).getEpochSecond()
+        );
+    }
+
+    @Override
+    @Transactional
+    public PaymentResponse verifyCheckoutSession(String sessionId) {
+        simulateRoundTrip();
+        Payment payment = paymentRepository.findByTransactionId(sessionId)
+                .orElseThrow(() -> new PaymentNotFoundException("Payment not found for session ID: " + sessionId));
+
+        boolean paid = payment.getCreatedAt() == null || !payment.getCreatedAt()
+                .plusSeconds(properties.getCompleteAfterSeconds()).isAfter(LocalDateTime.now());
+        if (payment.getPaymentStatus() == PaymentStatus.PENDING && paid) {
+            payment.setPaymentStatus(PaymentStatus.COMPLETED);
+            payment.setPaymentGatewayResponse("Mock session paid: " + sessionId);
+            paymentRepository.save(payment);
+        }
+        return new PaymentResponse(
+                payment.getId(),
+                payment.getBookingId(),
+                payment.getPaymentStatus().name(),
+                payment.getTransactionId(),
+                payment.getAmount(),
+                payment.getPaymentStatus() == PaymentStatus.COMPLETED
+                        ? "Payment verification successful"
+                        : "Payment is Pending. Please try again."
+        );
+    }
+
+    @Override
+    public void expireSession(String sessionId) {
+        simulateRoundTrip();
+        log.info("Mock session expired: {}", sessionId);
+    }
+
+    @Override
+    public String refund(Payment payment, String idempotencyKey) {
+        simulateRoundTrip();
+        // Deterministic per key, like an idempotent gateway
+        return "mock_re_" + UUID.nameUUIDFromBytes(idempotencyKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void simulateRoundTrip() {
+        long jitter = properties.getJitterMs() > 0 ? ThreadLocalRandom.current().nextLong(properties.getJitterMs() + 1) : 0;
+        try {
+            Thread.sleep(properties.getLatencyMs() + jitter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentProcessingException("Mock gateway call interrupted", e);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < properties.getFailureRate()) {
+            throw new PaymentProcessingException("Simulated mock gateway failure");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.bookticket.payment_service.service.impl;
+
+import com.bookticket.payment_service.dto.CheckoutSessionRequest;
+import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.exception.CheckoutNotRecordedException;
+import com.bookticket.payment_service.exception.DeadlineExceededException;
+import com.bookticket.payment_service.service.PaymentService;
+
+/**
+ * SPI implemented by every payment provider integration.
+ *
+ * A gateway owns the sessions it creates: verification and expiry are always sent back to the gateway whose
+ * {@link #getPaymentMethod()} is stored on the Payment, or whose {@link #ownsSession(String)} claims the ID.
+ */
+public interface PaymentGateway extends PaymentService {
+
+    /**
+     * Short name used for routing, metrics and logs (e.g. "stripe")
+     */
+    String getGatewayName();
+
+    /**
+     * Value stored in Payment.paymentMethod for payments created through this gateway
+     */
+    String getPaymentMethod();
+
+    /**
+     * Whether a session/transaction ID was issued by this gateway
+     */
+    boolean ownsSession(String sessionId);
+
+    /**
+     * Create the checkout session for a payment already stored as a PENDING intent, filling in the intent's
+     * session details instead of inserting a new payment; a null intent is a regular checkout. Every gateway must
+     * support intents, since routing may send any checkout to any gateway.
+     */
+    CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request, Payment intent);
+
+    /**
+     * Expire an open session so it can no longer be paid
+     */
+    void expireSession(String sessionId);
+
+    /**
+     * Refund a completed payment in full and return the gateway's refund reference.
+     * Calls with the same idempotency key must refund at most once, so a retried or resumed job is safe.
+     */
+    String refund(Payment payment, String idempotencyKey);
+
+    /**
+     * Whether a failure says something about the gateway's health (and another gateway may succeed),
+     * as opposed to a problem with the request itself or with storing the session the gateway created
+     */
+    default boolean isGatewayFailure(RuntimeException e) {
+        return !(e instanceof IllegalArgumentException) && !(e instanceof DeadlineExceededException)
+                && !(e instanceof CheckoutNotRecordedException);
+    }
+}
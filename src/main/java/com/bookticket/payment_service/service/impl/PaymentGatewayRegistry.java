@@ -0,0 +1,43 @@
+package com.bookticket.payment_service.service.impl;
+
+import com.bookticket.payment_service.entity.Payment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Looks up the gateway that owns a payment or session
+ */
+@Component
+public class PaymentGatewayRegistry {
+
+    private final List<PaymentGateway> gateways;
+
+    public PaymentGatewayRegistry(List<PaymentGateway> gateways) {
+        if (gateways.isEmpty()) {
+            throw new IllegalStateException("At least one payment gateway must be configured");
+        }
+        this.gateways = List.copyOf(gateways);
+    }
+
+    public List<PaymentGateway> getGateways() {
+        return gateways;
+    }
+
+    public Optional<PaymentGateway> forPaymentMethod(String paymentMethod) {
+        return gateways.stream()
+                .filter(gateway -> gateway.getPaymentMethod().equals(paymentMethod))
+                .findFirst();
+    }
+
+    public Optional<PaymentGateway> forPayment(Payment payment) {
+        return forPaymentMethod(payment.getPaymentMethod());
+    }
+
+    public Optional<PaymentGateway> forSession(String sessionId) {
+        return gateways.stream()
+                .filter(gateway -> gateway.ownsSession(sessionId))
+                .findFirst();
+    }
+}
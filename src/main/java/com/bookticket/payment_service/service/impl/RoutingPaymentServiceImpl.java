@@ -0,0 +1,233 @@
+package com.bookticket.payment_service.service.impl;
+
+import com.bookticket.payment_service.configuration.GatewayRoutingProperties;
+import com.bookticket.payment_service.dto.CheckoutSessionRequest;
+import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.exception.PaymentNotFoundException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.resilience.RequestDeadline;
+import com.bookticket.payment_service.service.PaymentService;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.bookticket.payment_service.startup.WarmupTraffic;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point used by the controller: sends new checkouts to the healthiest, fastest gateway and fails over
+ * when it errors, while verification stays pinned to the gateway that created the session.
+ * Warm-up requests go to WarmupRunner's stand-in gateway instead (see {@link WarmupTraffic}).
+ */
+@Service
+@Primary
+@Slf4j
+public class RoutingPaymentServiceImpl implements PaymentService {
+
+    private final PaymentGatewayRegistry gatewayRegistry;
+    private final PaymentRepository paymentRepository;
+    private final PaymentShardRouter shardRouter;
+    private final GatewayRoutingProperties routingProperties;
+    private final WarmupTraffic warmupTraffic;
+    private final MeterRegistry meterRegistry;
+    private final Map<PaymentGateway, GatewayHealth> healthByGateway = new IdentityHashMap<>();
+
+    public RoutingPaymentServiceImpl(PaymentGatewayRegistry gatewayRegistry,
+                                     PaymentRepository paymentRepository,
+                                     PaymentShardRouter shardRouter,
+                                     GatewayRoutingProperties routingProperties,
+                                     WarmupTraffic warmupTraffic,
+                                     MeterRegistry meterRegistry) {
+        this.gatewayRegistry = gatewayRegistry;
+        this.paymentRepository = paymentRepository;
+        this.shardRouter = shardRouter;
+        this.routingProperties = routingProperties;
+        this.warmupTraffic = warmupTraffic;
+        this.meterRegistry = meterRegistry;
+
+        for (PaymentGateway gateway : gatewayRegistry.getGateways()) {
+            GatewayHealth health = new GatewayHealth(gateway, routingProperties);
+            healthByGateway.put(gateway, health);
+            Gauge.builder("payment.gateway.latency", health, GatewayHealth::getLatencyMs)
+                    .tag("gateway", gateway.getGatewayName())
+                    .baseUnit("milliseconds")
+                    .description("Smoothed gateway call latency")
+                    .register(meterRegistry);
+            Gauge.builder("payment.gateway.error.rate", health, GatewayHealth::getErrorRate)
+                    .tag("gateway", gateway.getGatewayName())
+                    .description("Smoothed gateway error rate")
+                    .register(meterRegistry);
+            Gauge.builder("payment.gateway.degraded", health, h -> h.isDegraded() ? 1 : 0)
+                    .tag("gateway", gateway.getGatewayName())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request) {
+        return createCheckoutSession(request, null);
+    }
+
+    /**
+     * Create the session for a payment stored as a PENDING intent by CheckoutIntentService, or a new one if null
+     */
+    public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request, Payment intent) {
+        List<GatewayHealth> candidates = warmupTraffic.gatewayForCurrentRequest()
+                .map(gateway -> List.of(healthOf(gateway)))
+                .orElseGet(this::rankForCheckout);
+        RuntimeException lastFailure = null;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            RequestDeadline.check(i == 0 ? "checkout" : "checkout_failover");
+            GatewayHealth candidate = candidates.get(i);
+            PaymentGateway gateway = candidate.getGateway();
+            long startNanos = System.nanoTime();
+            try {
+                CheckoutSessionResponse response = shardRouter.forBooking(request.bookingId(),
+                        () -> gateway.createCheckoutSession(request, intent));
+                candidate.recordSuccess(System.nanoTime() - startNanos);
+                shardRouter.register(response.sessionId(), request.bookingId());
+                return response;
+            } catch (RuntimeException e) {
+                if (!gateway.isGatewayFailure(e)) {
+                    throw e;
+                }
+                candidate.recordFailure(System.nanoTime() - startNanos);
+                lastFailure = e;
+                if (i + 1 < candidates.size()) {
+                    String next = candidates.get(i + 1).getGateway().getGatewayName();
+                    log.warn("Gateway {} failed to create checkout session for booking ID {}, failing over to {}: {}",
+                            gateway.getGatewayName(), request.bookingId(), next, e.getMessage());
+                    meterRegistry.counter("payment.gateway.failover", "from", gateway.getGatewayName(), "to", next)
+                            .increment();
+                }
+            }
+        }
+        throw lastFailure;
+    }
+
+    @Override
+    public PaymentResponse verifyCheckoutSession(String sessionId) {
+        RequestDeadline.check("verify");
+        return shardRouter.forTransaction(sessionId, () -> verifyOnShard(sessionId));
+    }
+
+    @Override
+    public PaymentResponse getPaymentStatus(String transactionId) {
+        RequestDeadline.check("status");
+        return shardRouter.forTransaction(transactionId, () -> statusOnShard(transactionId));
+    }
+
+    @Override
+    public List<PaymentResponse> getPaymentStatuses(Collection<String> transactionIds) {
+        RequestDeadline.check("status");
+        return findByTransactionIds(transactionIds).stream()
+                .map(RoutingPaymentServiceImpl::toStatusResponse)
+                .toList();
+    }
+
+    /**
+     * Payments with the given transaction IDs; with sharding one IN query per shard, in parallel, rather than a
+     * directory lookup per ID
+     */
+    public List<Payment> findByTransactionIds(Collection<String> transactionIds) {
+        if (!shardRouter.isSharded()) {
+            return paymentRepository.findByTransactionIdIn(transactionIds);
+        }
+        return shardRouter.scatter(shard -> paymentRepository.findByTransactionIdIn(transactionIds)).stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    private PaymentResponse verifyOnShard(String sessionId) {
+        PaymentGateway gateway = resolveGateway(sessionId);
+        GatewayHealth health = healthOf(gateway);
+        long startNanos = System.nanoTime();
+        try {
+            PaymentResponse response = gateway.verifyCheckoutSession(sessionId);
+            health.recordSuccess(System.nanoTime() - startNanos);
+            return response;
+        } catch (RuntimeException e) {
+            if (gateway.isGatewayFailure(e)) {
+                health.recordFailure(System.nanoTime() - startNanos);
+            }
+            throw e;
+        }
+    }
+
+    private PaymentResponse statusOnShard(String transactionId) {
+        Payment payment = paymentRepository.findByTransactionId(transactionId)
+                .orElseThrow(() -> new PaymentNotFoundException(
+                        "Payment not found for transaction ID: " + transactionId));
+        return toStatusResponse(payment);
+    }
+
+    public static PaymentResponse toStatusResponse(Payment payment) {
+        return new PaymentResponse(
+                payment.getId(),
+                payment.getBookingId(),
+                payment.getPaymentStatus().name(),
+                payment.getTransactionId(),
+                payment.getAmount(),
+                "Payment status retrieved"
+        );
+    }
+
+    /**
+     * Healthy gateways by score; a degraded gateway due for a probe goes first (failover covers a failed probe),
+     * other degraded gateways are kept as a last resort
+     */
+    List<GatewayHealth> rankForCheckout() {
+        List<GatewayHealth> healthy = new ArrayList<>();
+        List<GatewayHealth> degraded = new ArrayList<>();
+        GatewayHealth probe = null;
+        for (GatewayHealth health : healthByGateway.values()) {
+            if (!health.isDegraded()) {
+                healthy.add(health);
+            } else if (probe == null && health.tryAcquireProbe()) {
+                probe = health;
+            } else {
+                degraded.add(health);
+            }
+        }
+        healthy.sort(Comparator.comparingDouble(GatewayHealth::score));
+        degraded.sort(Comparator.comparingDouble(GatewayHealth::score));
+
+        List<GatewayHealth> ranked = new ArrayList<>(healthByGateway.size());
+        if (probe != null) {
+            ranked.add(probe);
+        }
+        ranked.addAll(healthy);
+        ranked.addAll(degraded);
+        return ranked;
+    }
+
+    /**
+     * The warm-up stand-in is not ranked with the registered gateways, so its calls are tracked apart
+     */
+    private GatewayHealth healthOf(PaymentGateway gateway) {
+        GatewayHealth health = healthByGateway.get(gateway);
+        return health != null ? health : new GatewayHealth(gateway, routingProperties);
+    }
+
+    /**
+     * Sessions are pinned to their gateway: by ID format first, then by the payment method stored on the record
+     */
+    private PaymentGateway resolveGateway(String sessionId) {
+        return warmupTraffic.gatewayForCurrentRequest()
+                .filter(gateway -> gateway.ownsSession(sessionId))
+                .or(() -> gatewayRegistry.forSession(sessionId))
+                .or(() -> paymentRepository.findByTransactionId(sessionId).flatMap(gatewayRegistry::forPayment))
+                .orElseThrow(() -> new PaymentNotFoundException("Payment not found for session ID: " + sessionId));
+    }
+}
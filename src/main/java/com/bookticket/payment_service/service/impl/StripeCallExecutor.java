@@ -0,0 +1,101 @@
+package com.bookticket.payment_service.service.impl;
+
+import com.bookticket.payment_service.configuration.DeadlineProperties;
+import com.bookticket.payment_service.enums.StripeCallPriority;
+import com.bookticket.payment_service.exception.DeadlineExceededException;
+import com.bookticket.payment_service.observability.RequestTimeline;
+import com.bookticket.payment_service.resilience.RequestDeadline;
+import com.bookticket.payment_service.resilience.StripeRateGovernor;
+import com.bookticket.payment_service.resilience.StripeReadHedger;
+import com.stripe.Stripe;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.RequestOptions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single path for every outbound Stripe request, so each one is counted against the shared rate budget.
+ * Within a request that carries a deadline, calls are not started once too little time is left, and their
+ * timeouts are cut to the time remaining.
+ */
+@Component
+@RequiredArgsConstructor
+public class StripeCallExecutor {
+
+    private final StripeRateGovernor rateGovernor;
+    private final DeadlineProperties deadlineProperties;
+    private final StripeReadHedger readHedger;
+
+    public <T> T execute(StripeCallPriority priority, StripeCall<T> call) throws StripeException {
+        return execute(priority, RequestOptions.getDefault(), call);
+    }
+
+    /**
+     * Same as {@link #execute(StripeCallPriority, StripeCall)}, sent with an idempotency key so Stripe
+     * applies a retried request only once
+     */
+    public <T> T execute(StripeCallPriority priority, String idempotencyKey, StripeCall<T> call)
+            throws StripeException {
+        return execute(priority, RequestOptions.builder().setIdempotencyKey(idempotencyKey).build(), call);
+    }
+
+    /**
+     * For idempotent reads only: a read slower than usual for the operation may be sent a second time, and the
+     * first answer wins (stripe.hedging). The hedge needs its own rate governor token, available right away.
+     */
+    public <T> T executeRead(StripeCallPriority priority, String operation, StripeCall<T> call) throws StripeException {
+        return execute(priority, RequestOptions.getDefault(), options -> readHedger.execute(operation,
+                () -> rateGovernor.tryAcquireNow(priority), () -> call.execute(options)));
+    }
+
+    private <T> T execute(StripeCallPriority priority, RequestOptions requestOptions, StripeCall<T> call)
+            throws StripeException {
+        RequestDeadline.check("stripe_queue");
+        long queuedNanos = System.nanoTime();
+        rateGovernor.acquire(priority);
+        long startNanos = System.nanoTime();
+        RequestTimeline.record(RequestTimeline.Stage.STRIPE_QUEUE, startNanos - queuedNanos);
+        try {
+            return call.execute(withinDeadline(requestOptions));
+        } catch (ApiConnectionException e) {
+            // Most likely the read timeout cut to the deadline
+            if (RequestDeadline.isExpired()) {
+                throw new DeadlineExceededException("stripe", e);
+            }
+            throw e;
+        } finally {
+            RequestTimeline.record(RequestTimeline.Stage.STRIPE, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Timeouts no longer than the time left, and no network retries, which could not finish in time
+     */
+    private RequestOptions withinDeadline(RequestOptions requestOptions) {
+        long remainingNanos = RequestDeadline.remainingNanos();
+        if (remainingNanos == Long.MAX_VALUE) {
+            return requestOptions;
+        }
+        if (remainingNanos < deadlineProperties.getMinStripeBudget().toNanos()) {
+            throw new DeadlineExceededException("stripe");
+        }
+        int remainingMillis = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+        return requestOptions.toBuilderFullCopy()
+                .setConnectTimeout(Math.min(remainingMillis, timeout(requestOptions.getConnectTimeout(), Stripe.getConnectTimeout())))
+                .setReadTimeout(Math.min(remainingMillis, timeout(requestOptions.getReadTimeout(), Stripe.getReadTimeout())))
+                .setMaxNetworkRetries(0)
+                .build();
+    }
+
+    private static int timeout(Integer configured, int global) {
+        return configured != null ? configured : global;
+    }
+
+    @FunctionalInterface
+    public interface StripeCall<T> {
+        T execute(RequestOptions requestOptions) throws StripeException;
+    }
+}
@@ -4,13 +4,20 @@ import com.bookticket.payment_service.configuration.StripeConfig;
 import com.bookticket.payment_service.dto.*;
 import com.bookticket.payment_service.entity.Payment;
 import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.enums.StripeCallPriority;
+import com.bookticket.payment_service.exception.CheckoutNotRecordedException;
+import com.bookticket.payment_service.exception.DeadlineExceededException;
+import com.bookticket.payment_service.exception.GatewayThrottledException;
 import com.bookticket.payment_service.exception.PaymentNotFoundException;
 import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.bookticket.payment_service.observability.StripeCallEvent;
 import com.bookticket.payment_service.repository.PaymentRepository;
-import com.bookticket.payment_service.service.PaymentService;
+import com.bookticket.payment_service.service.PaymentInsertBatcher;
 import com.stripe.exception.*;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
 import com.stripe.model.checkout.Session;
+import com.stripe.param.RefundCreateParams;
 import com.stripe.param.checkout.SessionCreateParams;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,10 +30,42 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class StripePaymentServiceImpl implements PaymentService {
+public class StripePaymentServiceImpl implements PaymentGateway {
+
+    public static final String PAYMENT_METHOD = "Stripe_Checkout_Session";
+    private static final String SESSION_ID_PREFIX = "cs_";
 
     private final PaymentRepository paymentRepository;
+    private final PaymentInsertBatcher paymentInsertBatcher;
     private final StripeConfig stripeConfig;
+    private final StripeCallExecutor stripeCallExecutor;
+
+    @Override
+    public String getGatewayName() {
+        return "stripe";
+    }
+
+    @Override
+    public String getPaymentMethod() {
+        return PAYMENT_METHOD;
+    }
+
+    @Override
+    public boolean ownsSession(String sessionId) {
+        return sessionId != null && sessionId.startsWith(SESSION_ID_PREFIX);
+    }
+
+    /**
+     * Only failed Stripe calls count; rejected requests (bad parameters, unknown session) and local errors such as
+     * a failed database write say nothing about Stripe's health
+     */
+    @Override
+    public boolean isGatewayFailure(RuntimeException e) {
+        if (e instanceof GatewayThrottledException) {
+            return true;
+        }
+        return e.getCause() instanceof StripeException && !(e.getCause() instanceof InvalidRequestException);
+    }
 
     /**
      * Create Stripe Checkout Session - SECURE & BACKEND-FOCUSED
@@ -43,9 +82,13 @@ public class StripePaymentServiceImpl implements PaymentService {
      * - 100% PCI Compliant (card details never touch your server)
      */
     @Override
-    @Transactional
     public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request) {
-        log.info("Creating Checkout Session for booking ID: {}, amount: {}",
+        return createCheckoutSession(request, null);
+    }
+
+    @Override
+    public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request, Payment intent) {
+        log.debug("Creating Checkout Session for booking ID: {}, amount: {}",
                 request.bookingId(), request.amount());
 
         try {
@@ -92,24 +135,45 @@ public class StripePaymentServiceImpl implements PaymentService {
                     .build();
 
             // Create Checkout Session via Stripe API
-            Session session = Session.create(params);
+            StripeCallEvent event = StripeCallEvent.begin("create", request.bookingId(), null);
+            Session session;
+            try {
+                session = stripeCallExecutor.execute(StripeCallPriority.CREATE,
+                        options -> Session.create(params, options));
+            } catch (StripeException | RuntimeException e) {
+                event.fail(e);
+                throw e;
+            }
+            event.succeed(request.bookingId(), session.getId(), session.getStatus());
 
             log.info("Checkout Session created successfully: {}, URL: {}",
                     session.getId(), session.getUrl());
 
-            // Save initial payment record
-            Payment payment = Payment.builder()
+            // Save initial payment record, or complete the intent stored when the checkout was accepted
+            Payment payment = intent != null ? intent : Payment.builder()
                     .bookingId(request.bookingId())
                     .userId(request.userId())
                     .amount(request.amount())
-                    .paymentMethod("Stripe_Checkout_Session")
-                    .paymentStatus(PaymentStatus.PENDING)
-                    .transactionId(session.getId())
-                    .paymentGatewayResponse("Checkout Session created: " + session.getId())
                     .build();
-            paymentRepository.save(payment);
+            payment.setPaymentMethod(PAYMENT_METHOD);
+            payment.setPaymentStatus(PaymentStatus.PENDING);
+            payment.setTransactionId(session.getId());
+            payment.setPaymentUrl(session.getUrl());
+            payment.setPaymentGatewayResponse("Checkout Session created: " + session.getId());
+            try {
+                if (intent != null) {
+                    paymentRepository.save(payment);
+                } else {
+                    paymentInsertBatcher.insert(payment);
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not record Checkout Session {} for booking ID {}, expiring it: {}",
+                        session.getId(), request.bookingId(), e.getMessage(), e);
+                expireUnrecorded(session.getId());
+                throw new CheckoutNotRecordedException(session.getId(), e);
+            }
 
-            log.info("Payment record saved with Checkout Session ID: {}", session.getId());
+            log.debug("Payment record saved with Checkout Session ID: {}", session.getId());
 
             return new CheckoutSessionResponse(
                     session.getId(),
@@ -121,6 +185,9 @@ public class StripePaymentServiceImpl implements PaymentService {
                     session.getExpiresAt()
             );
 
+        } catch (GatewayThrottledException | DeadlineExceededException | CheckoutNotRecordedException e) {
+            throw e;
+
         } catch (InvalidRequestException e) {
             log.error("Invalid request creating Checkout Session for booking ID {}: Param: {}, Message: {}",
                     request.bookingId(), e.getParam(), e.getMessage(), e);
@@ -160,7 +227,7 @@ public class StripePaymentServiceImpl implements PaymentService {
     @Override
     @Transactional
     public PaymentResponse verifyCheckoutSession(String sessionId) {
-        log.info("Verifying Checkout Session: {}", sessionId);
+        log.debug("Verifying Checkout Session: {}", sessionId);
 
         try {
             // Retrieve Checkout Session from Stripe with expanded payment_intent
@@ -168,7 +235,16 @@ public class StripePaymentServiceImpl implements PaymentService {
             HashMap<String, Object> params = new HashMap<>();
             params.put("expand", List.of("payment_intent"));
 
-            Session session = Session.retrieve(sessionId, params, null);
+            StripeCallEvent event = StripeCallEvent.begin("retrieve", null, sessionId);
+            Session session;
+            try {
+                session = stripeCallExecutor.executeRead(StripeCallPriority.VERIFY, "session.retrieve",
+                        options -> Session.retrieve(sessionId, params, options));
+            } catch (StripeException | RuntimeException e) {
+                event.fail(e);
+                throw e;
+            }
+            event.succeed(bookingIdOf(session), session.getId(), session.getStatus() + "/" + session.getPaymentStatus());
 
             // Get the PaymentIntent object (now expanded)
             PaymentIntent paymentIntent = null;
@@ -179,7 +255,7 @@ public class StripePaymentServiceImpl implements PaymentService {
                 paymentIntent = session.getPaymentIntentObject();
                 paymentIntentId = paymentIntent.getId();
                 paymentIntentStatus = paymentIntent.getStatus();
-                log.info("PaymentIntent expanded - ID: {}, Status: {}", paymentIntentId, paymentIntentStatus);
+                log.debug("PaymentIntent expanded - ID: {}, Status: {}", paymentIntentId, paymentIntentStatus);
             } else if (session.getPaymentIntent() != null) {
                 paymentIntentId = session.getPaymentIntent();
                 log.warn("PaymentIntent not expanded, only ID available: {}", paymentIntentId);
@@ -193,13 +269,17 @@ public class StripePaymentServiceImpl implements PaymentService {
                     .orElseThrow(() -> new PaymentNotFoundException(
                             "Payment not found for session ID: " + sessionId));
 
+            // A refund does not change the session's payment_status, so it must not be read back as COMPLETED
+            if (payment.getPaymentStatus() == PaymentStatus.REFUND_PENDING
+                    || payment.getPaymentStatus() == PaymentStatus.REFUNDED) {
+                return buildPaymentResponse(payment, "Payment has been refunded");
+            }
+
             // Check if session is expired
             if ("expired".equalsIgnoreCase(session.getStatus())) {
                 log.warn("Checkout Session expired: {}", sessionId);
                 payment.setPaymentStatus(PaymentStatus.FAILED);
-                payment.setPaymentGatewayResponse(
-                        String.format("Session expired: %s", session.getId())
-                );
+                payment.setPaymentGatewayResponse("Session expired: " + session.getId());
                 paymentRepository.save(payment);
                 return buildPaymentResponse(payment, "Checkout session expired. Please create a new payment.");
             }
@@ -211,7 +291,7 @@ public class StripePaymentServiceImpl implements PaymentService {
                         : "Unknown error";
                 log.warn("Payment attempt failed for session {}: PaymentIntent status: {}, Reason: {}",
                         sessionId, paymentIntentStatus, failureReason);
-                log.info("Customer can retry with another payment method on the same session");
+                log.debug("Customer can retry with another payment method on the same session");
                 // Don't update payment status yet - customer can still retry
             }
 
@@ -219,11 +299,11 @@ public class StripePaymentServiceImpl implements PaymentService {
             PaymentStatus newStatus = mapCheckoutSessionStatus(session.getPaymentStatus());
             if(newStatus == PaymentStatus.COMPLETED) {
                 payment.setPaymentIntentId(paymentIntentId);
-                String gatewayResponse = String.format("Session: %s, Status: %s, PaymentIntent: %s",
-                        session.getId(), session.getPaymentStatus(), paymentIntentId);
+                String gatewayResponse = "Session: " + session.getId()
+                        + ", Status: " + session.getPaymentStatus()
+                        + ", PaymentIntent: " + paymentIntentId;
                 if (paymentIntent != null && paymentIntent.getLastPaymentError() != null) {
-                    gatewayResponse += String.format(", Last Error: %s",
-                            paymentIntent.getLastPaymentError().getMessage());
+                    gatewayResponse += ", Last Error: " + paymentIntent.getLastPaymentError().getMessage();
                 }
                 payment.setPaymentGatewayResponse(gatewayResponse);
 
@@ -235,7 +315,7 @@ public class StripePaymentServiceImpl implements PaymentService {
             }
             return buildPaymentResponse(payment, "Payment is Pending. Please try again.");
 
-        } catch (PaymentNotFoundException e) {
+        } catch (PaymentNotFoundException | GatewayThrottledException | DeadlineExceededException e) {
             throw e;
 
         } catch (InvalidRequestException e) {
@@ -266,6 +346,101 @@ public class StripePaymentServiceImpl implements PaymentService {
         }
     }
 
+    /**
+     * A session without a payment row would still be payable, with nothing to match the payment to
+     */
+    private void expireUnrecorded(String sessionId) {
+        try {
+            expireSession(sessionId);
+        } catch (RuntimeException e) {
+            log.error("Checkout Session {} has no payment record and could not be expired: {}",
+                    sessionId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Call Stripe API to expire a checkout session
+     */
+    @Override
+    public void expireSession(String sessionId) {
+        log.info("Expiring Stripe session: {}", sessionId);
+        try {
+            StripeCallEvent event = StripeCallEvent.begin("expire", null, sessionId);
+            try {
+                Session session = stripeCallExecutor.execute(StripeCallPriority.EXPIRE,
+                        options -> Session.retrieve(sessionId, options));
+                Session expired = stripeCallExecutor.execute(StripeCallPriority.EXPIRE, session::expire);
+                event.succeed(bookingIdOf(expired), sessionId, expired.getStatus());
+            } catch (StripeException | RuntimeException e) {
+                event.fail(e);
+                throw e;
+            }
+        } catch (StripeException e) {
+            log.error("Failed to expire Stripe session {}: {}", sessionId, e.getMessage(), e);
+            throw new PaymentProcessingException("Failed to expire checkout session: " + e.getMessage(), e);
+        }
+        log.info("Successfully expired Stripe session: {}", sessionId);
+    }
+
+    /**
+     * Full refund of the session's PaymentIntent. Runs at REFUND priority, so bulk refunds only use the part of
+     * the Stripe budget that live checkouts leave free.
+     */
+    @Override
+    public String refund(Payment payment, String idempotencyKey) {
+        StripeCallEvent event = StripeCallEvent.begin("refund", payment.getBookingId(), payment.getTransactionId());
+        try {
+            String paymentIntentId = payment.getPaymentIntentId();
+            if (paymentIntentId == null) {
+                // Payments completed by reconciliation have no PaymentIntent stored yet
+                Session session = stripeCallExecutor.execute(StripeCallPriority.REFUND,
+                        options -> Session.retrieve(payment.getTransactionId(), options));
+                paymentIntentId = session.getPaymentIntent();
+                if (paymentIntentId == null) {
+                    throw new PaymentProcessingException(
+                            "No PaymentIntent to refund for session " + payment.getTransactionId());
+                }
+            }
+            RefundCreateParams params = RefundCreateParams.builder()
+                    .setPaymentIntent(paymentIntentId)
+                    .setReason(RefundCreateParams.Reason.REQUESTED_BY_CUSTOMER)
+                    .putMetadata("bookingId", String.valueOf(payment.getBookingId()))
+                    .putMetadata("paymentId", String.valueOf(payment.getId()))
+                    .build();
+            Refund refund = stripeCallExecutor.execute(StripeCallPriority.REFUND, idempotencyKey,
+                    options -> Refund.create(params, options));
+            event.succeed(payment.getBookingId(), payment.getTransactionId(), refund.getStatus());
+            log.debug("Refund {} created for payment {} (booking ID {})",
+                    refund.getId(), payment.getId(), payment.getBookingId());
+            return refund.getId();
+
+        } catch (InvalidRequestException e) {
+            event.fail(e);
+            if ("charge_already_refunded".equals(e.getCode())) {
+                log.info("Payment {} was already refunded in Stripe", payment.getId());
+                return "already_refunded";
+            }
+            throw new PaymentProcessingException("Invalid refund request: " + e.getMessage(), e);
+
+        } catch (StripeException e) {
+            event.fail(e);
+            throw new PaymentProcessingException("Failed to refund payment: " + e.getMessage(), e);
+
+        } catch (RuntimeException e) {
+            event.fail(e);
+            throw e;
+        }
+    }
+
+    private Long bookingIdOf(Session session) {
+        String bookingId = session.getMetadata() != null ? session.getMetadata().get("bookingId") : null;
+        try {
+            return bookingId != null ? Long.valueOf(bookingId) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Convert amount to cents (smallest currency unit for Stripe)
      * @param amount Amount in rupees
@@ -0,0 +1,235 @@
+package com.bookticket.payment_service.sharding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Decides which database a payment lives on.
+ *
+ * Payments are placed by a jump consistent hash of their booking ID, so growing from N to N+1 shards moves only
+ * about 1/(N+1) of them. Lookups by transaction ID go through a directory table on shard 0, written after each
+ * checkout; a transaction ID missing from it (the directory write failed, or the row predates sharding) is
+ * searched on every shard in parallel and added.
+ *
+ * Without sharding there is a single shard and every method runs its work directly.
+ */
+@Slf4j
+public class PaymentShardRouter implements DisposableBean {
+
+    private static final String DIRECTORY_LOOKUP_SQL =
+            "SELECT shard FROM payment_shard_directory WHERE transaction_id = ?";
+    private static final String DIRECTORY_UPSERT_SQL =
+            "INSERT INTO payment_shard_directory (transaction_id, shard) VALUES (?, ?) " +
+                    "ON CONFLICT (transaction_id) DO UPDATE SET shard = EXCLUDED.shard";
+    private static final String DIRECTORY_DELETE_SQL = "DELETE FROM payment_shard_directory WHERE transaction_id = ?";
+    private static final String PAYMENT_LOOKUP_SQL = "SELECT count(*) FROM payments WHERE transaction_id = ?";
+
+    private final List<DataSource> shards;
+    private final JdbcTemplate directory;
+    private final ExecutorService executor;
+    private final Counter directoryMisses;
+
+    private PaymentShardRouter(List<DataSource> shards, JdbcTemplate directory, ExecutorService executor,
+                               Counter directoryMisses) {
+        this.shards = List.copyOf(shards);
+        this.directory = directory;
+        this.executor = executor;
+        this.directoryMisses = directoryMisses;
+    }
+
+    /**
+     * Everything on one database, i.e. sharding disabled
+     */
+    public static PaymentShardRouter single(DataSource dataSource) {
+        return new PaymentShardRouter(dataSource != null ? List.of(dataSource) : List.of(), null, null, null);
+    }
+
+    /**
+     * @param shards the shard pools by index, closed with the router; shard 0 is the primary database
+     */
+    public static PaymentShardRouter sharded(List<DataSource> shards, int parallelism, MeterRegistry meterRegistry) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(parallelism, shards.size()),
+                new CustomizableThreadFactory("shard-"));
+        return new PaymentShardRouter(shards, new JdbcTemplate(shards.get(0)), executor,
+                meterRegistry.counter("payment.sharding.directory.misses"));
+    }
+
+    public boolean isSharded() {
+        return directory != null;
+    }
+
+    public int getShardCount() {
+        return isSharded() ? shards.size() : 1;
+    }
+
+    /**
+     * Connection pools by shard index, for cursors and maintenance that bypass JPA
+     */
+    public List<DataSource> getShards() {
+        return shards;
+    }
+
+    public int shardFor(Long bookingId) {
+        return isSharded() ? jumpHash(bookingId, shards.size()) : 0;
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        return isSharded() ? ShardContext.call(shard, work) : work.get();
+    }
+
+    public <T> T forBooking(Long bookingId, Supplier<T> work) {
+        return onShard(shardFor(bookingId), work);
+    }
+
+    /**
+     * Run work on the shard holding the transaction; an unknown transaction runs on shard 0 and is not found there
+     */
+    public <T> T forTransaction(String transactionId, Supplier<T> work) {
+        if (!isSharded()) {
+            return work.get();
+        }
+        return onShard(locate(transactionId).orElse(0), work);
+    }
+
+    /**
+     * Record which shard a new transaction ID lives on. Failures only cost a scatter lookup later.
+     */
+    public void register(String transactionId, Long bookingId) {
+        if (!isSharded() || transactionId == null) {
+            return;
+        }
+        try {
+            directory.update(DIRECTORY_UPSERT_SQL, transactionId, shardFor(bookingId));
+        } catch (RuntimeException e) {
+            log.warn("Could not record shard of transaction {}: {}", transactionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Forget a transaction ID whose payment was deleted
+     */
+    public void unregister(String transactionId) {
+        if (!isSharded() || transactionId == null) {
+            return;
+        }
+        directory.update(DIRECTORY_DELETE_SQL, transactionId);
+    }
+
+    public Optional<Integer> locate(String transactionId) {
+        if (!isSharded()) {
+            return Optional.of(0);
+        }
+        List<Integer> known = directory.queryForList(DIRECTORY_LOOKUP_SQL, Integer.class, transactionId);
+        if (!known.isEmpty()) {
+            return Optional.of(known.get(0));
+        }
+        directoryMisses.increment();
+        List<Long> matches = scatter(shard -> new JdbcTemplate(shards.get(shard))
+                .queryForObject(PAYMENT_LOOKUP_SQL, Long.class, transactionId));
+        for (int shard = 0; shard < matches.size(); shard++) {
+            if (matches.get(shard) > 0) {
+                directory.update(DIRECTORY_UPSERT_SQL, transactionId, shard);
+                return Optional.of(shard);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Split items by the shard of their booking, in shard order
+     */
+    public <T> Map<Integer, List<T>> groupByShard(Collection<T> items, Function<T, Long> bookingId) {
+        Map<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardFor(bookingId.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Run work once per shard, in parallel, with the shard selected; results are in shard order.
+     * The first failure is rethrown once all shards are done.
+     */
+    public <T> List<T> scatter(IntFunction<T> work) {
+        if (!isSharded()) {
+            return List.of(work.apply(0));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(() -> ShardContext.call(shard, () -> work.apply(shard)), executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * The application DataSource when sharded: connections of the shard selected in {@link ShardContext},
+     * fetched on a transaction's first statement rather than when it begins
+     */
+    public DataSource routingDataSource() {
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards));
+    }
+
+    /**
+     * Executor for work that fans out over shards on its own
+     */
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (!isSharded()) {
+            return;
+        }
+        executor.shutdownNow();
+        // The shard pools were created for the router
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * Lamping and Veach's jump consistent hash
+     */
+    static int jumpHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
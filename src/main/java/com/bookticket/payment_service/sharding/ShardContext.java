@@ -0,0 +1,38 @@
+package com.bookticket.payment_service.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's next transaction runs against.
+ *
+ * Connections are handed out lazily, so the shard must be set before the first statement of a transaction and
+ * stays fixed for that transaction; work on another shard needs its own transaction.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * The selected shard, or null for the primary database
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.bookticket.payment_service.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.UncategorizedSQLException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * One query run on every shard at once, read back as a single ordered stream.
+ *
+ * Each shard's rows come from its own streaming cursor (autocommit off, so PostgreSQL honours the fetch size)
+ * and the cursors are merged on a sort key, so only one fetch batch per shard is held in memory. The query
+ * must order its rows by the same key.
+ *
+ * {@link #next()} positions the result set of the shard holding the next row; read it with {@link #row()}
+ * before calling next() again. {@link #shard()} tells which shard the row came from, which is not always the shard
+ * its booking hashes to while payments wait to be rebalanced.
+ */
+@Slf4j
+public final class ShardCursor<K> implements AutoCloseable {
+
+    /**
+     * Reads the sort key of the current row
+     */
+    @FunctionalInterface
+    public interface KeyReader<K> {
+        K read(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Binds the query parameters, the same on every shard
+     */
+    @FunctionalInterface
+    public interface Binder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    private final String sql;
+    private final KeyReader<K> keyReader;
+    private final List<Source<K>> sources = new ArrayList<>();
+    private final PriorityQueue<Source<K>> heads;
+    private Source<K> current;
+
+    private ShardCursor(String sql, KeyReader<K> keyReader, Comparator<K> order) {
+        this.sql = sql;
+        this.keyReader = keyReader;
+        this.heads = new PriorityQueue<>((a, b) -> order.compare(a.key, b.key));
+    }
+
+    /**
+     * Run the query on every shard, opening the cursors in parallel
+     */
+    public static <K> ShardCursor<K> open(PaymentShardRouter router, String sql, Binder binder, int fetchSize,
+                                          KeyReader<K> keyReader, Comparator<K> order) {
+        Executor executor = router.isSharded() ? router.getExecutor() : Runnable::run;
+        return open(router.getShards(), executor, sql, binder, fetchSize, keyReader, order);
+    }
+
+    static <K> ShardCursor<K> open(List<DataSource> shards, Executor executor, String sql, Binder binder,
+                                   int fetchSize, KeyReader<K> keyReader, Comparator<K> order) {
+        ShardCursor<K> cursor = new ShardCursor<>(sql, keyReader, order);
+        List<CompletableFuture<Source<K>>> opening = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            opening.add(CompletableFuture.supplyAsync(() -> cursor.openSource(shard, shards.get(shard), binder,
+                    fetchSize), executor));
+        }
+        RuntimeException failure = null;
+        for (CompletableFuture<Source<K>> future : opening) {
+            try {
+                cursor.sources.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+                }
+            }
+        }
+        if (failure != null) {
+            cursor.close();
+            throw failure;
+        }
+        for (Source<K> source : cursor.sources) {
+            cursor.advance(source);
+        }
+        return cursor;
+    }
+
+    /**
+     * Move to the next row across all shards; false once every shard is exhausted
+     */
+    public boolean next() {
+        if (current != null) {
+            advance(current);
+        }
+        current = heads.poll();
+        return current != null;
+    }
+
+    public ResultSet row() {
+        return current.resultSet;
+    }
+
+    /**
+     * Index of the shard the current row came from
+     */
+    public int shard() {
+        return current.shard;
+    }
+
+    @Override
+    public void close() {
+        for (Source<K> source : sources) {
+            source.close();
+        }
+        sources.clear();
+        heads.clear();
+        current = null;
+    }
+
+    private Source<K> openSource(int shard, DataSource dataSource, Binder binder, int fetchSize) {
+        Source<K> source = new Source<>(shard);
+        try {
+            source.connection = dataSource.getConnection();
+            source.connection.setAutoCommit(false);
+            source.connection.setReadOnly(true);
+            source.statement = source.connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            source.statement.setFetchSize(fetchSize);
+            binder.bind(source.statement);
+            source.resultSet = source.statement.executeQuery();
+            return source;
+        } catch (SQLException e) {
+            source.close();
+            throw new UncategorizedSQLException("Opening shard cursor", sql, e);
+        }
+    }
+
+    private void advance(Source<K> source) {
+        try {
+            if (source.resultSet.next()) {
+                source.key = keyReader.read(source.resultSet);
+                heads.add(source);
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Reading shard cursor", sql, e);
+        }
+    }
+
+    private static final class Source<K> {
+        private final int shard;
+        private Connection connection;
+        private PreparedStatement statement;
+        private ResultSet resultSet;
+        private K key;
+
+        private Source(int shard) {
+            this.shard = shard;
+        }
+
+        private void close() {
+            try {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+                if (connection != null) {
+                    connection.rollback();
+                    connection.setReadOnly(false);
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                log.debug("Error releasing shard cursor: {}", e.getMessage());
+            } finally {
+                if (connection != null) {
+                    try {
+                        connection.close();
+                    } catch (SQLException e) {
+                        log.debug("Error closing shard connection: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.bookticket.payment_service.sharding;
+
+import com.bookticket.payment_service.dto.ShardRebalanceReport;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves payments to the shard their booking ID hashes to, e.g. after shards were added.
+ *
+ * Each shard is scanned with a streaming cursor. Misplaced payments are moved in batches: upserted on the target
+ * shard, pointed to there in the directory, then deleted from the source only if unchanged since they were read.
+ * A payment updated in between stays on its source (the copy and directory entry are reverted) and is picked
+ * up by the next run. Every step is idempotent, so an interrupted run is simply started again.
+ */
+@Service
+@Slf4j
+public class ShardRebalancer {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String[] COLUMNS = {
+            "payment_id", "booking_id", "user_id", "amount", "currency", "payment_method", "payment_status",
+            "transaction_id", "payment_intent_id", "payment_gateway_response", "created_at", "updated_at", "created_by",
+            "payment_url"
+    };
+    private static final int PAYMENT_ID = 0;
+    private static final int TRANSACTION_ID = 7;
+    private static final int UPDATED_AT = 11;
+
+    private static final String SCAN_SQL = "SELECT " + String.join(", ", COLUMNS) + " FROM payments ORDER BY payment_id";
+    private static final String UPSERT_SQL = upsertSql();
+    private static final String DELETE_IF_UNCHANGED_SQL = "DELETE FROM payments WHERE payment_id = ? AND updated_at = ?";
+    private static final String DELETE_SQL = "DELETE FROM payments WHERE payment_id = ?";
+    private static final String DIRECTORY_UPSERT_SQL =
+            "INSERT INTO payment_shard_directory (transaction_id, shard) VALUES (?, ?) " +
+                    "ON CONFLICT (transaction_id) DO UPDATE SET shard = EXCLUDED.shard";
+
+    private final PaymentShardRouter router;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public ShardRebalancer(PaymentShardRouter router, MeterRegistry meterRegistry) {
+        this.router = router;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public ShardRebalanceReport rebalance(boolean dryRun, int batchSize) {
+        if (!router.isSharded()) {
+            throw new IllegalArgumentException("Payment sharding is not enabled");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new PaymentProcessingException("A shard rebalancing run is already in progress");
+        }
+        try {
+            return run(dryRun, batchSize);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ShardRebalanceReport run(boolean dryRun, int batchSize) {
+        long startNanos = System.nanoTime();
+        int shardCount = router.getShardCount();
+        Run run = new Run(dryRun, batchSize);
+        List<Long> scanned = new ArrayList<>(shardCount);
+
+        for (int source = 0; source < shardCount; source++) {
+            long rows = 0;
+            try (ShardCursor<Long> cursor = ShardCursor.open(List.of(router.getShards().get(source)), Runnable::run,
+                    SCAN_SQL, statement -> { }, FETCH_SIZE, resultSet -> resultSet.getLong(1),
+                    Comparator.<Long>naturalOrder())) {
+                while (cursor.next()) {
+                    rows++;
+                    ResultSet row = cursor.row();
+                    int target = router.shardFor(row.getLong("booking_id"));
+                    if (target != source) {
+                        run.misplaced(source, target, read(row));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new PaymentProcessingException("Failed to scan shard " + source + ": " + e.getMessage(), e);
+            }
+            run.flush(source);
+            scanned.add(rows);
+            log.info("Shard {} scanned: {} payments", source, rows);
+        }
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        log.info("Shard rebalancing finished (dry run: {}): {} misplaced, {} moved, {} changed during move, {} ms",
+                dryRun, run.misplaced, run.moved, run.changed, durationMs);
+        return new ShardRebalanceReport(dryRun, shardCount, scanned, run.misplaced, run.moved, run.changed,
+                run.routes, durationMs);
+    }
+
+    private Object[] read(ResultSet row) throws SQLException {
+        Object[] values = new Object[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            values[i] = row.getObject(i + 1);
+        }
+        return values;
+    }
+
+    private static String upsertSql() {
+        StringBuilder sql = new StringBuilder("INSERT INTO payments (").append(String.join(", ", COLUMNS))
+                .append(") VALUES (").append("?, ".repeat(COLUMNS.length - 1)).append("?) ON CONFLICT (payment_id) DO UPDATE SET ");
+        for (int i = 1; i < COLUMNS.length; i++) {
+            sql.append(i > 1 ? ", " : "").append(COLUMNS[i]).append(" = EXCLUDED.").append(COLUMNS[i]);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Per-run counters and the batch of misplaced rows of the shard being scanned
+     */
+    private class Run {
+        private final boolean dryRun;
+        private final int batchSize;
+        private final Map<Integer, List<Object[]>> batch = new TreeMap<>();
+        private final Map<String, Long> routes = new TreeMap<>();
+        private int batched;
+        private long misplaced;
+        private long moved;
+        private long changed;
+
+        private Run(boolean dryRun, int batchSize) {
+            this.dryRun = dryRun;
+            this.batchSize = batchSize;
+        }
+
+        private void misplaced(int source, int target, Object[] row) {
+            misplaced++;
+            routes.merge(source + "->" + target, 1L, Long::sum);
+            if (dryRun) {
+                return;
+            }
+            batch.computeIfAbsent(target, shard -> new ArrayList<>()).add(row);
+            if (++batched >= batchSize) {
+                flush(source);
+            }
+        }
+
+        private void flush(int source) {
+            JdbcTemplate sourceShard = new JdbcTemplate(router.getShards().get(source));
+            JdbcTemplate directory = new JdbcTemplate(router.getShards().get(0));
+            for (Map.Entry<Integer, List<Object[]>> entry : batch.entrySet()) {
+                int target = entry.getKey();
+                List<Object[]> rows = entry.getValue();
+                JdbcTemplate targetShard = new JdbcTemplate(router.getShards().get(target));
+
+                targetShard.batchUpdate(UPSERT_SQL, rows);
+                directory.batchUpdate(DIRECTORY_UPSERT_SQL, directoryEntries(rows, target));
+                int[] deleted = sourceShard.batchUpdate(DELETE_IF_UNCHANGED_SQL,
+                        rows.stream().map(row -> new Object[]{row[PAYMENT_ID], row[UPDATED_AT]}).toList());
+
+                List<Object[]> changedRows = new ArrayList<>();
+                for (int i = 0; i < rows.size(); i++) {
+                    if (deleted[i] == 0) {
+                        changedRows.add(rows.get(i));
+                    }
+                }
+                if (!changedRows.isEmpty()) {
+                    // Updated on the source meanwhile: the source row stays authoritative
+                    directory.batchUpdate(DIRECTORY_UPSERT_SQL, directoryEntries(changedRows, source));
+                    targetShard.batchUpdate(DELETE_SQL, changedRows.stream().map(row -> new Object[]{row[PAYMENT_ID]}).toList());
+                }
+                moved += rows.size() - changedRows.size();
+                changed += changedRows.size();
+                meterRegistry.counter("payment.sharding.rebalanced").increment(rows.size() - changedRows.size());
+            }
+            batch.clear();
+            batched = 0;
+        }
+
+        private List<Object[]> directoryEntries(List<Object[]> rows, int shard) {
+            return rows.stream()
+                    .filter(row -> row[TRANSACTION_ID] != null)
+                    .map(row -> new Object[]{row[TRANSACTION_ID], shard})
+                    .toList();
+        }
+    }
+}
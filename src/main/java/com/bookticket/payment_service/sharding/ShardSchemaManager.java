@@ -0,0 +1,80 @@
+package com.bookticket.payment_service.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Prepares the shard databases at startup: the payments table on the added shards, the directory on shard 0,
+ * and payment ID generation.
+ *
+ * Payment IDs must stay unique across shards (exports page by them, refund items reference them), so with N
+ * shards, shard i only generates IDs congruent to i+1 modulo N, starting above every existing ID. Sequences are
+ * realigned only when their increment differs from N, i.e. on the first sharded start or after the shard count
+ * changed; do that with checkout writes paused.
+ */
+@Slf4j
+public class ShardSchemaManager implements InitializingBean {
+
+    private static final String INCREMENT_SQL =
+            "SELECT seqincrement FROM pg_sequence WHERE seqrelid = pg_get_serial_sequence('payments', 'payment_id')::regclass";
+    private static final String MAX_ID_SQL = "SELECT coalesce(max(payment_id), 0) FROM payments";
+
+    private final PaymentShardRouter router;
+    private final boolean createTables;
+
+    public ShardSchemaManager(PaymentShardRouter router, boolean createTables) {
+        this.router = router;
+        this.createTables = createTables;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<DataSource> shards = router.getShards();
+        if (createTables) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/sharding/directory.sql")).execute(shards.get(0));
+            for (int i = 1; i < shards.size(); i++) {
+                new ResourceDatabasePopulator(new ClassPathResource("db/sharding/payments.sql")).execute(shards.get(i));
+            }
+        }
+        alignIdSequences();
+    }
+
+    void alignIdSequences() {
+        List<DataSource> shards = router.getShards();
+        int count = shards.size();
+        boolean aligned = true;
+        for (DataSource shard : shards) {
+            Long increment = new JdbcTemplate(shard).queryForObject(INCREMENT_SQL, Long.class);
+            aligned &= increment != null && increment == count;
+        }
+        if (aligned) {
+            return;
+        }
+
+        long maxId = 0;
+        for (DataSource shard : shards) {
+            Long shardMax = new JdbcTemplate(shard).queryForObject(MAX_ID_SQL, Long.class);
+            maxId = Math.max(maxId, shardMax != null ? shardMax : 0);
+        }
+        for (int i = 0; i < count; i++) {
+            long start = firstIdAbove(maxId, i, count);
+            new JdbcTemplate(shards.get(i)).execute("ALTER TABLE payments ALTER COLUMN payment_id SET INCREMENT BY "
+                    + count + " RESTART WITH " + start);
+            log.info("Payment IDs on shard {} now start at {} with increment {}", i, start, count);
+        }
+    }
+
+    /**
+     * Smallest ID above maxId that shard generates: congruent to shard+1 modulo count
+     */
+    static long firstIdAbove(long maxId, int shard, int count) {
+        long base = maxId + 1;
+        return base + Math.floorMod(shard + 1 - base, count);
+    }
+}
@@ -0,0 +1,141 @@
+package com.bookticket.payment_service.startup;
+
+import com.bookticket.payment_service.dto.CheckoutSessionRequest;
+import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.PaymentNotFoundException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.PaymentStatusCache;
+import com.bookticket.payment_service.service.impl.PaymentGateway;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * WarmupRunner's stand-in gateway, reached only through {@link WarmupTraffic} and never registered for routing.
+ *
+ * A session's payment is inserted with plain JDBC, so no entity listener reports it to the statistics or the
+ * event log, and is deleted again by {@link #remove}. Verification does a gateway's JPA read and update in a
+ * transaction that is rolled back.
+ */
+final class WarmupGateway implements PaymentGateway {
+
+    static final String PAYMENT_METHOD = "Warmup";
+    private static final String SESSION_ID_PREFIX = "warmup_cs_";
+    private static final String INSERT_SQL = "INSERT INTO payments (booking_id, user_id, amount, currency, " +
+            "payment_method, payment_status, transaction_id, payment_gateway_response, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM payments WHERE transaction_id = ?";
+    private static final String DELETE_LEFTOVERS_SQL = "DELETE FROM payments WHERE booking_id = ? AND payment_method = ?";
+
+    private final PaymentShardRouter shardRouter;
+    private final PaymentRepository paymentRepository;
+    private final PaymentStatusCache statusCache;
+    private final TransactionTemplate transactionTemplate;
+
+    WarmupGateway(PaymentShardRouter shardRouter, PaymentRepository paymentRepository,
+                  PaymentStatusCache statusCache, TransactionTemplate transactionTemplate) {
+        this.shardRouter = shardRouter;
+        this.paymentRepository = paymentRepository;
+        this.statusCache = statusCache;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public String getGatewayName() {
+        return "warmup";
+    }
+
+    @Override
+    public String getPaymentMethod() {
+        return PAYMENT_METHOD;
+    }
+
+    @Override
+    public boolean ownsSession(String sessionId) {
+        return sessionId != null && sessionId.startsWith(SESSION_ID_PREFIX);
+    }
+
+    @Override
+    public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request) {
+        return createCheckoutSession(request, null);
+    }
+
+    @Override
+    public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request, Payment intent) {
+        if (intent != null) {
+            throw new IllegalArgumentException("Warm-up checkouts have no intent");
+        }
+        String sessionId = SESSION_ID_PREFIX + UUID.randomUUID();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        shard(request.bookingId()).update(INSERT_SQL, request.bookingId(), request.userId(), request.amount(), "usd",
+                PAYMENT_METHOD, PaymentStatus.PENDING.name(), sessionId, "Warm-up session created", now, now);
+        return new CheckoutSessionResponse(
+                sessionId,
+                null,
+                request.bookingId(),
+                request.amount(),
+                "pending",
+                "Warm-up checkout session created.",
+                Instant.now().plus(30, ChronoUnit.MINUTES).getEpochSecond()
+        );
+    }
+
+    @Override
+    public PaymentResponse verifyCheckoutSession(String sessionId) {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            Payment payment = paymentRepository.findByTransactionId(sessionId)
+                    .orElseThrow(() -> new PaymentNotFoundException("Payment not found for session ID: " + sessionId));
+            payment.setPaymentStatus(PaymentStatus.COMPLETED);
+            payment.setPaymentGatewayResponse("Warm-up session paid: " + sessionId);
+            paymentRepository.saveAndFlush(payment);
+            return new PaymentResponse(
+                    payment.getId(),
+                    payment.getBookingId(),
+                    payment.getPaymentStatus().name(),
+                    payment.getTransactionId(),
+                    payment.getAmount(),
+                    "Payment verification successful"
+            );
+        });
+    }
+
+    @Override
+    public void expireSession(String sessionId) {
+        // Warm-up sessions are deleted rather than expired
+    }
+
+    @Override
+    public String refund(Payment payment, String idempotencyKey) {
+        throw new IllegalArgumentException("Warm-up payments cannot be refunded");
+    }
+
+    /**
+     * Delete the payment of a session, with its shard directory entry and cached status
+     */
+    void remove(CheckoutSessionResponse session) {
+        shard(session.bookingId()).update(DELETE_SQL, session.sessionId());
+        shardRouter.unregister(session.sessionId());
+        statusCache.evict(session.sessionId());
+    }
+
+    /**
+     * Delete payments left behind by an instance that stopped during warm-up
+     */
+    void removeLeftovers(Long bookingId) {
+        shard(bookingId).update(DELETE_LEFTOVERS_SQL, bookingId, PAYMENT_METHOD);
+    }
+
+    private JdbcTemplate shard(Long bookingId) {
+        return new JdbcTemplate(shardRouter.getShards().get(shardRouter.shardFor(bookingId)));
+    }
+}
@@ -0,0 +1,244 @@
+package com.bookticket.payment_service.startup;
+
+import com.bookticket.payment_service.configuration.WarmupProperties;
+import com.bookticket.payment_service.dto.CheckoutSessionRequest;
+import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.PaymentStatusCache;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import com.stripe.Stripe;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the request path up before the instance takes traffic.
+ *
+ * As an ApplicationRunner it delays the readiness state ACCEPTING_TRAFFIC, which Spring Boot publishes once all
+ * runners have returned, and the instance stays STARTING in Eureka (eureka.instance.initial-status) until it is
+ * marked UP here. Warm-up opens database connections on every shard and a TLS connection to Stripe, then sends
+ * synthetic create, verify and status requests over HTTP to this instance's own port. They pass the filters,
+ * DispatcherServlet, PaymentController and RoutingPaymentServiceImpl like real checkouts, but reach a stand-in
+ * gateway (see {@link WarmupTraffic}) whose payments are deleted after each flow. So the MVC infrastructure is
+ * initialized, and the request path is JIT-compiled, before the first real request.
+ * Traffic is accepted once payment.warmup.time-budget has passed, finished or not.
+ */
+@Component
+@Slf4j
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final long BOOKING_ID = -1L;     // Never a real booking
+    private static final int STRIPE_TIMEOUT_MS = 5000;
+    private static final int REQUEST_TIMEOUT_MS = 5000;
+    private static final String PAYMENTS_PATH = "/api/v1/internal/payments";
+
+    private final WarmupProperties properties;
+    private final PaymentShardRouter shardRouter;
+    private final WarmupTraffic warmupTraffic;
+    private final WarmupGateway gateway;
+    private final Environment environment;
+    private final ObjectProvider<ApplicationInfoManager> eureka;
+    private final AtomicInteger flows = new AtomicInteger();
+
+    public WarmupRunner(WarmupProperties properties,
+                        PaymentShardRouter shardRouter,
+                        PaymentRepository paymentRepository,
+                        PaymentStatusCache statusCache,
+                        PlatformTransactionManager transactionManager,
+                        WarmupTraffic warmupTraffic,
+                        Environment environment,
+                        ObjectProvider<ApplicationInfoManager> eureka) {
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.warmupTraffic = warmupTraffic;
+        this.gateway = new WarmupGateway(shardRouter, paymentRepository, statusCache,
+                new TransactionTemplate(transactionManager));
+        this.environment = environment;
+        this.eureka = eureka;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            if (properties.isEnabled()) {
+                warmUp();
+            }
+        } finally {
+            ApplicationInfoManager applicationInfoManager = eureka.getIfAvailable();
+            if (applicationInfoManager != null) {
+                applicationInfoManager.setInstanceStatus(InstanceInfo.InstanceStatus.UP);
+            }
+        }
+    }
+
+    private void warmUp() {
+        long startNanos = System.nanoTime();
+        long budgetMs = Math.max(1, properties.getTimeBudget().toMillis());
+        long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+
+        // On its own thread, so a step stuck on the network cannot hold startup past the budget
+        Thread worker = new Thread(() -> runSteps(deadlineNanos), "warmup");
+        worker.setDaemon(true);
+        worker.start();
+        try {
+            worker.join(budgetMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (worker.isAlive()) {
+            worker.interrupt();
+            warmupTraffic.stop();
+            log.warn("Warm-up did not finish within {} ms ({} synthetic flows), accepting traffic anyway",
+                    budgetMs, flows.get());
+        } else {
+            log.info("Warm-up finished in {} ms ({} synthetic flows)", elapsedMs, flows.get());
+        }
+    }
+
+    private void runSteps(long deadlineNanos) {
+        if (!step("database connections", this::openConnections)) {
+            return;     // The flows would fail the same way
+        }
+        if (properties.isStripeConnection()) {
+            step("Stripe connection", this::openStripeConnection);
+        }
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port == null || port <= 0) {
+            log.info("No local web server, skipping synthetic checkouts");
+            return;
+        }
+        if (!step("warm-up leftovers", () -> gateway.removeLeftovers(BOOKING_ID))) {
+            return;
+        }
+        RestClient client = client(port, warmupTraffic.start(gateway));
+        try {
+            while (flows.get() < properties.getIterations() && System.nanoTime() < deadlineNanos
+                    && !Thread.currentThread().isInterrupted()) {
+                if (!step("synthetic checkout", () -> checkoutFlow(client))) {
+                    return;
+                }
+                flows.incrementAndGet();
+            }
+        } finally {
+            warmupTraffic.stop();
+        }
+    }
+
+    private boolean step(String name, Runnable work) {
+        try {
+            work.run();
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Warm-up step '{}' failed: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Hold several connections of each shard at once, so the pools are filled rather than grown by requests
+     */
+    private void openConnections() {
+        for (DataSource shard : shardRouter.getShards()) {
+            List<Connection> connections = new ArrayList<>();
+            try {
+                for (int i = 0; i < properties.getConnectionsPerShard(); i++) {
+                    Connection connection = shard.getConnection();
+                    connections.add(connection);
+                    connection.isValid(1);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            } finally {
+                for (Connection connection : connections) {
+                    try {
+                        connection.close();
+                    } catch (SQLException e) {
+                        log.debug("Error releasing warm-up connection: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An unauthenticated request to the API base: completes the TLS handshake and, with the response read to the
+     * end, leaves the connection in the JDK keep-alive cache the Stripe SDK draws from
+     */
+    private void openStripeConnection() {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(Stripe.getApiBase() + "/v1/").toURL().openConnection();
+            connection.setConnectTimeout(STRIPE_TIMEOUT_MS);
+            connection.setReadTimeout(STRIPE_TIMEOUT_MS);
+            int status = connection.getResponseCode();
+            try (InputStream body = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+                if (body != null) {
+                    body.readAllBytes();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Requests to this instance as a service account, carrying the warm-up token
+     */
+    private RestClient client(int port, String token) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(REQUEST_TIMEOUT_MS);
+        requestFactory.setReadTimeout(REQUEST_TIMEOUT_MS);
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .baseUrl("http://localhost:" + port + environment.getProperty("server.servlet.context-path", "")
+                        + PAYMENTS_PATH)
+                .defaultHeader("X-User-Id", "payment-warmup")
+                .defaultHeader("X-User-Roles", "SERVICE_ACCOUNT")
+                .defaultHeader(WarmupTraffic.TOKEN_HEADER, token)
+                .build();
+    }
+
+    /**
+     * Create, verify and read the status of one payment through the request path, then delete it
+     */
+    private void checkoutFlow(RestClient client) {
+        CheckoutSessionResponse session = client.post()
+                .uri("/checkout/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new CheckoutSessionRequest(BOOKING_ID, BOOKING_ID, 1.0, null, null))
+                .retrieve()
+                .body(CheckoutSessionResponse.class);
+        if (session == null || session.sessionId() == null) {
+            throw new IllegalStateException("Checkout answered without a session");
+        }
+        try {
+            client.get().uri("/checkout/verify/{sessionId}", session.sessionId()).retrieve().toBodilessEntity();
+            client.get().uri("/status/{transactionId}", session.sessionId()).retrieve().toBodilessEntity();
+        } finally {
+            gateway.remove(session);
+        }
+    }
+}
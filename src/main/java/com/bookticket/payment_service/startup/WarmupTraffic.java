@@ -0,0 +1,61 @@
+package com.bookticket.payment_service.startup;
+
+import com.bookticket.payment_service.service.impl.PaymentGateway;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lets WarmupRunner send synthetic checkouts through the real request path to its own stand-in gateway.
+ *
+ * Requests are diverted only while warm-up runs, and only when they carry the random token of this run in
+ * {@value #TOKEN_HEADER}, so no other caller can reach the stand-in.
+ */
+@Component
+public class WarmupTraffic {
+
+    static final String TOKEN_HEADER = "X-Warmup-Token";
+
+    private volatile Diversion diversion;
+
+    /**
+     * Divert requests carrying the returned token to the gateway, until {@link #stop()}
+     */
+    String start(PaymentGateway gateway) {
+        String token = UUID.randomUUID().toString();
+        diversion = new Diversion(token.getBytes(StandardCharsets.UTF_8), gateway);
+        return token;
+    }
+
+    void stop() {
+        diversion = null;
+    }
+
+    /**
+     * The stand-in gateway if the request being handled on this thread is a warm-up request
+     */
+    public Optional<PaymentGateway> gatewayForCurrentRequest() {
+        Diversion current = diversion;
+        if (current == null) {
+            return Optional.empty();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return Optional.empty();
+        }
+        String token = servletAttributes.getRequest().getHeader(TOKEN_HEADER);
+        if (token == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), current.token())) {
+            return Optional.empty();
+        }
+        return Optional.of(current.gateway());
+    }
+
+    private record Diversion(byte[] token, PaymentGateway gateway) {
+    }
+}
@@ -0,0 +1,5 @@
+-- Shard of every transaction ID, on the primary database
+CREATE TABLE IF NOT EXISTS payment_shard_directory (
+    transaction_id VARCHAR(255) PRIMARY KEY,
+    shard INTEGER NOT NULL
+);
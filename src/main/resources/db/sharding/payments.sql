@@ -0,0 +1,20 @@
+-- Payments table for shards other than the primary database, matching the Payment entity
+CREATE TABLE IF NOT EXISTS payments (
+    payment_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    booking_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    amount FLOAT(53) NOT NULL,
+    currency VARCHAR(255),
+    payment_method VARCHAR(255) NOT NULL,
+    payment_status VARCHAR(255) NOT NULL,
+    transaction_id VARCHAR(255),
+    payment_intent_id VARCHAR(255),
+    payment_gateway_response TEXT,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    created_by VARCHAR(255),
+    payment_url VARCHAR(1024)
+);
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS payment_url VARCHAR(1024);
+CREATE INDEX IF NOT EXISTS idx_payments_transaction_id ON payments (transaction_id);
+CREATE INDEX IF NOT EXISTS idx_payments_booking_id ON payments (booking_id);
@@ -0,0 +1,96 @@
+package com.bookticket.payment_service.controller;
+
+import com.bookticket.payment_service.dto.CheckoutIntentResponse;
+import com.bookticket.payment_service.exception.GlobalExceptionHandler;
+import com.bookticket.payment_service.exception.PaymentNotFoundException;
+import com.bookticket.payment_service.service.CheckoutIntentService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CheckoutIntentControllerTest {
+
+	private static final String INTENTS = "/api/v1/internal/payments/checkout/intents";
+	private static final String REQUEST = """
+			{"bookingId": 10, "userId": 20, "amount": 100.0, "callbackUrl": "https://booking.internal/callback"}""";
+
+	private final CheckoutIntentService checkoutIntentService = mock(CheckoutIntentService.class);
+	private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new CheckoutIntentController(checkoutIntentService))
+			.setControllerAdvice(new GlobalExceptionHandler(new SimpleMeterRegistry()))
+			.build();
+
+	@Test
+	void answersAcceptedWithTheIntentLocation() throws Exception {
+		when(checkoutIntentService.accept(any())).thenReturn(new CheckoutIntentResponse(7L, 10L,
+				CheckoutIntentService.ACCEPTED, null, null, null, "Checkout accepted."));
+
+		mockMvc.perform(post(INTENTS).contentType(MediaType.APPLICATION_JSON).content(REQUEST))
+				.andExpect(status().isAccepted())
+				.andExpect(header().string("Location", "http://localhost" + INTENTS + "/7"))
+				.andExpect(jsonPath("$.paymentId").value(7))
+				.andExpect(jsonPath("$.status").value("accepted"));
+	}
+
+	@Test
+	void answersOkWhenTheSessionWasCreatedBeforeAnswering() throws Exception {
+		when(checkoutIntentService.accept(any())).thenReturn(new CheckoutIntentResponse(7L, 10L, "pending",
+				"cs_7", "https://checkout.stripe.com/cs_7", 1_800_000_000L, "Checkout session created."));
+
+		mockMvc.perform(post(INTENTS).contentType(MediaType.APPLICATION_JSON).content(REQUEST))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist("Location"))
+				.andExpect(jsonPath("$.sessionId").value("cs_7"))
+				.andExpect(jsonPath("$.paymentUrl").value("https://checkout.stripe.com/cs_7"));
+	}
+
+	@Test
+	void rejectsCallbackUrlsTheServiceDoesNotAllow() throws Exception {
+		when(checkoutIntentService.accept(any()))
+				.thenThrow(new IllegalArgumentException("Callback URL host not allowed: https://booking.internal/callback"));
+
+		mockMvc.perform(post(INTENTS).contentType(MediaType.APPLICATION_JSON).content(REQUEST))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.paymentStatus").value("INVALID_REQUEST"));
+	}
+
+	@Test
+	void rejectsInvalidRequestsBeforeStoringAnIntent() throws Exception {
+		mockMvc.perform(post(INTENTS).contentType(MediaType.APPLICATION_JSON).content("""
+						{"bookingId": 10, "amount": 0}"""))
+				.andExpect(status().isBadRequest());
+
+		verify(checkoutIntentService, never()).accept(any());
+	}
+
+	@Test
+	void returnsTheIntentState() throws Exception {
+		when(checkoutIntentService.get(7L)).thenReturn(new CheckoutIntentResponse(7L, 10L, "completed", "cs_7",
+				null, null, "Payment verification successful"));
+
+		mockMvc.perform(get(INTENTS + "/7"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.status").value("completed"))
+				.andExpect(jsonPath("$.paymentUrl").doesNotExist());
+	}
+
+	@Test
+	void answersNotFoundForAnUnknownPayment() throws Exception {
+		when(checkoutIntentService.get(8L)).thenThrow(new PaymentNotFoundException("Payment not found with ID: 8"));
+
+		mockMvc.perform(get(INTENTS + "/8"))
+				.andExpect(status().isNotFound());
+	}
+}
@@ -0,0 +1,185 @@
+package com.bookticket.payment_service.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares how many status polls a running instance keeps in flight per GB of heap on the blocking endpoints and
+ * on the reactive ones. Each concurrency level holds that many polls in flight (a new one is sent as soon as one
+ * returns) for a while, sampling the instance's heap and live threads from /actuator/metrics.
+ *
+ * Runs against an instance with payment.reactive-status.enabled=true, the metrics actuator endpoint exposed and
+ * load shedding off, e.g. PAYMENT_LOAD_TEST_URL=http://localhost:8080 with PAYMENT_LOAD_TEST_TRANSACTION_IDS set
+ * to existing session IDs. Optional: PAYMENT_LOAD_TEST_CONCURRENCY (default 100,500,2000) and
+ * PAYMENT_LOAD_TEST_SECONDS per level (default 20).
+ */
+@EnabledIfEnvironmentVariable(named = "PAYMENT_LOAD_TEST_URL", matches = ".+")
+class StatusPollLoadTest {
+
+	private static final String BLOCKING = "/api/v1/internal/payments/status";
+	private static final String REACTIVE = "/api/v1/internal/payments/reactive/status";
+	private static final double GB = 1024.0 * 1024 * 1024;
+
+	private final String baseUrl = System.getenv("PAYMENT_LOAD_TEST_URL");
+	private final List<String> transactionIds = Arrays.stream(env("PAYMENT_LOAD_TEST_TRANSACTION_IDS", "").split(","))
+			.map(String::trim)
+			.filter(id -> !id.isEmpty())
+			.toList();
+	private final int[] concurrencyLevels = Arrays.stream(env("PAYMENT_LOAD_TEST_CONCURRENCY", "100,500,2000").split(","))
+			.mapToInt(level -> Integer.parseInt(level.trim()))
+			.toArray();
+	private final Duration duration = Duration.ofSeconds(Long.parseLong(env("PAYMENT_LOAD_TEST_SECONDS", "20")));
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void singleStatusPolls() throws Exception {
+		assertThat(transactionIds).isNotEmpty();
+		compare("status", path -> i -> request(path + "/" + transactionIds.get(i % transactionIds.size()))
+				.GET()
+				.build());
+	}
+
+	@Test
+	void bulkStatusPolls() throws Exception {
+		assertThat(transactionIds).isNotEmpty();
+		String body = objectMapper.writeValueAsString(Map.of("transactionIds", transactionIds));
+		compare("bulk", path -> i -> request(path + "/bulk")
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build());
+	}
+
+	private void compare(String name, Function<String, IntFunction<HttpRequest>> requests)
+			throws Exception {
+		System.out.printf("%-8s %-9s %7s %9s %8s %8s %7s %9s %8s %14s%n", name, "path", "polls", "polls/s", "p50 ms",
+				"p99 ms", "errors", "heap MB", "threads", "in-flight/GB");
+		for (int concurrency : concurrencyLevels) {
+			for (String path : List.of(BLOCKING, REACTIVE)) {
+				Run run = run(concurrency, requests.apply(path));
+				System.out.printf("%-8d %-9s %7d %9.0f %8.1f %8.1f %7d %9.0f %8.0f %14.0f%n", concurrency,
+						path.equals(BLOCKING) ? "blocking" : "reactive", run.completed(),
+						run.completed() / run.seconds(), run.percentileMillis(0.5), run.percentileMillis(0.99),
+						run.errors(), run.peakHeapBytes() / (1024 * 1024), run.peakThreads(),
+						concurrency / (run.peakHeapBytes() / GB));
+				assertThat(run.completed()).isPositive();
+			}
+		}
+	}
+
+	/**
+	 * Keep the given number of polls in flight for the test duration
+	 */
+	private Run run(int concurrency, IntFunction<HttpRequest> request) throws Exception {
+		AtomicLong completed = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		AtomicInteger sent = new AtomicInteger();
+		ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+		CountDownLatch done = new CountDownLatch(concurrency);
+		List<double[]> samples = new ArrayList<>();
+
+		ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+		sampler.scheduleAtFixedRate(() -> samples.add(new double[]{
+				metric("jvm.memory.used?tag=area:heap"), metric("jvm.threads.live")}), 0, 500, TimeUnit.MILLISECONDS);
+		long startNanos = System.nanoTime();
+		long endNanos = startNanos + duration.toNanos();
+		try {
+			for (int i = 0; i < concurrency; i++) {
+				poll(request, sent, endNanos, completed, errors, latencies, done);
+			}
+			done.await(duration.toSeconds() + 60, TimeUnit.SECONDS);
+		} finally {
+			sampler.shutdown();
+			sampler.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+		double peakHeap = samples.stream().mapToDouble(sample -> sample[0]).max().orElse(Double.NaN);
+		double peakThreads = samples.stream().mapToDouble(sample -> sample[1]).max().orElse(Double.NaN);
+		return new Run(completed.get(), errors.get(), seconds, sorted, peakHeap, peakThreads);
+	}
+
+	private void poll(IntFunction<HttpRequest> request, AtomicInteger sent, long endNanos, AtomicLong completed,
+					  AtomicLong errors, ConcurrentLinkedQueue<Long> latencies, CountDownLatch done) {
+		if (System.nanoTime() >= endNanos) {
+			done.countDown();
+			return;
+		}
+		long startNanos = System.nanoTime();
+		client.sendAsync(request.apply(sent.getAndIncrement()), HttpResponse.BodyHandlers.discarding())
+				.whenComplete((response, error) -> {
+					latencies.add(System.nanoTime() - startNanos);
+					if (error != null || response.statusCode() >= 400) {
+						errors.incrementAndGet();
+					} else {
+						completed.incrementAndGet();
+					}
+					poll(request, sent, endNanos, completed, errors, latencies, done);
+				});
+	}
+
+	/**
+	 * Current value of an actuator metric of the instance, NaN if it cannot be read
+	 */
+	private double metric(String name) {
+		try {
+			HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + name))
+					.timeout(Duration.ofSeconds(2))
+					.GET()
+					.build(), HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 200) {
+				return Double.NaN;
+			}
+			JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+			return measurements.isEmpty() ? Double.NaN : measurements.get(0).path("value").asDouble();
+		} catch (Exception e) {
+			return Double.NaN;
+		}
+	}
+
+	private HttpRequest.Builder request(String path) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + path))
+				.timeout(Duration.ofSeconds(30))
+				.header("X-User-Id", "status-load-test")
+				.header("X-User-Roles", "SERVICE_ACCOUNT");
+	}
+
+	private static String env(String name, String defaultValue) {
+		String value = System.getenv(name);
+		return value != null && !value.isBlank() ? value : defaultValue;
+	}
+
+	private record Run(long completed, long errors, double seconds, long[] latencies, double peakHeapBytes,
+					   double peakThreads) {
+
+		double percentileMillis(double percentile) {
+			if (latencies.length == 0) {
+				return Double.NaN;
+			}
+			return latencies[(int) Math.min(latencies.length - 1, Math.floor(percentile * latencies.length))] / 1e6;
+		}
+	}
+}
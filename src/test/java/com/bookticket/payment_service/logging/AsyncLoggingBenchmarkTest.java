@@ -0,0 +1,145 @@
+package com.bookticket.payment_service.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Caller-side cost of an INFO line when the sink is slow (as Loki is under load): written synchronously, through
+ * MeteredAsyncAppender, and through MeteredAsyncAppender with 1-in-10 INFO sampling. Prints nanoseconds per log
+ * call on the request threads and how many events reached the sink or were dropped.
+ * Runs with PAYMENT_MICROBENCHMARKS=true.
+ */
+@EnabledIfEnvironmentVariable(named = "PAYMENT_MICROBENCHMARKS", matches = "true")
+class AsyncLoggingBenchmarkTest {
+
+	private static final int THREADS = 8;
+	private static final int EVENTS_PER_THREAD = 20_000;
+	private static final long SINK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+	private final Logger logger = context.getLogger("com.bookticket.payment_service.benchmark.Logging");
+	private final List<Appender<ILoggingEvent>> started = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		logger.detachAndStopAllAppenders();
+		started.forEach(Appender::stop);
+		context.getTurboFilterList().removeIf(filter -> filter instanceof InfoSamplingTurboFilter);
+	}
+
+	@Test
+	void asyncAppenderTakesTheSinkOffTheRequestPath() throws Exception {
+		logger.setAdditive(false);
+		logger.setLevel(Level.INFO);
+
+		SlowSink syncSink = sink();
+		logger.addAppender(syncSink);
+		double syncNanos = run();
+		logger.detachAppender(syncSink);
+
+		SlowSink asyncSink = sink();
+		MeteredAsyncAppender async = async("benchmark-async", asyncSink);
+		logger.addAppender(async);
+		double asyncNanos = run();
+		logger.detachAppender(async);
+
+		SlowSink sampledSink = sink();
+		MeteredAsyncAppender sampledAsync = async("benchmark-sampled", sampledSink);
+		InfoSamplingTurboFilter sampling = new InfoSamplingTurboFilter();
+		sampling.setRate(10);
+		sampling.setLoggers("com.bookticket.payment_service.benchmark");
+		sampling.start();
+		context.addTurboFilter(sampling);
+		logger.addAppender(sampledAsync);
+		double sampledNanos = run();
+
+		long events = (long) THREADS * EVENTS_PER_THREAD;
+		report("synchronous", syncNanos, syncSink, null, events);
+		report("async", asyncNanos, asyncSink, "benchmark-async", events);
+		report("async + 1/10 sampling", sampledNanos, sampledSink, "benchmark-sampled", events);
+
+		assertThat(asyncNanos).isLessThan(syncNanos);
+	}
+
+	/**
+	 * Average nanoseconds per log call across the request threads
+	 */
+	private double run() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		LongAdder callerNanos = new LongAdder();
+		try {
+			List<Future<?>> threads = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				threads.add(executor.submit(() -> {
+					for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+						long startNanos = System.nanoTime();
+						logger.info("Checkout session created for booking ID {}: cs_bench_{}", i, i);
+						callerNanos.add(System.nanoTime() - startNanos);
+					}
+				}));
+			}
+			for (Future<?> thread : threads) {
+				thread.get();
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		return callerNanos.doubleValue() / ((long) THREADS * EVENTS_PER_THREAD);
+	}
+
+	private void report(String mode, double nanosPerCall, SlowSink sink, String appender, long events) {
+		MeteredAsyncAppender.Stats stats = appender != null ? MeteredAsyncAppender.stats().get(appender) : null;
+		System.out.printf("%-22s %9.0f ns/call  %7d written  %7d dropped  of %d%n", mode, nanosPerCall,
+				sink.written.sum(), stats != null ? stats.discarded.sum() + stats.rejected.sum() : 0, events);
+	}
+
+	private SlowSink sink() {
+		SlowSink sink = new SlowSink();
+		sink.setContext(context);
+		sink.start();
+		started.add(sink);
+		return sink;
+	}
+
+	private MeteredAsyncAppender async(String name, SlowSink sink) {
+		MeteredAsyncAppender appender = new MeteredAsyncAppender();
+		appender.setContext(context);
+		appender.setName(name);
+		appender.setQueueSize(8192);
+		appender.setNeverBlock(true);
+		appender.addAppender(sink);
+		appender.start();
+		started.add(appender);
+		return appender;
+	}
+
+	private static final class SlowSink extends AppenderBase<ILoggingEvent> {
+		private final LongAdder written = new LongAdder();
+
+		@Override
+		protected void append(ILoggingEvent event) {
+			LockSupport.parkNanos(SINK_NANOS);
+			written.increment();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.bookticket.payment_service.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InfoSamplingTurboFilterTest {
+
+	private static final int EVENTS = 200_000;
+
+	private final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+	private final Logger sampled = context.getLogger("com.bookticket.payment_service.service.Sample");
+	private final Logger other = context.getLogger("org.hibernate.SQL");
+
+	@Test
+	void keepsAboutOneInRateInfoEvents() {
+		InfoSamplingTurboFilter filter = filter(10);
+		long sampledOutBefore = InfoSamplingTurboFilter.SAMPLED_OUT.sum();
+
+		int kept = 0;
+		for (int i = 0; i < EVENTS; i++) {
+			if (filter.decide(null, sampled, Level.INFO, "event", null, null) == FilterReply.NEUTRAL) {
+				kept++;
+			}
+		}
+
+		assertThat((double) kept / EVENTS).isBetween(0.09, 0.11);
+		assertThat(InfoSamplingTurboFilter.SAMPLED_OUT.sum() - sampledOutBefore).isEqualTo(EVENTS - kept);
+	}
+
+	@Test
+	void neverSamplesWarningsErrorsOrOtherLoggers() {
+		InfoSamplingTurboFilter filter = filter(1000);
+
+		for (int i = 0; i < 1000; i++) {
+			assertThat(filter.decide(null, sampled, Level.WARN, "event", null, null)).isEqualTo(FilterReply.NEUTRAL);
+			assertThat(filter.decide(null, sampled, Level.ERROR, "event", null, null)).isEqualTo(FilterReply.NEUTRAL);
+			assertThat(filter.decide(null, other, Level.INFO, "event", null, null)).isEqualTo(FilterReply.NEUTRAL);
+		}
+	}
+
+	@Test
+	void rateOfOneKeepsEverything() {
+		InfoSamplingTurboFilter filter = filter(1);
+
+		for (int i = 0; i < 1000; i++) {
+			assertThat(filter.decide(null, sampled, Level.INFO, "event", null, null)).isEqualTo(FilterReply.NEUTRAL);
+		}
+	}
+
+	private static InfoSamplingTurboFilter filter(int rate) {
+		InfoSamplingTurboFilter filter = new InfoSamplingTurboFilter();
+		filter.setRate(rate);
+		filter.setLoggers(" com.bookticket.payment_service , ");
+		filter.start();
+		return filter;
+	}
+}
@@ -0,0 +1,124 @@
+package com.bookticket.payment_service.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MeteredAsyncAppenderTest {
+
+	private static final int QUEUE_SIZE = 16;
+
+	private final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+	private final BlockedSink sink = new BlockedSink();
+	private MeteredAsyncAppender appender;
+
+	@AfterEach
+	void tearDown() {
+		sink.release.countDown();
+		appender.stop();
+	}
+
+	@Test
+	void dropsOnlyOnceTheQueueIsFull() throws Exception {
+		start("full-queue-test", 0);
+		MeteredAsyncAppender.Stats stats = MeteredAsyncAppender.stats().get("full-queue-test");
+		blockWorker();
+
+		for (int i = 0; i < QUEUE_SIZE; i++) {
+			appender.doAppend(event(Level.INFO));
+		}
+		assertThat(stats.rejected.sum()).isZero();
+		assertThat(stats.queueDepth()).isEqualTo(QUEUE_SIZE);
+
+		for (int i = 0; i < 5; i++) {
+			appender.doAppend(event(Level.ERROR));
+		}
+		assertThat(stats.rejected.sum()).isEqualTo(5);
+		assertThat(stats.discarded.sum()).isZero();
+
+		sink.release.countDown();
+		awaitDelivered(1 + QUEUE_SIZE);
+		assertThat(sink.received).hasSize(1 + QUEUE_SIZE);
+	}
+
+	@Test
+	void discardsOnlyDiscardableLevelsUnderTheThreshold() throws Exception {
+		start("threshold-test", 4);
+		MeteredAsyncAppender.Stats stats = MeteredAsyncAppender.stats().get("threshold-test");
+		blockWorker();
+
+		for (int i = 0; i < QUEUE_SIZE - 3; i++) {
+			appender.doAppend(event(Level.INFO));
+		}
+		assertThat(stats.discarded.sum()).isZero();
+
+		// Remaining capacity is now below the threshold: INFO is dropped, WARN still queued
+		appender.doAppend(event(Level.INFO));
+		appender.doAppend(event(Level.WARN));
+		assertThat(stats.discarded.sum()).isEqualTo(1);
+		assertThat(stats.rejected.sum()).isZero();
+		assertThat(stats.queueDepth()).isEqualTo(QUEUE_SIZE - 2);
+	}
+
+	private void start(String name, int discardingThreshold) {
+		sink.setContext(context);
+		sink.start();
+		appender = new MeteredAsyncAppender();
+		appender.setContext(context);
+		appender.setName(name);
+		appender.setQueueSize(QUEUE_SIZE);
+		appender.setDiscardingThreshold(discardingThreshold);
+		appender.setDiscardLevel("INFO");
+		appender.setNeverBlock(true);
+		appender.addAppender(sink);
+		appender.start();
+	}
+
+	/**
+	 * Hand the worker one event and wait until it is stuck delivering it, so the queue only fills from here on
+	 */
+	private void blockWorker() throws InterruptedException {
+		appender.doAppend(event(Level.INFO));
+		assertThat(sink.entered.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	private void awaitDelivered(int events) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (sink.received.size() < events && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private ILoggingEvent event(Level level) {
+		return new LoggingEvent(getClass().getName(), context.getLogger("test"), level, "event", null, null);
+	}
+
+	private static final class BlockedSink extends AppenderBase<ILoggingEvent> {
+		private final CountDownLatch entered = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final List<ILoggingEvent> received = new CopyOnWriteArrayList<>();
+
+		@Override
+		protected void append(ILoggingEvent event) {
+			entered.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			received.add(event);
+		}
+	}
+}
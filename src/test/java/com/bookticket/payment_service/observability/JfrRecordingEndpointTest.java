@@ -0,0 +1,24 @@
+package com.bookticket.payment_service.observability;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JfrRecordingEndpointTest {
+
+	private final JfrRecordingEndpoint endpoint = new JfrRecordingEndpoint();
+
+	@Test
+	void rejectsDurationsOutsideTheAllowedRange() {
+		for (long durationSeconds : new long[]{-1, 0, 1801, Long.MAX_VALUE / 1_000_000_000L}) {
+			assertThatThrownBy(() -> endpoint.start(durationSeconds))
+					.as("%d seconds", durationSeconds)
+					.isInstanceOf(InvalidEndpointRequestException.class);
+		}
+
+		// Nothing was started
+		assertThat(endpoint.status()).containsEntry("state", "NONE");
+	}
+}
@@ -0,0 +1,44 @@
+package com.bookticket.payment_service.observability;
+
+import com.bookticket.payment_service.configuration.SlowRequestProperties;
+import com.bookticket.payment_service.dto.SlowRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowRequestRecorderTest {
+
+	@Test
+	void keepsTheSlowestRequestsWithTheirStages() throws InterruptedException {
+		SlowRequestProperties properties = new SlowRequestProperties();
+		properties.setCapacity(2);
+		SlowRequestRecorder recorder = new SlowRequestRecorder(properties);
+
+		record(recorder, "fast", 1, 0);
+		record(recorder, "slowest", 30, 20);
+		record(recorder, "slow", 15, 5);
+
+		List<SlowRequest> slowRequests = recorder.snapshot();
+		assertThat(slowRequests).extracting(SlowRequest::requestId).containsExactly("slowest", "slow");
+
+		SlowRequest slowest = slowRequests.get(0);
+		assertThat(slowest.stagesMs().get("stripe")).isEqualTo(20.0);
+		assertThat(slowest.stagesMs().get("application")).isGreaterThan(0.0);
+		assertThat(slowest.totalMs()).isGreaterThanOrEqualTo(30.0);
+	}
+
+	private void record(SlowRequestRecorder recorder, String requestId, long sleepMillis, long stripeMillis)
+			throws InterruptedException {
+		RequestTimeline timeline = RequestTimeline.begin(requestId, "GET", "/api/v1/internal/payments/status/1");
+		try {
+			RequestTimeline.record(RequestTimeline.Stage.STRIPE, TimeUnit.MILLISECONDS.toNanos(stripeMillis));
+			Thread.sleep(sleepMillis);
+		} finally {
+			RequestTimeline.end();
+		}
+		recorder.record(timeline, 200);
+	}
+}
@@ -0,0 +1,68 @@
+package com.bookticket.payment_service.resilience;
+
+import com.bookticket.payment_service.configuration.ConcurrencyLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GradientConcurrencyLimiterTest {
+
+	private final ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+
+	@Test
+	void shedsRequestsAboveTheLimitWithoutQueuing() {
+		GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(properties,
+				new ConcurrencyLimitProperties.EndpointLimit(3, 1, 10));
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+
+		limiter.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+		assertThat(limiter.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void growsWhileLatencyIsStableAndShrinksWhenItRises() {
+		GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(properties,
+				new ConcurrencyLimitProperties.EndpointLimit(10, 2, 100));
+
+		runAtLimit(limiter, 200, TimeUnit.MILLISECONDS.toNanos(20));
+		int grownLimit = limiter.getLimit();
+		assertThat(grownLimit).isGreaterThan(10);
+
+		runAtLimit(limiter, 100, TimeUnit.MILLISECONDS.toNanos(200));
+		assertThat(limiter.getLimit()).isLessThan(grownLimit / 2);
+	}
+
+	@Test
+	void failuresCutTheLimit() {
+		GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(properties,
+				new ConcurrencyLimitProperties.EndpointLimit(20, 2, 100));
+
+		for (int i = 0; i < 10; i++) {
+			limiter.tryAcquire();
+			limiter.release(TimeUnit.MILLISECONDS.toNanos(20), true);
+		}
+
+		assertThat(limiter.getLimit()).isLessThan(10);
+	}
+
+	/**
+	 * Fills every slot, then completes the requests one by one with the given latency
+	 */
+	private void runAtLimit(GradientConcurrencyLimiter limiter, int requests, long rttNanos) {
+		for (int i = 0; i < requests; i++) {
+			while (limiter.tryAcquire()) {
+				// fill
+			}
+			limiter.release(rttNanos, false);
+		}
+		while (limiter.getInFlight() > 0) {
+			limiter.release(rttNanos, false);
+		}
+	}
+}
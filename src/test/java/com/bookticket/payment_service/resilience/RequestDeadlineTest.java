@@ -0,0 +1,55 @@
+package com.bookticket.payment_service.resilience;
+
+import com.bookticket.payment_service.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestDeadlineTest {
+
+	@AfterEach
+	void clear() {
+		RequestDeadline.end();
+	}
+
+	@Test
+	void parsesEpochMillisAndIsoInstantsAndIgnoresGarbage() {
+		assertThat(RequestDeadline.parse("1700000000000")).isEqualTo(Instant.ofEpochMilli(1_700_000_000_000L));
+		assertThat(RequestDeadline.parse(" 2026-01-01T10:00:00Z ")).isEqualTo(Instant.parse("2026-01-01T10:00:00Z"));
+		assertThat(RequestDeadline.parse("in a bit")).isNull();
+		assertThat(RequestDeadline.parse("")).isNull();
+		assertThat(RequestDeadline.parse(null)).isNull();
+	}
+
+	@Test
+	void checksPassWithoutADeadline() {
+		RequestDeadline.check("stripe");
+
+		assertThat(RequestDeadline.remainingNanos()).isEqualTo(Long.MAX_VALUE);
+	}
+
+	@Test
+	void expiredDeadlineAbandonsTheStage() {
+		RequestDeadline.begin(Instant.now().minusMillis(5));
+
+		assertThatThrownBy(() -> RequestDeadline.check("stripe"))
+				.isInstanceOf(DeadlineExceededException.class)
+				.extracting(e -> ((DeadlineExceededException) e).getStage())
+				.isEqualTo("stripe");
+	}
+
+	@Test
+	void remainingBudgetCountsDown() {
+		RequestDeadline.begin(Instant.now().plusSeconds(2));
+
+		assertThat(RequestDeadline.remainingNanos())
+				.isPositive()
+				.isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(2));
+		RequestDeadline.check("verify");
+	}
+}
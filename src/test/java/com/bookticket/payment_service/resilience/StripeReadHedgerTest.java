@@ -0,0 +1,146 @@
+package com.bookticket.payment_service.resilience;
+
+import com.bookticket.payment_service.configuration.StripeHedgingProperties;
+import com.stripe.Stripe;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs Session.retrieve against a local Stripe stand-in that delays chosen requests
+ */
+class StripeReadHedgerTest {
+
+	private static final RequestOptions OPTIONS = RequestOptions.builder().setApiKey("sk_test_hedging").build();
+	private static final long SLOW_MS = 1000;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger slowRequests = new AtomicInteger();
+	private HttpServer stripe;
+	private StripeHedgingProperties properties;
+	private StripeReadHedger hedger;
+
+	@BeforeEach
+	void startStandIn() throws IOException {
+		stripe = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		stripe.setExecutor(Executors.newCachedThreadPool());
+		stripe.createContext("/", exchange -> {
+			if (slowRequests.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+				sleep(SLOW_MS);
+			}
+			byte[] body = "{\"id\": \"cs_test_1\", \"object\": \"checkout.session\", \"status\": \"complete\"}"
+					.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		stripe.start();
+		Stripe.overrideApiBase("http://localhost:" + stripe.getAddress().getPort());
+
+		properties = new StripeHedgingProperties();
+		properties.setEnabled(true);
+		properties.setMinSamples(20);
+		properties.setMinDelay(Duration.ofMillis(50));
+		properties.setBudgetRatio(0.5);
+		hedger = new StripeReadHedger(properties, meterRegistry);
+	}
+
+	@AfterEach
+	void stopStandIn() {
+		hedger.destroy();
+		stripe.stop(0);
+		Stripe.overrideApiBase(Stripe.LIVE_API_BASE);
+	}
+
+	@Test
+	void slowReadIsHedgedAndTheFasterAnswerWins() throws Exception {
+		warmUp();
+		double sentBefore = count("stripe.hedge.sent");
+		double winsBefore = count("stripe.hedge.wins");
+
+		slowRequests.set(1);
+		long startNanos = System.nanoTime();
+		Session session = retrieve();
+		long elapsedMs = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+
+		assertThat(session.getId()).isEqualTo("cs_test_1");
+		assertThat(elapsedMs).isLessThan(SLOW_MS);
+		assertThat(count("stripe.hedge.sent") - sentBefore).isEqualTo(1);
+		assertThat(count("stripe.hedge.wins") - winsBefore).isEqualTo(1);
+	}
+
+	@Test
+	void budgetLimitsHedgesToAShareOfReads() throws Exception {
+		properties.setBudgetRatio(0.1);
+		properties.setMaxBudget(2);
+		warmUp(200);
+		double sentBefore = count("stripe.hedge.sent");
+
+		// Every request slow: at most the two saved-up hedges, as four reads earn less than one more
+		slowRequests.set(Integer.MAX_VALUE);
+		for (int i = 0; i < 4; i++) {
+			retrieve();
+		}
+
+		assertThat(count("stripe.hedge.sent") - sentBefore).isLessThanOrEqualTo(2);
+		assertThat(meterRegistry.counter("stripe.hedge.skipped", "operation", "session.retrieve", "reason", "budget")
+				.count()).isPositive();
+	}
+
+	@Test
+	void unhedgedWhenTheRateGovernorHasNoTokenToSpare() throws Exception {
+		warmUp();
+
+		slowRequests.set(1);
+		Session session = hedger.execute("session.retrieve", () -> false, () -> Session.retrieve("cs_test_1", OPTIONS));
+
+		assertThat(session.getId()).isEqualTo("cs_test_1");
+		assertThat(meterRegistry.counter("stripe.hedge.skipped", "operation", "session.retrieve", "reason", "rate_limit")
+				.count()).isEqualTo(1);
+	}
+
+	/**
+	 * Enough fast reads that a few slow ones stay above the 95th percentile
+	 */
+	private void warmUp() throws Exception {
+		warmUp(100);
+	}
+
+	private void warmUp(int reads) throws Exception {
+		for (int i = 0; i < reads; i++) {
+			retrieve();
+		}
+	}
+
+	private double count(String name) {
+		return meterRegistry.counter(name, "operation", "session.retrieve").count();
+	}
+
+	private Session retrieve() throws Exception {
+		return hedger.execute("session.retrieve", () -> true, () -> Session.retrieve("cs_test_1", OPTIONS));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.bookticket.payment_service.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeaderAuthenticatorFilterTest {
+
+	private final HeaderAuthenticatorFilter filter = new HeaderAuthenticatorFilter();
+
+	@AfterEach
+	void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void trimsRolesAndSkipsEmptyEntries() {
+		assertThat(roles("SERVICE_ACCOUNT")).containsExactly("ROLE_SERVICE_ACCOUNT");
+		assertThat(roles(" ADMIN ,\tUSER ")).containsExactly("ROLE_ADMIN", "ROLE_USER");
+		assertThat(roles("ADMIN,USER,")).containsExactly("ROLE_ADMIN", "ROLE_USER");
+		assertThat(roles(",ADMIN,,USER")).containsExactly("ROLE_ADMIN", "ROLE_USER");
+		assertThat(roles("   ")).isEmpty();
+		assertThat(roles(",")).isEmpty();
+		assertThat(roles(" , ,")).isEmpty();
+	}
+
+	@Test
+	void keepsRoleNamesAsSent() {
+		assertThat(roles("service account,ROLE_X")).containsExactly("ROLE_service account", "ROLE_ROLE_X");
+	}
+
+	@Test
+	void parsesOnlyPlainNumericUserIds() {
+		assertThat(HeaderAuthenticatorFilter.parseUserId("42")).isEqualTo(42L);
+		assertThat(HeaderAuthenticatorFilter.parseUserId("007")).isEqualTo(7L);
+		assertThat(HeaderAuthenticatorFilter.parseUserId("999999999999999999")).isEqualTo(999_999_999_999_999_999L);
+		assertThat(HeaderAuthenticatorFilter.parseUserId("1000000000000000000")).isNull();
+		assertThat(HeaderAuthenticatorFilter.parseUserId("99999999999999999999")).isNull();
+		assertThat(HeaderAuthenticatorFilter.parseUserId("")).isNull();
+		assertThat(HeaderAuthenticatorFilter.parseUserId(" 42")).isNull();
+		assertThat(HeaderAuthenticatorFilter.parseUserId("-1")).isNull();
+		assertThat(HeaderAuthenticatorFilter.parseUserId("+1")).isNull();
+		assertThat(HeaderAuthenticatorFilter.parseUserId("booking-service")).isNull();
+	}
+
+	@Test
+	void reusesTheAuthoritiesOfAKnownHeader() {
+		List<GrantedAuthority> first = filter.authoritiesFor("ADMIN, USER");
+
+		assertThat(filter.authoritiesFor("ADMIN, USER")).isSameAs(first);
+	}
+
+	@Test
+	void clearsTheCacheWhenItIsFull() {
+		List<GrantedAuthority> first = filter.authoritiesFor("ROLE0");
+		for (int i = 1; i < 256; i++) {
+			filter.authoritiesFor("ROLE" + i);
+		}
+		assertThat(filter.authoritiesFor("ROLE0")).isSameAs(first);
+
+		filter.authoritiesFor("ROLE256");
+
+		List<GrantedAuthority> reparsed = filter.authoritiesFor("ROLE0");
+		assertThat(reparsed).isNotSameAs(first).isEqualTo(first);
+	}
+
+	@Test
+	void authenticatesNumericAndServiceAccountCallers() throws Exception {
+		Authentication user = authenticate("42", "alice", "USER");
+		assertThat(user.getPrincipal()).isInstanceOf(UserPrincipal.class);
+		assertThat(((UserPrincipal) user.getPrincipal()).getUserId()).isEqualTo(42L);
+		assertThat(user.getName()).isEqualTo("alice");
+
+		Authentication service = authenticate("booking-service", null, "SERVICE_ACCOUNT");
+		assertThat(((UserPrincipal) service.getPrincipal()).getUserId()).isNull();
+		assertThat(service.getName()).isEqualTo("booking-service");
+		assertThat(service.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+				.containsExactly("ROLE_SERVICE_ACCOUNT");
+	}
+
+	@Test
+	void leavesRequestsWithoutBothHeadersAnonymous() throws Exception {
+		assertThat(authenticate(null, null, "ADMIN")).isNull();
+		assertThat(authenticate("42", null, null)).isNull();
+		assertThat(authenticate("", null, "ADMIN")).isNull();
+		assertThat(authenticate("42", null, "")).isNull();
+	}
+
+	private List<String> roles(String header) {
+		return HeaderAuthenticatorFilter.parseRoles(header).stream().map(GrantedAuthority::getAuthority).toList();
+	}
+
+	/**
+	 * The authentication the rest of the chain sees for these headers
+	 */
+	private Authentication authenticate(String userId, String userName, String roles) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/internal/payments/status/cs_1");
+		if (userId != null) {
+			request.addHeader("X-User-Id", userId);
+		}
+		if (userName != null) {
+			request.addHeader("X-User-Name", userName);
+		}
+		if (roles != null) {
+			request.addHeader("X-User-Roles", roles);
+		}
+		AtomicReference<Authentication> seen = new AtomicReference<>();
+		filter.doFilter(request, new MockHttpServletResponse(),
+				(req, res) -> seen.set(SecurityContextHolder.getContext().getAuthentication()));
+		SecurityContextHolder.clearContext();
+		return seen.get();
+	}
+}
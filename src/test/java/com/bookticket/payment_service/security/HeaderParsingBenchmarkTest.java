@@ -0,0 +1,73 @@
+package com.bookticket.payment_service.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Per-request cost of turning X-User-Roles into authorities: the former split/stream parsing, the index-based
+ * parser, and the cached lookup the filter uses. Prints nanoseconds and bytes allocated per header.
+ * Runs with PAYMENT_MICROBENCHMARKS=true.
+ */
+@EnabledIfEnvironmentVariable(named = "PAYMENT_MICROBENCHMARKS", matches = "true")
+class HeaderParsingBenchmarkTest {
+
+	private static final String[] HEADERS = {"SERVICE_ACCOUNT", "USER", "ADMIN, USER", "SERVICE_ACCOUNT,ADMIN"};
+	private static final int WARMUP = 2_000_000;
+	private static final int ITERATIONS = 10_000_000;
+
+	private final com.sun.management.ThreadMXBean threads =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private long sink;
+
+	@Test
+	void cachedAuthoritiesAllocateNothingPerRequest() {
+		HeaderAuthenticatorFilter filter = new HeaderAuthenticatorFilter();
+
+		Result split = measure(HeaderParsingBenchmarkTest::splitAndStream);
+		Result indexed = measure(HeaderAuthenticatorFilter::parseRoles);
+		Result cached = measure(filter::authoritiesFor);
+
+		System.out.printf("split + stream   %6.1f ns/header  %6.1f bytes/header%n", split.nanos(), split.bytes());
+		System.out.printf("index parser     %6.1f ns/header  %6.1f bytes/header%n", indexed.nanos(), indexed.bytes());
+		System.out.printf("cached           %6.1f ns/header  %6.1f bytes/header%n", cached.nanos(), cached.bytes());
+
+		assertThat(cached.bytes()).isLessThan(split.bytes());
+	}
+
+	/**
+	 * How the filter parsed the header before
+	 */
+	private static List<SimpleGrantedAuthority> splitAndStream(String rolesHeader) {
+		return Arrays.stream(rolesHeader.split(","))
+				.map(role -> "ROLE_" + role.trim())
+				.map(SimpleGrantedAuthority::new)
+				.toList();
+	}
+
+	private Result measure(Function<String, ? extends List<? extends GrantedAuthority>> parser) {
+		for (int i = 0; i < WARMUP; i++) {
+			sink += parser.apply(HEADERS[i & 3]).size();
+		}
+		long threadId = Thread.currentThread().getId();
+		long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+		long startNanos = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink += parser.apply(HEADERS[i & 3]).size();
+		}
+		long nanos = System.nanoTime() - startNanos;
+		long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+		return new Result((double) nanos / ITERATIONS, (double) bytes / ITERATIONS);
+	}
+
+	private record Result(double nanos, double bytes) {
+	}
+}
@@ -0,0 +1,152 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.GroupCommitProperties;
+import com.bookticket.payment_service.configuration.PaymentEventLogProperties;
+import com.bookticket.payment_service.configuration.PaymentStatsProperties;
+import com.bookticket.payment_service.configuration.PollingProperties;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares checkout inserts committed one by one, as repository saves do, with PaymentInsertBatcher under a burst
+ * of concurrent checkouts. Runs against a local PostgreSQL database, e.g.
+ * PAYMENT_BENCHMARK_DB_URL=jdbc:postgresql://localhost:5432/payments_bench with PAYMENT_BENCHMARK_DB_USERNAME and
+ * PAYMENT_BENCHMARK_DB_PASSWORD. The database's payments table is dropped.
+ */
+@EnabledIfEnvironmentVariable(named = "PAYMENT_BENCHMARK_DB_URL", matches = ".+")
+class CheckoutGroupCommitBenchmarkTest {
+
+	private static final int CHECKOUTS = 64;
+	private static final int PAYMENTS_PER_CHECKOUT = 100;
+
+	private static HikariDataSource dataSource;
+
+	private final AtomicLong sessions = new AtomicLong();
+
+	@BeforeAll
+	static void createDatabase() {
+		dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl(System.getenv("PAYMENT_BENCHMARK_DB_URL"));
+		dataSource.setUsername(System.getenv("PAYMENT_BENCHMARK_DB_USERNAME"));
+		dataSource.setPassword(System.getenv("PAYMENT_BENCHMARK_DB_PASSWORD"));
+		dataSource.setMaximumPoolSize(CHECKOUTS);
+		new JdbcTemplate(dataSource).execute("DROP TABLE IF EXISTS payments");
+		new ResourceDatabasePopulator(new ClassPathResource("db/sharding/payments.sql")).execute(dataSource);
+	}
+
+	@AfterAll
+	static void closeDatabase() {
+		dataSource.close();
+	}
+
+	@Test
+	void groupCommitNeedsFarFewerCommitsForTheSameInserts() throws Exception {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		double aloneSeconds = run(payment -> insertAlone(jdbcTemplate, payment));
+		long aloneCommits = (long) CHECKOUTS * PAYMENTS_PER_CHECKOUT;
+
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		PaymentInsertBatcher batcher = batcher(meterRegistry);
+		double groupedSeconds;
+		try {
+			groupedSeconds = run(batcher::insert);
+		} finally {
+			batcher.destroy();
+		}
+		long groupedCommits = meterRegistry.summary("payment.group_commit.batch.size").count();
+
+		System.out.printf("One commit per checkout: %d inserts in %.2f s, %.0f commits/s, %.0f inserts/s%n",
+				aloneCommits, aloneSeconds, aloneCommits / aloneSeconds, aloneCommits / aloneSeconds);
+		System.out.printf("Group commit:            %d inserts in %.2f s, %.0f commits/s, %.0f inserts/s (%.1f per commit)%n",
+				aloneCommits, groupedSeconds, groupedCommits / groupedSeconds, aloneCommits / groupedSeconds,
+				(double) aloneCommits / groupedCommits);
+
+		Long rows = jdbcTemplate.queryForObject("SELECT count(*) FROM payments", Long.class);
+		assertThat(rows).isEqualTo(2L * aloneCommits);
+		assertThat(groupedCommits).isLessThan(aloneCommits);
+	}
+
+	/**
+	 * Seconds for every checkout thread to insert its payments
+	 */
+	private double run(Consumer<Payment> insert) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CHECKOUTS);
+		long startNanos = System.nanoTime();
+		try {
+			List<Future<?>> checkouts = new ArrayList<>();
+			for (int i = 0; i < CHECKOUTS; i++) {
+				checkouts.add(executor.submit(() -> {
+					for (int j = 0; j < PAYMENTS_PER_CHECKOUT; j++) {
+						insert.accept(newPayment());
+					}
+				}));
+			}
+			for (Future<?> checkout : checkouts) {
+				checkout.get();
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		return (System.nanoTime() - startNanos) / 1e9;
+	}
+
+	private PaymentInsertBatcher batcher(SimpleMeterRegistry meterRegistry) {
+		GroupCommitProperties properties = new GroupCommitProperties();
+		properties.setEnabled(true);
+		PaymentEventLogProperties eventLogProperties = new PaymentEventLogProperties();
+		eventLogProperties.setEnabled(false);
+		PaymentShardRouter router = PaymentShardRouter.single(dataSource);
+		return new PaymentInsertBatcher(properties, null, router, () -> Optional.of("benchmark"),
+				new PaymentStatusCache(new PollingProperties()),
+				new PaymentStatsService(null, null, null, null, new PaymentStatsProperties(), null, meterRegistry),
+				new PaymentEventLog(eventLogProperties, router, meterRegistry), meterRegistry);
+	}
+
+	private Payment newPayment() {
+		long bookingId = sessions.incrementAndGet();
+		return Payment.builder()
+				.bookingId(bookingId)
+				.userId(1L)
+				.amount(100.0)
+				.paymentMethod("Stripe_Checkout_Session")
+				.paymentStatus(PaymentStatus.PENDING)
+				.transactionId("cs_bench_" + bookingId)
+				.paymentGatewayResponse("Checkout Session created: cs_bench_" + bookingId)
+				.build();
+	}
+
+	private static void insertAlone(JdbcTemplate jdbcTemplate, Payment payment) {
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		jdbcTemplate.update("INSERT INTO payments (booking_id, user_id, amount, payment_method, payment_status, " +
+						"transaction_id, payment_gateway_response, created_at, updated_at, created_by) " +
+						"VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 'benchmark')",
+				payment.getBookingId(), payment.getUserId(), payment.getAmount(), payment.getPaymentMethod(),
+				payment.getPaymentStatus().name(), payment.getTransactionId(), payment.getPaymentGatewayResponse(),
+				now, now);
+	}
+}
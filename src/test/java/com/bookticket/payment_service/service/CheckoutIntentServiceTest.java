@@ -0,0 +1,233 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.AsyncCheckoutProperties;
+import com.bookticket.payment_service.dto.CheckoutIntentRequest;
+import com.bookticket.payment_service.dto.CheckoutIntentResponse;
+import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.service.impl.RoutingPaymentServiceImpl;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CheckoutIntentServiceTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final RoutingPaymentServiceImpl paymentService = mock(RoutingPaymentServiceImpl.class);
+	private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+	private final Map<Long, Payment> payments = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AsyncCheckoutProperties properties = new AsyncCheckoutProperties();
+	private final List<JsonNode> callbacks = new CopyOnWriteArrayList<>();
+	private final AtomicInteger failingCallbacks = new AtomicInteger();
+	private HttpServer receiver;
+	private CheckoutIntentService service;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		when(paymentRepository.save(any())).thenAnswer(invocation -> {
+			Payment payment = invocation.getArgument(0);
+			if (payment.getId() == null) {
+				payment.setId(nextId.getAndIncrement());
+			}
+			payments.put(payment.getId(), payment);
+			return payment;
+		});
+		when(paymentRepository.findById(any())).thenAnswer(invocation ->
+				Optional.ofNullable(payments.get((Long) invocation.getArgument(0))));
+
+		// Answers 500 to the first failingCallbacks deliveries, then 200
+		receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		receiver.createContext("/callback", exchange -> {
+			callbacks.add(objectMapper.readTree(exchange.getRequestBody()));
+			exchange.sendResponseHeaders(failingCallbacks.getAndDecrement() > 0 ? 500 : 200, -1);
+			exchange.close();
+		});
+		receiver.start();
+
+		properties.setThreads(1);
+		properties.setCallbackHosts(List.of("localhost"));
+		properties.setCallbackRetryDelay(Duration.ofMillis(10));
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (service != null) {
+			service.destroy();
+		}
+		receiver.stop(0);
+	}
+
+	@Test
+	void acceptsAtOnceAndCreatesTheSessionInTheBackground() throws Exception {
+		CountDownLatch gatewayCalled = new CountDownLatch(1);
+		CountDownLatch releaseGateway = new CountDownLatch(1);
+		when(paymentService.createCheckoutSession(any(), any())).thenAnswer(invocation -> {
+			gatewayCalled.countDown();
+			releaseGateway.await(5, TimeUnit.SECONDS);
+			return createSession(invocation.getArgument(1));
+		});
+		service = service();
+
+		CheckoutIntentResponse accepted = service.accept(request(null));
+
+		assertThat(accepted.status()).isEqualTo(CheckoutIntentService.ACCEPTED);
+		assertThat(accepted.paymentId()).isEqualTo(1L);
+		assertThat(payments.get(1L).getPaymentStatus()).isEqualTo(PaymentStatus.PENDING);
+		assertThat(gatewayCalled.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(service.get(1L).status()).isEqualTo(CheckoutIntentService.ACCEPTED);
+
+		releaseGateway.countDown();
+		awaitUntil(() -> payments.get(1L).getTransactionId() != null);
+
+		CheckoutIntentResponse created = service.get(1L);
+		assertThat(created.status()).isEqualTo("pending");
+		assertThat(created.sessionId()).isEqualTo("cs_1");
+		assertThat(created.paymentUrl()).isEqualTo("https://checkout.stripe.com/cs_1");
+	}
+
+	@Test
+	void marksTheIntentFailedWhenNoSessionCanBeCreated() throws Exception {
+		when(paymentService.createCheckoutSession(any(), any()))
+				.thenThrow(new PaymentProcessingException("Stripe is down"));
+		service = service();
+
+		service.accept(request(callbackUrl()));
+
+		awaitUntil(() -> callbacks.size() == 1);
+		assertThat(payments.get(1L).getPaymentStatus()).isEqualTo(PaymentStatus.FAILED);
+		assertThat(service.get(1L).status()).isEqualTo("failed");
+		assertThat(callbacks.get(0).get("status").asText()).isEqualTo("failed");
+		assertThat(callbacks.get(0).get("paymentId").asLong()).isEqualTo(1L);
+	}
+
+	@Test
+	void retriesTheCallbackUntilItIsDelivered() throws Exception {
+		when(paymentService.createCheckoutSession(any(), any()))
+				.thenAnswer(invocation -> createSession(invocation.getArgument(1)));
+		failingCallbacks.set(2);
+		properties.setCallbackAttempts(3);
+		service = service();
+
+		service.accept(request(callbackUrl()));
+
+		awaitUntil(() -> deliveries("delivered") == 1);
+		assertThat(callbacks).hasSize(3);
+		assertThat(callbacks).allSatisfy(callback -> {
+			assertThat(callback.get("status").asText()).isEqualTo("pending");
+			assertThat(callback.get("sessionId").asText()).isEqualTo("cs_1");
+		});
+	}
+
+	@Test
+	void givesUpOnTheCallbackAfterTheConfiguredAttempts() throws Exception {
+		when(paymentService.createCheckoutSession(any(), any()))
+				.thenAnswer(invocation -> createSession(invocation.getArgument(1)));
+		failingCallbacks.set(Integer.MAX_VALUE);
+		properties.setCallbackAttempts(2);
+		service = service();
+
+		service.accept(request(callbackUrl()));
+
+		awaitUntil(() -> deliveries("failed") == 1);
+		Thread.sleep(100);
+		assertThat(callbacks).hasSize(2);
+		assertThat(deliveries("delivered")).isZero();
+	}
+
+	@Test
+	void rejectsCallbackUrlsOutsideTheAllowedHosts() {
+		service = service();
+
+		for (String callbackUrl : List.of("http://attacker.example/callback", "ftp://localhost/callback",
+				"http://localhost.attacker.example/callback", "/callback", "http://local host/callback")) {
+			assertThatThrownBy(() -> service.accept(request(callbackUrl)))
+					.as(callbackUrl)
+					.isInstanceOf(IllegalArgumentException.class);
+		}
+
+		// Nothing is stored for a rejected request
+		verify(paymentRepository, never()).save(any());
+	}
+
+	@Test
+	void allowsNoCallbackHostsByDefault() {
+		properties.setCallbackHosts(List.of());
+		service = service();
+
+		assertThatThrownBy(() -> service.accept(request(callbackUrl())))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private CheckoutIntentService service() {
+		return new CheckoutIntentService(paymentService, paymentRepository, PaymentShardRouter.single(null),
+				properties, meterRegistry);
+	}
+
+	/**
+	 * What a gateway does with an intent: fills in the session and saves it
+	 */
+	private CheckoutSessionResponse createSession(Payment intent) {
+		String sessionId = "cs_" + intent.getId();
+		String paymentUrl = "https://checkout.stripe.com/" + sessionId;
+		intent.setTransactionId(sessionId);
+		intent.setPaymentUrl(paymentUrl);
+		paymentRepository.save(intent);
+		return new CheckoutSessionResponse(sessionId, paymentUrl, intent.getBookingId(), intent.getAmount(),
+				"pending", "Checkout session created.", 1_800_000_000L);
+	}
+
+	private String callbackUrl() {
+		return "http://localhost:" + receiver.getAddress().getPort() + "/callback";
+	}
+
+	private double deliveries(String outcome) {
+		return meterRegistry.counter("payment.async_checkout.callbacks", "outcome", outcome).count();
+	}
+
+	private static CheckoutIntentRequest request(String callbackUrl) {
+		return new CheckoutIntentRequest(10L, 20L, 100.0, null, null, callbackUrl);
+	}
+
+	private static void awaitUntil(Condition condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.met()) {
+			assertThat(System.nanoTime()).as("condition not met within 5 s").isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	@FunctionalInterface
+	private interface Condition {
+		boolean met();
+	}
+}
@@ -0,0 +1,199 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.dto.PaymentExportRequest;
+import com.bookticket.payment_service.enums.ExportFormat;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentExportServiceTest {
+
+	private static final String[] COLUMNS = {
+			"payment_id", "booking_id", "user_id", "amount", "currency", "payment_method", "payment_status",
+			"transaction_id", "payment_intent_id", "created_at", "updated_at", "created_by", "payment_gateway_response"
+	};
+	private static final Timestamp CREATED = Timestamp.valueOf(LocalDateTime.of(2026, 3, 1, 12, 0));
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final List<Object[]> rows = new ArrayList<>();
+	private final List<String> queries = new ArrayList<>();
+	private final PaymentExportService exportService = new PaymentExportService(
+			PaymentShardRouter.single(dataSource()), objectMapper, new SimpleMeterRegistry());
+
+	@Test
+	void csvQuotesFieldsAndLeavesNullsEmpty() throws Exception {
+		rows.add(row(1L, 10L, 100L, 25.0, "cs_1", "Card declined, \"insufficient funds\""));
+		rows.add(row(2L, 11L, null, null, "cs_2", null));
+
+		String csv = export(request(ExportFormat.CSV, false, null, null));
+
+		assertThat(csv.split("\n")).containsExactly(
+				String.join(",", COLUMNS),
+				"1,10,100,25.0,usd,Stripe_Checkout_Session,COMPLETED,cs_1,,2026-03-01 12:00:00.0,2026-03-01 12:00:00.0,test,\"Card declined, \"\"insufficient funds\"\"\"",
+				"2,11,,,usd,Stripe_Checkout_Session,COMPLETED,cs_2,,2026-03-01 12:00:00.0,2026-03-01 12:00:00.0,test,");
+	}
+
+	@Test
+	void ndjsonWritesNullNumbersAsNull() throws Exception {
+		rows.add(row(1L, 10L, 100L, 25.0, "cs_1", "ok"));
+		rows.add(row(2L, 11L, null, null, "cs_2", null));
+
+		List<JsonNode> lines = ndjson(export(request(ExportFormat.NDJSON, false, null, null)));
+
+		assertThat(lines).hasSize(2);
+		assertThat(lines.get(0).get("userId").asLong()).isEqualTo(100L);
+		assertThat(lines.get(0).get("amount").asDouble()).isEqualTo(25.0);
+		assertThat(lines.get(0).get("createdAt").asText()).isEqualTo("2026-03-01T12:00");
+		assertThat(lines.get(1).get("userId").isNull()).isTrue();
+		assertThat(lines.get(1).get("amount").isNull()).isTrue();
+		assertThat(lines.get(1).get("paymentGatewayResponse").isNull()).isTrue();
+	}
+
+	@Test
+	void resumesAfterTheLastPaymentIdAndStopsAtTheLimit() throws Exception {
+		for (long id = 1; id <= 5; id++) {
+			rows.add(row(id, id, id, 1.0, "cs_" + id, null));
+		}
+
+		List<JsonNode> lines = ndjson(export(request(ExportFormat.NDJSON, false, 2L, 2L)));
+
+		assertThat(lines).extracting(line -> line.get("paymentId").asLong()).containsExactly(3L, 4L);
+		assertThat(queries.get(0)).contains("payment_id > ?").contains("ORDER BY payment_id").contains("LIMIT ?")
+				.doesNotContain("OFFSET");
+	}
+
+	@Test
+	void gzipCompressesTheExport() throws Exception {
+		rows.add(row(1L, 10L, 100L, 25.0, "cs_1", "ok"));
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		long written = exportService.export(request(ExportFormat.CSV, true, null, null), output);
+
+		String csv = new String(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())).readAllBytes(),
+				StandardCharsets.UTF_8);
+		assertThat(written).isEqualTo(1);
+		assertThat(csv).startsWith("payment_id,").contains("\n1,10,100,25.0,");
+	}
+
+	private String export(PaymentExportRequest request) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		exportService.export(request, output);
+		return output.toString(StandardCharsets.UTF_8);
+	}
+
+	private List<JsonNode> ndjson(String export) throws Exception {
+		List<JsonNode> lines = new ArrayList<>();
+		for (String line : export.split("\n")) {
+			lines.add(objectMapper.readTree(line));
+		}
+		return lines;
+	}
+
+	private static PaymentExportRequest request(ExportFormat format, boolean gzip, Long after, Long limit) {
+		return new PaymentExportRequest(CREATED.toLocalDateTime().minusDays(1), CREATED.toLocalDateTime().plusDays(1),
+				Set.of(), format, gzip, after, limit);
+	}
+
+	private static Object[] row(Long paymentId, Long bookingId, Long userId, Double amount, String transactionId,
+								String gatewayResponse) {
+		return new Object[]{paymentId, bookingId, userId, amount, "usd", "Stripe_Checkout_Session", "COMPLETED",
+				transactionId, null, CREATED, CREATED, "test", gatewayResponse};
+	}
+
+	/**
+	 * A database holding the rows: applies the keyset and LIMIT parameters the way the export query does
+	 */
+	private DataSource dataSource() {
+		return proxy(DataSource.class, (method, args) -> method.equals("getConnection") ? connection() : null);
+	}
+
+	private Connection connection() {
+		return proxy(Connection.class, (method, args) -> {
+			if (method.equals("prepareStatement")) {
+				queries.add((String) args[0]);
+				return statement((String) args[0]);
+			}
+			return null;
+		});
+	}
+
+	private PreparedStatement statement(String sql) {
+		Map<Integer, Object> parameters = new HashMap<>();
+		return proxy(PreparedStatement.class, (method, args) -> {
+			if (method.startsWith("set") && args.length == 2 && args[0] instanceof Integer index) {
+				parameters.put(index, args[1]);
+			}
+			if (method.equals("executeQuery")) {
+				long after = (Long) parameters.get(3);
+				long limit = sql.contains("LIMIT") ? (Long) parameters.get(parameters.size()) : Long.MAX_VALUE;
+				return resultSet(rows.stream().filter(row -> (Long) row[0] > after).limit(limit).toList());
+			}
+			return null;
+		});
+	}
+
+	private static ResultSet resultSet(List<Object[]> rows) {
+		int[] position = {-1};
+		boolean[] wasNull = {false};
+		return proxy(ResultSet.class, (method, args) -> {
+			if (method.equals("next")) {
+				return ++position[0] < rows.size();
+			}
+			if (method.equals("wasNull")) {
+				return wasNull[0];
+			}
+			if (!method.startsWith("get") || args == null || args.length != 1) {
+				return null;
+			}
+			int column = args[0] instanceof Integer index ? index - 1 : List.of(COLUMNS).indexOf((String) args[0]);
+			Object value = rows.get(position[0])[column];
+			wasNull[0] = value == null;
+			return switch (method) {
+				case "getLong" -> value != null ? (Long) value : 0L;
+				case "getDouble" -> value != null ? (Double) value : 0.0;
+				case "getString" -> value != null ? value.toString() : null;
+				default -> value;
+			};
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Handler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			Object result = handler.handle(method.getName(), args);
+			if (result == null && method.getReturnType() == boolean.class) {
+				return false;
+			}
+			if (result == null && method.getReturnType() == int.class) {
+				return 0;
+			}
+			return result;
+		});
+	}
+
+	@FunctionalInterface
+	private interface Handler {
+		Object handle(String method, Object[] args) throws Exception;
+	}
+}
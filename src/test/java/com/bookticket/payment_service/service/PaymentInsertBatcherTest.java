@@ -0,0 +1,167 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.GroupCommitProperties;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentInsertBatcherTest {
+
+	private static final long SAVED_ALONE_ID = 999L;
+
+	private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+	private final CountDownLatch insertStarted = new CountDownLatch(1);
+	private final CountDownLatch releaseInsert = new CountDownLatch(1);
+	private final List<List<String>> statements = new CopyOnWriteArrayList<>();
+	private final AtomicLong nextId = new AtomicLong(1);
+	private PaymentInsertBatcher batcher;
+
+	@AfterEach
+	void tearDown() throws Exception {
+		releaseInsert.countDown();
+		batcher.destroy();
+	}
+
+	@Test
+	void waitsForABatchAWriterIsStillWritingPastMaxWait() throws Exception {
+		batcher = batcher(10);
+
+		CompletableFuture<Payment> checkout = CompletableFuture.supplyAsync(() -> batcher.insert(payment("cs_slow")));
+		assertThat(insertStarted.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread.sleep(300);
+		assertThat(checkout).isNotDone();
+
+		releaseInsert.countDown();
+
+		// The row was committed after maxWait: the checkout gets it instead of a failure
+		assertThat(checkout.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+		verify(paymentRepository, never()).save(any());
+	}
+
+	@Test
+	void savesAloneAnInsertNoWriterTookWithinMaxWait() throws Exception {
+		batcher = batcher(1);
+		when(paymentRepository.save(any())).thenAnswer(invocation -> {
+			Payment payment = invocation.getArgument(0);
+			payment.setId(SAVED_ALONE_ID);
+			return payment;
+		});
+
+		// The only writer is busy with the first checkout, so the second one stays queued
+		CompletableFuture<Payment> first = CompletableFuture.supplyAsync(() -> batcher.insert(payment("cs_first")));
+		assertThat(insertStarted.await(5, TimeUnit.SECONDS)).isTrue();
+		Payment second = batcher.insert(payment("cs_second"));
+
+		assertThat(second.getId()).isEqualTo(SAVED_ALONE_ID);
+		releaseInsert.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+		Thread.sleep(200);
+
+		// The writer no longer writes the insert that was saved alone
+		assertThat(statements).containsExactly(List.of("cs_first"));
+	}
+
+	private PaymentInsertBatcher batcher(int maxBatchSize) {
+		GroupCommitProperties properties = new GroupCommitProperties();
+		properties.setEnabled(true);
+		properties.setWriters(1);
+		properties.setMaxBatchSize(maxBatchSize);
+		properties.setMaxDelay(Duration.ZERO);
+		properties.setMaxWait(Duration.ofMillis(100));
+		return new PaymentInsertBatcher(properties, paymentRepository, PaymentShardRouter.single(dataSource()),
+				() -> Optional.of("test"), mock(PaymentStatusCache.class), mock(PaymentStatsService.class),
+				mock(PaymentEventLog.class), new SimpleMeterRegistry());
+	}
+
+	private static Payment payment(String transactionId) {
+		return Payment.builder()
+				.bookingId(1L)
+				.userId(1L)
+				.amount(100.0)
+				.paymentMethod("Stripe_Checkout_Session")
+				.paymentStatus(PaymentStatus.PENDING)
+				.transactionId(transactionId)
+				.build();
+	}
+
+	/**
+	 * A database whose inserts block until released and return generated IDs for the transaction IDs bound
+	 */
+	private DataSource dataSource() {
+		return proxy(DataSource.class, (method, args) -> method.equals("getConnection") ? connection() : null);
+	}
+
+	private Connection connection() {
+		return proxy(Connection.class, (method, args) -> method.equals("prepareStatement") ? statement() : null);
+	}
+
+	private PreparedStatement statement() {
+		List<String> transactionIds = new ArrayList<>();
+		return proxy(PreparedStatement.class, (method, args) -> {
+			// The transaction ID is the 7th of 13 parameters per row
+			if (method.equals("setString") && ((Integer) args[0] - 1) % 13 == 6) {
+				transactionIds.add((String) args[1]);
+			}
+			if (method.equals("executeQuery")) {
+				insertStarted.countDown();
+				releaseInsert.await(5, TimeUnit.SECONDS);
+				statements.add(List.copyOf(transactionIds));
+				List<Long> ids = transactionIds.stream().map(id -> nextId.getAndIncrement()).toList();
+				return resultSet(transactionIds, ids);
+			}
+			return null;
+		});
+	}
+
+	private static ResultSet resultSet(List<String> transactionIds, List<Long> ids) {
+		int[] position = {-1};
+		return proxy(ResultSet.class, (method, args) -> switch (method) {
+			case "next" -> ++position[0] < transactionIds.size();
+			case "getLong" -> ids.get(position[0]);
+			case "getString" -> transactionIds.get(position[0]);
+			default -> null;
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Handler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			Object result = handler.handle(method.getName(), args);
+			if (result == null && method.getReturnType() == boolean.class) {
+				return false;
+			}
+			return result;
+		});
+	}
+
+	@FunctionalInterface
+	private interface Handler {
+		Object handle(String method, Object[] args) throws Exception;
+	}
+}
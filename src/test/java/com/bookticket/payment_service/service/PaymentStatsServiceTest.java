@@ -0,0 +1,47 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.PaymentStatsProperties;
+import com.bookticket.payment_service.dto.PaymentStatsResponse;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentStatsServiceTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	// No repositories: every flush fails and the counters stay local
+	private final PaymentStatsService stats = new PaymentStatsService(null, null, null, null,
+			new PaymentStatsProperties(), null, meterRegistry);
+
+	@Test
+	void transitionsMovePaymentsBetweenStatuses() {
+		stats.recordTransition(null, PaymentStatus.PENDING, 10.0);
+		stats.recordTransition(null, PaymentStatus.PENDING, 5.5);
+		stats.recordTransition(PaymentStatus.PENDING, PaymentStatus.COMPLETED, 10.0);
+
+		PaymentStatsResponse response = stats.getStats();
+
+		assertThat(response.totals().get(PaymentStatus.PENDING))
+				.isEqualTo(new PaymentStatsResponse.StatusTotals(1, 5.5));
+		assertThat(response.totals().get(PaymentStatus.COMPLETED))
+				.isEqualTo(new PaymentStatsResponse.StatusTotals(1, 10.0));
+		assertThat(response.minutes()).singleElement().satisfies(minute -> {
+			assertThat(minute.transitions().get(PaymentStatus.PENDING)).isEqualTo(2);
+			assertThat(minute.transitions().get(PaymentStatus.COMPLETED)).isEqualTo(1);
+		});
+		assertThat(meterRegistry.get("payment.stats.count").tag("status", "PENDING").gauge().value()).isEqualTo(1);
+	}
+
+	@Test
+	void failedFlushKeepsChangesForTheNextOne() {
+		stats.recordTransition(null, PaymentStatus.FAILED, 20.0);
+
+		stats.flush();
+
+		assertThat(stats.getStats().totals().get(PaymentStatus.FAILED))
+				.isEqualTo(new PaymentStatsResponse.StatusTotals(1, 20.0));
+	}
+}
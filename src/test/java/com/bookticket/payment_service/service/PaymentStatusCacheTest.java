@@ -0,0 +1,85 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.PollingProperties;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentStatusCacheTest {
+
+	@Test
+	void etagChangesWithStatusAndMatchesIfNoneMatch() {
+		PaymentStatusCache cache = new PaymentStatusCache(new PollingProperties());
+		LocalDateTime updatedAt = LocalDateTime.now();
+
+		cache.put(payment(PaymentStatus.PENDING, updatedAt), false);
+		PaymentStatusCache.Entry pending = cache.get("cs_1").orElseThrow();
+		cache.put(payment(PaymentStatus.COMPLETED, updatedAt.plusSeconds(1)), false);
+		PaymentStatusCache.Entry completed = cache.get("cs_1").orElseThrow();
+
+		assertThat(completed.etag()).isNotEqualTo(pending.etag());
+		assertThat(completed.matches("W/" + completed.etag())).isTrue();
+		assertThat(completed.matches("\"other\", " + completed.etag())).isTrue();
+		assertThat(completed.matches(pending.etag())).isFalse();
+		assertThat(completed.matches(null)).isFalse();
+	}
+
+	@Test
+	void olderStateDoesNotReplaceNewerOne() {
+		PaymentStatusCache cache = new PaymentStatusCache(new PollingProperties());
+		LocalDateTime updatedAt = LocalDateTime.now();
+
+		cache.put(payment(PaymentStatus.COMPLETED, updatedAt), false);
+		cache.put(payment(PaymentStatus.PENDING, updatedAt.minusSeconds(5)), false);
+
+		assertThat(cache.get("cs_1")).get().extracting(PaymentStatusCache.Entry::status).isEqualTo(PaymentStatus.COMPLETED);
+	}
+
+	@Test
+	void nonTerminalEntriesExpireAfterTheirTtl() throws InterruptedException {
+		PollingProperties properties = new PollingProperties();
+		properties.setPendingTtl(Duration.ofMillis(20));
+		PaymentStatusCache cache = new PaymentStatusCache(properties);
+
+		cache.put(payment(PaymentStatus.PENDING, LocalDateTime.now()), false);
+		assertThat(cache.get("cs_1")).isPresent();
+
+		Thread.sleep(40);
+		assertThat(cache.get("cs_1")).isEmpty();
+	}
+
+	@Test
+	void completedEntriesExpireLikeNonTerminalOnes() throws InterruptedException {
+		// A refund job, possibly on another replica, can still move a completed payment on
+		PollingProperties properties = new PollingProperties();
+		properties.setPendingTtl(Duration.ofMillis(20));
+		PaymentStatusCache cache = new PaymentStatusCache(properties);
+
+		cache.put(payment(PaymentStatus.COMPLETED, LocalDateTime.now()), false);
+		assertThat(PaymentStatusCache.isTerminal(PaymentStatus.COMPLETED)).isFalse();
+
+		Thread.sleep(40);
+		assertThat(cache.get("cs_1")).isEmpty();
+
+		cache.put(payment(PaymentStatus.REFUNDED, LocalDateTime.now()), false);
+		Thread.sleep(40);
+		assertThat(cache.get("cs_1")).isPresent();
+	}
+
+	private Payment payment(PaymentStatus status, LocalDateTime updatedAt) {
+		Payment payment = Payment.builder()
+				.id(1L)
+				.bookingId(1L)
+				.transactionId("cs_1")
+				.paymentStatus(status)
+				.build();
+		payment.setCreatedAt(updatedAt.minusMinutes(1));
+		payment.setUpdatedAt(updatedAt);
+		return payment;
+	}
+}
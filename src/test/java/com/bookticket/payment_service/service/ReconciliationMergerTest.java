@@ -0,0 +1,82 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.service.ReconciliationMerger.LocalPayment;
+import com.bookticket.payment_service.service.ReconciliationMerger.RemoteSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconciliationMergerTest {
+
+	private final List<String> matched = new ArrayList<>();
+	private final List<String> missingLocal = new ArrayList<>();
+	private final List<String> missingRemote = new ArrayList<>();
+
+	private final ReconciliationMerger.Listener listener = new ReconciliationMerger.Listener() {
+		@Override
+		public void matched(RemoteSession remote, LocalPayment local) {
+			matched.add(remote.sessionId());
+		}
+
+		@Override
+		public void missingLocal(RemoteSession remote) {
+			missingLocal.add(remote.sessionId());
+		}
+
+		@Override
+		public void missingRemote(LocalPayment local) {
+			missingRemote.add(local.transactionId());
+		}
+	};
+
+	@Test
+	void matchesItemsWithinSkewAndReportsOrphans() {
+		List<RemoteSession> remote = List.of(
+				remote("cs_3", 300),
+				remote("cs_2", 200),
+				remote("cs_only_stripe", 150),
+				remote("cs_1", 100));
+		// Local rows are written a couple of seconds after Stripe created the session
+		List<LocalPayment> local = List.of(
+				local("cs_3", 302),
+				local("cs_only_local", 250),
+				local("cs_2", 201),
+				local("cs_1", 104));
+
+		new ReconciliationMerger(10, 100).merge(remote.iterator(), local.iterator(), listener);
+
+		assertThat(matched).containsExactlyInAnyOrder("cs_1", "cs_2", "cs_3");
+		assertThat(missingLocal).containsExactly("cs_only_stripe");
+		assertThat(missingRemote).containsExactly("cs_only_local");
+	}
+
+	@Test
+	void buffersOnlyTheSkewWindow() {
+		// 10k sessions one second apart, every local row 3 seconds late
+		List<RemoteSession> remote = LongStream.range(0, 10_000).map(i -> 10_000 - i)
+				.mapToObj(t -> remote("cs_" + t, t)).toList();
+		List<LocalPayment> local = LongStream.range(0, 10_000).map(i -> 10_000 - i)
+				.mapToObj(t -> local("cs_" + t, t + 3)).toList();
+
+		ReconciliationMerger merger = new ReconciliationMerger(5, 1000);
+		merger.merge(remote.iterator(), local.iterator(), listener);
+
+		assertThat(matched).hasSize(10_000);
+		assertThat(missingLocal).isEmpty();
+		assertThat(missingRemote).isEmpty();
+		assertThat(merger.getPeakBuffered()).isLessThanOrEqualTo(10);
+	}
+
+	private static RemoteSession remote(String id, long created) {
+		return new RemoteSession(id, created, PaymentStatus.COMPLETED, "complete/paid", 1L);
+	}
+
+	private static LocalPayment local(String id, long created) {
+		return new LocalPayment(id, created, PaymentStatus.COMPLETED, 1L, 1L, 0);
+	}
+}
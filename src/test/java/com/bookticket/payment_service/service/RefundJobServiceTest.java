@@ -0,0 +1,375 @@
+package com.bookticket.payment_service.service;
+
+import com.bookticket.payment_service.configuration.RefundProperties;
+import com.bookticket.payment_service.dto.CheckoutSessionRequest;
+import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.dto.RefundJobRequest;
+import com.bookticket.payment_service.dto.RefundJobResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.entity.RefundJob;
+import com.bookticket.payment_service.entity.RefundJobItem;
+import com.bookticket.payment_service.enums.PaymentStatus;
+import com.bookticket.payment_service.enums.RefundItemStatus;
+import com.bookticket.payment_service.enums.RefundJobStatus;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.repository.RefundJobItemRepository;
+import com.bookticket.payment_service.repository.RefundJobRepository;
+import com.bookticket.payment_service.service.impl.PaymentGateway;
+import com.bookticket.payment_service.service.impl.PaymentGatewayRegistry;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RefundJobServiceTest {
+
+	private static final String OTHER_INSTANCE = "other-instance";
+
+	private final Map<Long, Payment> payments = new ConcurrentHashMap<>();
+	private final Map<Long, RefundJob> jobs = new ConcurrentHashMap<>();
+	private final Map<Long, RefundJobItem> items = new ConcurrentHashMap<>();
+	private final AtomicLong nextJobId = new AtomicLong(1);
+	private final AtomicLong nextItemId = new AtomicLong(1);
+	private final List<Integer> chunkSizes = new CopyOnWriteArrayList<>();
+	private final StubGateway gateway = new StubGateway();
+	private final RefundProperties properties = new RefundProperties();
+	private RefundJobService service;
+
+	@BeforeEach
+	void setUp() {
+		properties.setParallelism(4);
+		properties.setCheckpointSize(2);
+		properties.setRetryBackoff(Duration.ofMillis(10));
+		for (long id = 1; id <= 5; id++) {
+			payments.put(id, Payment.builder()
+					.id(id)
+					.bookingId(100 + id)
+					.userId(1L)
+					.amount(50.0)
+					.paymentMethod(StubGateway.PAYMENT_METHOD)
+					.paymentStatus(PaymentStatus.COMPLETED)
+					.transactionId("cs_" + id)
+					.build());
+		}
+		service = new RefundJobService(paymentRepository(), jobRepository(), itemRepository(),
+				new PaymentGatewayRegistry(List.of(gateway)), PaymentShardRouter.single(null), properties,
+				mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void refundsInCheckpointedChunks() throws Exception {
+		RefundJobResponse created = service.createJob(new RefundJobRequest(
+				Set.of(101L, 102L, 103L, 104L, 105L, 999L), 7L, "Show cancelled"));
+
+		RefundJob job = awaitFinished(created.jobId());
+
+		assertThat(created.totalItems()).isEqualTo(5);
+		assertThat(created.skippedBookings()).isEqualTo(1);
+		assertThat(job.getStatus()).isEqualTo(RefundJobStatus.COMPLETED);
+		assertThat(job.getSucceeded()).isEqualTo(5);
+		assertThat(job.getLeaseOwner()).isNull();
+		// Chunks of checkpoint-size, then an empty page ends the job
+		assertThat(chunkSizes).containsExactly(2, 2, 1, 0);
+		assertThat(gateway.keys).hasSize(5);
+		assertThat(payments.values()).allSatisfy(payment ->
+				assertThat(payment.getPaymentStatus()).isEqualTo(PaymentStatus.REFUNDED));
+		assertThat(items.values()).allSatisfy(item -> {
+			assertThat(item.getStatus()).isEqualTo(RefundItemStatus.SUCCEEDED);
+			assertThat(item.getRefundId()).isEqualTo("re_" + item.getPaymentId());
+		});
+	}
+
+	@Test
+	void reusesTheIdempotencyKeyWhenRetryingAFailedRefund() throws Exception {
+		gateway.failuresLeft.put(3L, 2);
+
+		RefundJobResponse created = service.createJob(new RefundJobRequest(Set.of(101L, 102L, 103L), null, null));
+		RefundJob job = awaitFinished(created.jobId());
+
+		String key = "refund-" + created.jobId() + "-3";
+		assertThat(gateway.keys.stream().filter(key::equals)).hasSize(3);
+		assertThat(job.getStatus()).isEqualTo(RefundJobStatus.COMPLETED);
+		assertThat(job.getSucceeded()).isEqualTo(3);
+		assertThat(items.values().stream().filter(item -> item.getPaymentId() == 3L).findFirst().orElseThrow()
+				.getAttempts()).isEqualTo(3);
+	}
+
+	@Test
+	void failsAnItemAfterMaxAttemptsAndReleasesItsPayment() throws Exception {
+		gateway.failuresLeft.put(2L, Integer.MAX_VALUE);
+
+		RefundJobResponse created = service.createJob(new RefundJobRequest(Set.of(101L, 102L), null, null));
+		RefundJob job = awaitFinished(created.jobId());
+
+		assertThat(job.getStatus()).isEqualTo(RefundJobStatus.COMPLETED_WITH_ERRORS);
+		assertThat(job.getFailed()).isEqualTo(1);
+		assertThat(gateway.keys.stream().filter(("refund-" + created.jobId() + "-2")::equals))
+				.hasSize(properties.getMaxAttempts());
+		assertThat(payments.get(2L).getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+	}
+
+	@Test
+	void resumesFromTheLastCheckpoint() throws Exception {
+		// Payments 1 and 2 were refunded and checkpointed before the instance running the job stopped
+		RefundJob job = runningJob(OTHER_INSTANCE, LocalDateTime.now().minusMinutes(1), 2);
+
+		service.resumeOrphanedJobs();
+		job = awaitFinished(job.getId());
+
+		assertThat(gateway.paymentIds).containsExactlyInAnyOrder(3L, 4L, 5L);
+		assertThat(job.getStatus()).isEqualTo(RefundJobStatus.COMPLETED);
+		assertThat(job.getSucceeded()).isEqualTo(5);
+	}
+
+	@Test
+	void takesOverAJobOnlyOnceItsLeaseExpired() throws Exception {
+		RefundJob job = runningJob(OTHER_INSTANCE, LocalDateTime.now().plusMinutes(1), 0);
+
+		service.resumeOrphanedJobs();
+		Thread.sleep(200);
+
+		assertThat(gateway.paymentIds).isEmpty();
+		assertThat(job.getLeaseOwner()).isEqualTo(OTHER_INSTANCE);
+
+		job.setLeaseExpiresAt(LocalDateTime.now().minusSeconds(1));
+		service.resumeOrphanedJobs();
+		job = awaitFinished(job.getId());
+
+		assertThat(gateway.paymentIds).hasSize(5);
+		assertThat(job.getStatus()).isEqualTo(RefundJobStatus.COMPLETED);
+	}
+
+	/**
+	 * A RUNNING job over all five payments whose first items were already refunded
+	 */
+	private RefundJob runningJob(String leaseOwner, LocalDateTime leaseExpiresAt, int alreadyRefunded) {
+		RefundJob job = RefundJob.builder()
+				.id(nextJobId.getAndIncrement())
+				.status(RefundJobStatus.RUNNING)
+				.totalItems(payments.size())
+				.succeeded(alreadyRefunded)
+				.startedAt(LocalDateTime.now().minusMinutes(5))
+				.leaseOwner(leaseOwner)
+				.leaseExpiresAt(leaseExpiresAt)
+				.build();
+		jobs.put(job.getId(), job);
+		for (Payment payment : payments.values()) {
+			boolean refunded = payment.getId() <= alreadyRefunded;
+			payment.setPaymentStatus(refunded ? PaymentStatus.REFUNDED : PaymentStatus.REFUND_PENDING);
+			RefundJobItem item = RefundJobItem.builder()
+					.id(nextItemId.getAndIncrement())
+					.jobId(job.getId())
+					.paymentId(payment.getId())
+					.bookingId(payment.getBookingId())
+					.amount(payment.getAmount())
+					.status(refunded ? RefundItemStatus.SUCCEEDED : RefundItemStatus.PENDING)
+					.attempts(refunded ? 1 : 0)
+					.build();
+			items.put(item.getId(), item);
+		}
+		return job;
+	}
+
+	private RefundJob awaitFinished(Long jobId) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (jobs.get(jobId).getStatus().isActive() || jobs.get(jobId).getLeaseOwner() != null) {
+			assertThat(System.nanoTime()).as("job %d still running", jobId).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+		return jobs.get(jobId);
+	}
+
+	private PaymentRepository paymentRepository() {
+		PaymentRepository repository = mock(PaymentRepository.class);
+		when(repository.findByBookingIdInAndPaymentStatus(any(), any())).thenAnswer(invocation -> {
+			Collection<Long> bookingIds = invocation.getArgument(0);
+			PaymentStatus status = invocation.getArgument(1);
+			return payments.values().stream()
+					.filter(payment -> bookingIds.contains(payment.getBookingId()))
+					.filter(payment -> payment.getPaymentStatus() == status)
+					.toList();
+		});
+		when(repository.findAllById(any())).thenAnswer(invocation -> {
+			List<Payment> found = new ArrayList<>();
+			for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+				Optional.ofNullable(payments.get(id)).ifPresent(found::add);
+			}
+			return found;
+		});
+		when(repository.saveAll(any())).thenAnswer(invocation -> {
+			List<Payment> saved = new ArrayList<>();
+			((Iterable<Payment>) invocation.getArgument(0)).forEach(saved::add);
+			return saved;
+		});
+		return repository;
+	}
+
+	private RefundJobRepository jobRepository() {
+		RefundJobRepository repository = mock(RefundJobRepository.class);
+		when(repository.save(any())).thenAnswer(invocation -> {
+			RefundJob job = invocation.getArgument(0);
+			if (job.getId() == null) {
+				job.setId(nextJobId.getAndIncrement());
+			}
+			jobs.put(job.getId(), job);
+			return job;
+		});
+		when(repository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(jobs.get((Long) invocation.getArgument(0))));
+		when(repository.findByStatusIn(any())).thenAnswer(invocation -> {
+			Collection<RefundJobStatus> statuses = invocation.getArgument(0);
+			return jobs.values().stream().filter(job -> statuses.contains(job.getStatus())).toList();
+		});
+		// Same condition as the update query
+		when(repository.claimLease(anyLong(), any(), any(), any())).thenAnswer(invocation -> {
+			RefundJob job = jobs.get((Long) invocation.getArgument(0));
+			String owner = invocation.getArgument(1);
+			LocalDateTime now = invocation.getArgument(3);
+			synchronized (job) {
+				if (job.getLeaseOwner() != null && !job.getLeaseOwner().equals(owner)
+						&& !job.getLeaseExpiresAt().isBefore(now)) {
+					return 0;
+				}
+				job.setLeaseOwner(owner);
+				job.setLeaseExpiresAt(invocation.getArgument(2));
+				return 1;
+			}
+		});
+		when(repository.addProgress(anyLong(), anyInt(), anyInt())).thenAnswer(invocation -> {
+			RefundJob job = jobs.get((Long) invocation.getArgument(0));
+			job.setSucceeded(job.getSucceeded() + (Integer) invocation.getArgument(1));
+			job.setFailed(job.getFailed() + (Integer) invocation.getArgument(2));
+			return 1;
+		});
+		return repository;
+	}
+
+	private RefundJobItemRepository itemRepository() {
+		RefundJobItemRepository repository = mock(RefundJobItemRepository.class);
+		when(repository.saveAll(any())).thenAnswer(invocation -> {
+			List<RefundJobItem> saved = new ArrayList<>();
+			for (RefundJobItem item : (Iterable<RefundJobItem>) invocation.getArgument(0)) {
+				if (item.getId() == null) {
+					item.setId(nextItemId.getAndIncrement());
+				}
+				items.put(item.getId(), item);
+				saved.add(item);
+			}
+			return saved;
+		});
+		when(repository.findAllById(any())).thenAnswer(invocation -> {
+			List<RefundJobItem> found = new ArrayList<>();
+			for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+				Optional.ofNullable(items.get(id)).ifPresent(found::add);
+			}
+			return found;
+		});
+		when(repository.findByJobIdAndStatusAndIdGreaterThanOrderByIdAsc(anyLong(), any(), anyLong(), any()))
+				.thenAnswer(invocation -> {
+					Pageable page = invocation.getArgument(3);
+					List<RefundJobItem> chunk = items(invocation.getArgument(0), invocation.getArgument(1))
+							.filter(item -> item.getId() > (Long) invocation.getArgument(2))
+							.limit(page.getPageSize())
+							.toList();
+					if (invocation.getArgument(1) == RefundItemStatus.PENDING) {
+						chunkSizes.add(chunk.size());
+					}
+					return chunk;
+				});
+		when(repository.countByJobIdAndStatus(anyLong(), any())).thenAnswer(invocation ->
+				items(invocation.getArgument(0), invocation.getArgument(1)).count());
+		return repository;
+	}
+
+	private Stream<RefundJobItem> items(Long jobId, RefundItemStatus status) {
+		return items.values().stream()
+				.filter(item -> item.getJobId().equals(jobId) && item.getStatus() == status)
+				.sorted((a, b) -> Long.compare(a.getId(), b.getId()));
+	}
+
+	/**
+	 * Refunds by payment ID, failing a payment as many times as configured; records every idempotency key
+	 */
+	private static final class StubGateway implements PaymentGateway {
+		private static final String PAYMENT_METHOD = "Stub_Checkout_Session";
+
+		private final List<String> keys = new CopyOnWriteArrayList<>();
+		private final Set<Long> paymentIds = ConcurrentHashMap.newKeySet();
+		private final Map<Long, Integer> failuresLeft = new ConcurrentHashMap<>();
+
+		@Override
+		public String refund(Payment payment, String idempotencyKey) {
+			keys.add(idempotencyKey);
+			paymentIds.add(payment.getId());
+			if (failuresLeft.computeIfPresent(payment.getId(), (id, left) -> left - 1) != null
+					&& failuresLeft.get(payment.getId()) >= 0) {
+				throw new PaymentProcessingException("Gateway timeout");
+			}
+			return "re_" + payment.getId();
+		}
+
+		@Override
+		public String getGatewayName() {
+			return "stub";
+		}
+
+		@Override
+		public String getPaymentMethod() {
+			return PAYMENT_METHOD;
+		}
+
+		@Override
+		public boolean ownsSession(String sessionId) {
+			return false;
+		}
+
+		@Override
+		public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request, Payment intent) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public PaymentResponse verifyCheckoutSession(String sessionId) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void expireSession(String sessionId) {
+		}
+	}
+}
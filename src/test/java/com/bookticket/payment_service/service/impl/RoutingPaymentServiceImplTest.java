@@ -0,0 +1,172 @@
+package com.bookticket.payment_service.service.impl;
+
+import com.bookticket.payment_service.configuration.GatewayRoutingProperties;
+import com.bookticket.payment_service.dto.CheckoutSessionRequest;
+import com.bookticket.payment_service.dto.CheckoutSessionResponse;
+import com.bookticket.payment_service.dto.PaymentResponse;
+import com.bookticket.payment_service.entity.Payment;
+import com.bookticket.payment_service.exception.CheckoutNotRecordedException;
+import com.bookticket.payment_service.exception.PaymentProcessingException;
+import com.bookticket.payment_service.repository.PaymentRepository;
+import com.bookticket.payment_service.sharding.PaymentShardRouter;
+import com.bookticket.payment_service.startup.WarmupTraffic;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class RoutingPaymentServiceImplTest {
+
+	private static final CheckoutSessionRequest REQUEST = new CheckoutSessionRequest(1L, 1L, 100.0, null, null);
+
+	private SimulatedGateway fast;
+	private SimulatedGateway slow;
+	private RoutingPaymentServiceImpl routing;
+
+	@BeforeEach
+	void setUp() {
+		fast = new SimulatedGateway("fast", 2);
+		slow = new SimulatedGateway("slow", 25);
+		GatewayRoutingProperties properties = new GatewayRoutingProperties();
+		properties.setMinSamples(3);
+		properties.setProbeIntervalSeconds(3600);
+		routing = new RoutingPaymentServiceImpl(new PaymentGatewayRegistry(List.of(slow, fast)),
+				mock(PaymentRepository.class), PaymentShardRouter.single(null), properties, new WarmupTraffic(),
+				new SimpleMeterRegistry());
+	}
+
+	@Test
+	void routesNewCheckoutsToTheFasterGateway() {
+		for (int i = 0; i < 20; i++) {
+			routing.createCheckoutSession(REQUEST);
+		}
+
+		// One exploratory call each, then everything goes to the faster gateway
+		assertThat(fast.creates).isGreaterThanOrEqualTo(18);
+		assertThat(slow.creates).isLessThanOrEqualTo(2);
+	}
+
+	@Test
+	void failsOverWhenTheFasterGatewayDegrades() {
+		for (int i = 0; i < 5; i++) {
+			routing.createCheckoutSession(REQUEST);
+		}
+		fast.failing = true;
+
+		for (int i = 0; i < 10; i++) {
+			CheckoutSessionResponse response = routing.createCheckoutSession(REQUEST);
+			assertThat(response.sessionId()).startsWith("slow_");
+		}
+
+		// Once degraded, the failing gateway is no longer tried first
+		int attemptsWhileFailing = fast.attempts - fast.creates;
+		assertThat(attemptsWhileFailing).isLessThan(10);
+	}
+
+	@Test
+	void doesNotFailOverWhenTheCreatedSessionCannotBeRecorded() {
+		for (int i = 0; i < 5; i++) {
+			routing.createCheckoutSession(REQUEST);
+		}
+		fast.notRecording = true;
+		slow.notRecording = true;
+		int attemptsBefore = fast.attempts + slow.attempts;
+
+		assertThatThrownBy(() -> routing.createCheckoutSession(REQUEST))
+				.isInstanceOf(CheckoutNotRecordedException.class);
+
+		// The first gateway opened a session; asking the other one would open a second session for the booking
+		assertThat(fast.attempts + slow.attempts).isEqualTo(attemptsBefore + 1);
+	}
+
+	@Test
+	void verificationStaysWithTheCreatingGateway() {
+		CheckoutSessionResponse created = routing.createCheckoutSession(REQUEST);
+		SimulatedGateway creator = created.sessionId().startsWith("fast_") ? fast : slow;
+		creator.latencyMs = 50;
+
+		routing.verifyCheckoutSession(created.sessionId());
+
+		assertThat(creator.verifies).isEqualTo(1);
+		assertThat((creator == fast ? slow : fast).verifies).isZero();
+	}
+
+	private static final class SimulatedGateway implements PaymentGateway {
+		private final String name;
+		private volatile long latencyMs;
+		private volatile boolean failing;
+		private volatile boolean notRecording;
+		private int attempts;
+		private int creates;
+		private int verifies;
+
+		private SimulatedGateway(String name, long latencyMs) {
+			this.name = name;
+			this.latencyMs = latencyMs;
+		}
+
+		@Override
+		public String getGatewayName() {
+			return name;
+		}
+
+		@Override
+		public String getPaymentMethod() {
+			return name;
+		}
+
+		@Override
+		public boolean ownsSession(String sessionId) {
+			return sessionId.startsWith(name + "_");
+		}
+
+		@Override
+		public void expireSession(String sessionId) {
+		}
+
+		@Override
+		public String refund(Payment payment, String idempotencyKey) {
+			return name + "_refund";
+		}
+
+		@Override
+		public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request) {
+			return createCheckoutSession(request, null);
+		}
+
+		@Override
+		public CheckoutSessionResponse createCheckoutSession(CheckoutSessionRequest request, Payment intent) {
+			attempts++;
+			roundTrip();
+			creates++;
+			if (notRecording) {
+				throw new CheckoutNotRecordedException(name + "_" + attempts, new IllegalStateException("insert failed"));
+			}
+			return new CheckoutSessionResponse(name + "_" + attempts, null, request.bookingId(), request.amount(),
+					"pending", null, null);
+		}
+
+		@Override
+		public PaymentResponse verifyCheckoutSession(String sessionId) {
+			roundTrip();
+			verifies++;
+			return new PaymentResponse(1L, 1L, "PENDING", sessionId, 100.0, null);
+		}
+
+		private void roundTrip() {
+			try {
+				Thread.sleep(latencyMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (failing) {
+				throw new PaymentProcessingException("Simulated outage");
+			}
+		}
+	}
+}
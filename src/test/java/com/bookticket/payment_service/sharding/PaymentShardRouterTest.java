@@ -0,0 +1,47 @@
+package com.bookticket.payment_service.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentShardRouterTest {
+
+	@Test
+	void growingByOneShardOnlyMovesKeysToTheNewShard() {
+		int moved = 0;
+		for (long bookingId = 1; bookingId <= 10_000; bookingId++) {
+			int before = PaymentShardRouter.jumpHash(bookingId, 3);
+			int after = PaymentShardRouter.jumpHash(bookingId, 4);
+			assertThat(before).isBetween(0, 2);
+			if (before != after) {
+				assertThat(after).isEqualTo(3);
+				moved++;
+			}
+		}
+		// About a quarter of the keys move to the new shard
+		assertThat(moved).isBetween(2_000, 3_000);
+	}
+
+	@Test
+	void singleDatabaseRoutesEverythingToShardZero() {
+		PaymentShardRouter router = PaymentShardRouter.single(null);
+
+		assertThat(router.isSharded()).isFalse();
+		assertThat(router.shardFor(42L)).isZero();
+		assertThat(router.forTransaction("cs_1", ShardContext::current)).isNull();
+		assertThat(router.groupByShard(List.of(1L, 2L, 3L), bookingId -> bookingId))
+				.isEqualTo(Map.of(0, List.of(1L, 2L, 3L)));
+	}
+
+	@Test
+	void interleavedIdsStartAboveTheCurrentMaximum() {
+		for (int shard = 0; shard < 3; shard++) {
+			long first = ShardSchemaManager.firstIdAbove(100, shard, 3);
+			assertThat(first).isGreaterThan(100).isLessThanOrEqualTo(103);
+			assertThat(Math.floorMod(first, 3)).isEqualTo((shard + 1) % 3);
+		}
+	}
+}
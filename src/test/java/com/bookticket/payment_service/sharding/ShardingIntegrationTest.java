@@ -0,0 +1,135 @@
+package com.bookticket.payment_service.sharding;
+
+import com.bookticket.payment_service.dto.ShardRebalanceReport;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against three local PostgreSQL databases, e.g.
+ * PAYMENT_SHARDING_IT_URLS=jdbc:postgresql://localhost:5432/shard0,jdbc:postgresql://localhost:5432/shard1,jdbc:postgresql://localhost:5432/shard2
+ * with PAYMENT_SHARDING_IT_USERNAME and PAYMENT_SHARDING_IT_PASSWORD. The databases' payment tables are dropped.
+ */
+@EnabledIfEnvironmentVariable(named = "PAYMENT_SHARDING_IT_URLS", matches = ".+")
+class ShardingIntegrationTest {
+
+	private static final int PAYMENTS = 300;
+
+	private static final List<DataSource> databases = new ArrayList<>();
+
+	@BeforeAll
+	static void createDatabases() {
+		for (String url : System.getenv("PAYMENT_SHARDING_IT_URLS").split(",")) {
+			HikariDataSource dataSource = new HikariDataSource();
+			dataSource.setJdbcUrl(url.trim());
+			dataSource.setUsername(System.getenv("PAYMENT_SHARDING_IT_USERNAME"));
+			dataSource.setPassword(System.getenv("PAYMENT_SHARDING_IT_PASSWORD"));
+			dataSource.setMaximumPoolSize(4);
+			new JdbcTemplate(dataSource).execute("DROP TABLE IF EXISTS payments, payment_shard_directory");
+			// Shard 0's table is normally created by Hibernate
+			new ResourceDatabasePopulator(new ClassPathResource("db/sharding/payments.sql")).execute(dataSource);
+			databases.add(dataSource);
+		}
+		assertThat(databases).hasSizeGreaterThanOrEqualTo(3);
+	}
+
+	@AfterAll
+	static void closeDatabases() {
+		databases.forEach(dataSource -> ((HikariDataSource) dataSource).close());
+	}
+
+	@Test
+	void routesMergesLocatesAndRebalancesAcrossShards() {
+		PaymentShardRouter twoShards = PaymentShardRouter.sharded(databases.subList(0, 2), 4, new SimpleMeterRegistry());
+		new ShardSchemaManager(twoShards, true).afterPropertiesSet();
+
+		for (long bookingId = 1; bookingId <= PAYMENTS; bookingId++) {
+			insertPayment(twoShards, bookingId);
+			// Every other payment is left out of the directory, as if its directory write had failed
+			if (bookingId % 2 == 0) {
+				twoShards.register("cs_" + bookingId, bookingId);
+			}
+		}
+		assertThat(count(databases.get(0))).isPositive();
+		assertThat(count(databases.get(1))).isPositive();
+
+		// Payment IDs are unique across shards and the merged cursor returns them in order, with their shard
+		List<Long> ids = new ArrayList<>();
+		try (ShardCursor<Long> cursor = ShardCursor.open(twoShards,
+				"SELECT payment_id, booking_id FROM payments ORDER BY payment_id",
+				statement -> { }, 50, resultSet -> resultSet.getLong(1), Long::compare)) {
+			while (cursor.next()) {
+				ids.add(cursor.row().getLong(1));
+				assertThat(cursor.shard()).isEqualTo(twoShards.shardFor(cursor.row().getLong(2)));
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+		assertThat(ids).hasSize(PAYMENTS).isSorted().doesNotHaveDuplicates();
+
+		assertThat(twoShards.locate("cs_7")).contains(twoShards.shardFor(7L));
+		assertThat(twoShards.locate("cs_8")).contains(twoShards.shardFor(8L));
+		assertThat(twoShards.locate("cs_unknown")).isEmpty();
+
+		// Grow to three shards and move the payments that now hash to the new one
+		PaymentShardRouter threeShards = PaymentShardRouter.sharded(databases.subList(0, 3), 4, new SimpleMeterRegistry());
+		new ShardSchemaManager(threeShards, true).afterPropertiesSet();
+		ShardRebalancer rebalancer = new ShardRebalancer(threeShards, new SimpleMeterRegistry());
+
+		ShardRebalanceReport dryRun = rebalancer.rebalance(true, 50);
+		assertThat(dryRun.misplaced()).isPositive();
+		assertThat(dryRun.moved()).isZero();
+
+		ShardRebalanceReport report = rebalancer.rebalance(false, 50);
+		assertThat(report.moved()).isEqualTo(dryRun.misplaced());
+		assertThat(report.movesByRoute().keySet()).allMatch(route -> route.endsWith("->2"));
+		assertThat(rebalancer.rebalance(true, 50).misplaced()).isZero();
+
+		long total = 0;
+		for (int shard = 0; shard < 3; shard++) {
+			total += count(databases.get(shard));
+		}
+		assertThat(total).isEqualTo(PAYMENTS);
+		for (long bookingId = 1; bookingId <= PAYMENTS; bookingId++) {
+			assertThat(threeShards.locate("cs_" + bookingId)).contains(threeShards.shardFor(bookingId));
+		}
+
+		// New IDs stay unique after the shard count changed
+		insertPayment(threeShards, PAYMENTS + 1L);
+		Set<Long> allIds = new HashSet<>();
+		for (int shard = 0; shard < 3; shard++) {
+			allIds.addAll(new JdbcTemplate(databases.get(shard)).queryForList("SELECT payment_id FROM payments", Long.class));
+		}
+		assertThat(allIds).hasSize(PAYMENTS + 1);
+	}
+
+	private void insertPayment(PaymentShardRouter router, long bookingId) {
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		new JdbcTemplate(router.getShards().get(router.shardFor(bookingId))).update(
+				"INSERT INTO payments (booking_id, user_id, amount, payment_method, payment_status, transaction_id, " +
+						"created_at, updated_at) VALUES (?, 1, 100.0, 'Stripe_Checkout_Session', 'COMPLETED', ?, ?, ?)",
+				bookingId, "cs_" + bookingId, now, now);
+	}
+
+	private long count(DataSource dataSource) {
+		Long count = new JdbcTemplate(dataSource).queryForObject("SELECT count(*) FROM payments", Long.class);
+		return count != null ? count : 0;
+	}
+}
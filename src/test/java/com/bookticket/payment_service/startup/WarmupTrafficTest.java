@@ -0,0 +1,75 @@
+package com.bookticket.payment_service.startup;
+
+import com.bookticket.payment_service.service.impl.PaymentGateway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class WarmupTrafficTest {
+
+	private final WarmupTraffic warmupTraffic = new WarmupTraffic();
+	private final PaymentGateway standIn = mock(PaymentGateway.class);
+
+	@AfterEach
+	void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void divertsRequestsCarryingTheTokenOfTheRun() {
+		String token = warmupTraffic.start(standIn);
+
+		handling(token);
+
+		assertThat(warmupTraffic.gatewayForCurrentRequest()).containsSame(standIn);
+	}
+
+	@Test
+	void leavesOtherRequestsAlone() {
+		String token = warmupTraffic.start(standIn);
+
+		handling(null);
+		assertThat(warmupTraffic.gatewayForCurrentRequest()).isEmpty();
+
+		handling(token + "x");
+		assertThat(warmupTraffic.gatewayForCurrentRequest()).isEmpty();
+
+		// Outside a request, e.g. on the checkout intent executor
+		RequestContextHolder.resetRequestAttributes();
+		assertThat(warmupTraffic.gatewayForCurrentRequest()).isEmpty();
+	}
+
+	@Test
+	void stopsDivertingOnceWarmUpIsOver() {
+		String token = warmupTraffic.start(standIn);
+		warmupTraffic.stop();
+
+		handling(token);
+
+		assertThat(warmupTraffic.gatewayForCurrentRequest()).isEmpty();
+	}
+
+	@Test
+	void acceptsOnlyTheTokenOfTheCurrentRun() {
+		String previous = warmupTraffic.start(standIn);
+		warmupTraffic.stop();
+		warmupTraffic.start(standIn);
+
+		handling(previous);
+
+		assertThat(warmupTraffic.gatewayForCurrentRequest()).isEmpty();
+	}
+
+	private static void handling(String token) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/internal/payments/checkout/create");
+		if (token != null) {
+			request.addHeader(WarmupTraffic.TOKEN_HEADER, token);
+		}
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+}